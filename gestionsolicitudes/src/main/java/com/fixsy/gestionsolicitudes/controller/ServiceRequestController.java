@@ -2,6 +2,8 @@ package com.fixsy.gestionsolicitudes.controller;
 
 import com.fixsy.gestionsolicitudes.dto.ServiceRequestDTO;
 import com.fixsy.gestionsolicitudes.dto.ServiceRequestRequestDTO;
+import com.fixsy.gestionsolicitudes.security.AccessTokenClaims;
+import com.fixsy.gestionsolicitudes.security.AccessTokenFilter;
 import com.fixsy.gestionsolicitudes.services.ServiceRequestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -103,11 +106,22 @@ public class ServiceRequestController {
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = ServiceRequestDTO.class))),
         @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos",
                 content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "401", description = "Token de acceso ausente, inválido o expirado",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "403", description = "El userId no corresponde al usuario del token",
+                content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor",
                 content = @Content(mediaType = "application/json"))
     })
     public ResponseEntity<ServiceRequestDTO> createRequest(
-            @Valid @RequestBody ServiceRequestRequestDTO requestDTO) {
+            @Valid @RequestBody ServiceRequestRequestDTO requestDTO,
+            @Parameter(hidden = true)
+            @RequestAttribute(name = AccessTokenFilter.CLAIMS_ATTRIBUTE, required = false) AccessTokenClaims identity) {
+        // Solo se crean solicitudes a nombre del usuario del token; sin token solo llega aquí con
+        // app.auth.require-token=false (desarrollo)
+        if (identity != null && !identity.userId().equals(requestDTO.getUserId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No puede crear solicitudes a nombre de otro usuario");
+        }
         return new ResponseEntity<>(service.createRequest(requestDTO), HttpStatus.CREATED);
     }
 
@@ -0,0 +1,9 @@
+package com.fixsy.gestionsolicitudes.security;
+
+import java.time.Instant;
+
+/**
+ * Datos de identidad contenidos en un token de acceso firmado
+ */
+public record AccessTokenClaims(Long userId, String role, Instant expiresAt) {
+}
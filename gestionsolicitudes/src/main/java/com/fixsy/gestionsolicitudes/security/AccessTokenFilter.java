@@ -0,0 +1,74 @@
+package com.fixsy.gestionsolicitudes.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lee el token de acceso del header Authorization y deja la identidad (AccessTokenClaims) como atributo
+ * de la petición, validada localmente con AccessTokenVerifier: sin llamar al servicio de usuarios.
+ *
+ * Un token inválido o expirado responde 401 de inmediato, y también una petición a /api/** sin
+ * Authorization mientras app.auth.require-token esté activo (por defecto). Solo en desarrollo puede
+ * desactivarse: entonces esas peticiones siguen sin identidad.
+ */
+@Component
+public class AccessTokenFilter extends OncePerRequestFilter {
+
+    public static final String CLAIMS_ATTRIBUTE = "accessTokenClaims";
+
+    @Autowired
+    private AccessTokenVerifier accessTokenVerifier;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.auth.require-token:true}")
+    private boolean requireToken = true;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null) {
+            if (requireToken && request.getRequestURI().startsWith("/api/")) {
+                unauthorized(response, "Token de acceso requerido");
+                return;
+            }
+        } else {
+            AccessTokenClaims claims;
+            try {
+                claims = accessTokenVerifier.verify(authorization);
+            } catch (RuntimeException e) {
+                unauthorized(response, e.getMessage());
+                return;
+            }
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void unauthorized(HttpServletResponse response, String message) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.UNAUTHORIZED.value());
+        body.put("error", HttpStatus.UNAUTHORIZED.getReasonPhrase());
+        body.put("message", message);
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getWriter(), body);
+    }
+}
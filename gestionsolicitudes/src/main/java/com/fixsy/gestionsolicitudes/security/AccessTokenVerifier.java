@@ -0,0 +1,103 @@
+package com.fixsy.gestionsolicitudes.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Verifica localmente los tokens de acceso emitidos por el login de usuarios
+ * (JWT compacto firmado con HMAC-SHA256): sin llamadas de red ni consultas a la BD.
+ *
+ * Copia de la clase de usuarios (security/AccessTokenVerifier): los servicios son proyectos Maven independientes,
+ * sin módulo común, así que los cambios del formato del token deben aplicarse en ambas.
+ * Sin app.auth.token-secret (o con menos de 32 bytes) el servicio no arranca: no hay secreto por defecto.
+ */
+@Component
+public class AccessTokenVerifier {
+
+    static final String ALGORITHM = "HmacSHA256";
+
+    // Cabecera fija: no se acepta otro algoritmo (evita tokens con "alg": "none")
+    static final String HEADER = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private static final long CLOCK_SKEW_SECONDS = 30;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SecretKeySpec key;
+
+    public AccessTokenVerifier(@Value("${app.auth.token-secret:}") String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.auth.token-secret es obligatorio: configure AUTH_TOKEN_SECRET "
+                    + "(en desarrollo local, active el perfil dev)");
+        }
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < 32) {
+            throw new IllegalStateException("app.auth.token-secret debe tener al menos 32 bytes");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+    }
+
+    /**
+     * Valida firma y expiración y retorna la identidad del token
+     */
+    public AccessTokenClaims verify(String token) {
+        if (token == null) {
+            throw invalid();
+        }
+        if (token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !HEADER.equals(parts[0])) {
+            throw invalid();
+        }
+
+        try {
+            byte[] expected = sign(parts[0] + "." + parts[1]);
+            byte[] actual = Base64.getUrlDecoder().decode(parts[2]);
+            if (!MessageDigest.isEqual(expected, actual)) {
+                throw invalid();
+            }
+
+            JsonNode payload = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            Instant expiresAt = Instant.ofEpochSecond(payload.path("exp").asLong());
+            if (expiresAt.plusSeconds(CLOCK_SKEW_SECONDS).isBefore(Instant.now())) {
+                throw invalid();
+            }
+            return new AccessTokenClaims(Long.valueOf(payload.path("sub").asText()),
+                    payload.path("role").asText(null), expiresAt);
+        } catch (IllegalArgumentException | IOException e) {
+            throw invalid();
+        }
+    }
+
+    byte[] sign(String content) {
+        try {
+            // Mac no es thread-safe: una instancia por llamada
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(content.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+
+    static String base64Url(byte[] data) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+    }
+
+    private RuntimeException invalid() {
+        return new RuntimeException("Token inválido o expirado");
+    }
+}
@@ -2,6 +2,7 @@ package com.fixsy.gestionsolicitudes.controller;
 
 import com.fixsy.gestionsolicitudes.dto.ServiceRequestDTO;
 import com.fixsy.gestionsolicitudes.dto.ServiceRequestRequestDTO;
+import com.fixsy.gestionsolicitudes.security.AccessTokenClaims;
 import com.fixsy.gestionsolicitudes.services.ServiceRequestService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,7 +13,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 
@@ -145,7 +148,7 @@ class ServiceRequestControllerTest {
         when(serviceRequestService.createRequest(any(ServiceRequestRequestDTO.class))).thenReturn(testRequestDTO);
 
         // Act
-        ResponseEntity<ServiceRequestDTO> response = serviceRequestController.createRequest(testRequestRequestDTO);
+        ResponseEntity<ServiceRequestDTO> response = serviceRequestController.createRequest(testRequestRequestDTO, null);
 
         // Assert
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
@@ -153,6 +156,35 @@ class ServiceRequestControllerTest {
         assertEquals("Emergencia", response.getBody().getServiceType());
     }
 
+    @Test
+    @DisplayName("POST /api/requests - Con token, debe crear la solicitud del usuario autenticado")
+    void createRequest_ShouldAccept_WhenTokenMatchesUser() {
+        // Arrange
+        when(serviceRequestService.createRequest(any(ServiceRequestRequestDTO.class))).thenReturn(testRequestDTO);
+        AccessTokenClaims identity = new AccessTokenClaims(1L, "CLIENT", Instant.now().plusSeconds(60));
+
+        // Act
+        ResponseEntity<ServiceRequestDTO> response = serviceRequestController.createRequest(testRequestRequestDTO, identity);
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("POST /api/requests - Con token de otro usuario, debe retornar 403 sin crear la solicitud")
+    void createRequest_ShouldReturnForbidden_WhenTokenBelongsToAnotherUser() {
+        // Arrange
+        AccessTokenClaims identity = new AccessTokenClaims(2L, "CLIENT", Instant.now().plusSeconds(60));
+
+        // Act
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> serviceRequestController.createRequest(testRequestRequestDTO, identity));
+
+        // Assert
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        verify(serviceRequestService, never()).createRequest(any());
+    }
+
     @Test
     @DisplayName("PUT /api/requests/{id} - Debe actualizar solicitud")
     void updateRequest_ShouldReturnUpdatedRequest() {
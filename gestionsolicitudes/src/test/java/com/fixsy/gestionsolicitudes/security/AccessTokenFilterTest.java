@@ -0,0 +1,109 @@
+package com.fixsy.gestionsolicitudes.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessTokenFilterTest {
+
+    private static final String SECRET = "secreto-de-prueba-con-al-menos-32-bytes";
+
+    @Spy
+    private AccessTokenVerifier accessTokenVerifier = new AccessTokenVerifier(SECRET);
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private AccessTokenFilter accessTokenFilter;
+
+    @Test
+    @DisplayName("Debe dejar la identidad del token válido como atributo de la petición")
+    void doFilter_ShouldExposeClaims_WhenTokenIsValid() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/requests");
+        request.addHeader("Authorization", "Bearer " + token(7L, Instant.now().plusSeconds(300)));
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        accessTokenFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        AccessTokenClaims claims = (AccessTokenClaims) request.getAttribute(AccessTokenFilter.CLAIMS_ATTRIBUTE);
+        assertEquals(7L, claims.userId());
+        assertEquals("CLIENT", claims.role());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    @DisplayName("Debe responder 401 sin continuar la cadena cuando el token está expirado o mal firmado")
+    void doFilter_ShouldReturnUnauthorized_WhenTokenIsInvalid() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/requests");
+        request.addHeader("Authorization", "Bearer " + token(7L, Instant.now().minusSeconds(3600)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        accessTokenFilter.doFilter(request, response, chain);
+
+        // Assert
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains("Token inválido o expirado"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    @DisplayName("Debe responder 401 cuando falta el header Authorization en /api/**")
+    void doFilter_ShouldReturnUnauthorized_WhenNoAuthorizationHeader() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/requests");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        accessTokenFilter.doFilter(request, response, chain);
+
+        // Assert
+        assertEquals(401, response.getStatus());
+        assertEquals("Token de acceso requerido", objectMapper.readTree(response.getContentAsString()).get("message").asText());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    @DisplayName("Con require-token desactivado debe continuar sin identidad cuando no hay header Authorization")
+    void doFilter_ShouldContinueWithoutClaims_WhenTokenNotRequired() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(accessTokenFilter, "requireToken", false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/requests");
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        accessTokenFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertNull(request.getAttribute(AccessTokenFilter.CLAIMS_ATTRIBUTE));
+        assertNotNull(chain.getRequest());
+    }
+
+    private String token(Long userId, Instant expiresAt) {
+        String payload = AccessTokenVerifier.base64Url(("{\"sub\":\"" + userId + "\",\"role\":\"CLIENT\",\"exp\":"
+                + expiresAt.getEpochSecond() + "}").getBytes(StandardCharsets.UTF_8));
+        String content = AccessTokenVerifier.HEADER + "." + payload;
+        return content + "." + AccessTokenVerifier.base64Url(accessTokenVerifier.sign(content));
+    }
+}
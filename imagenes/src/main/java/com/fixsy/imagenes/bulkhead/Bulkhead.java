@@ -0,0 +1,105 @@
+package com.fixsy.imagenes.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite de concurrencia de un carril con cola acotada.
+ * Las peticiones por encima de maxConcurrent esperan (hasta maxQueue en espera y como máximo queueTimeout);
+ * el resto se rechaza de inmediato para responder 503 rápido en lugar de acumular latencia.
+ *
+ * Métricas (etiqueta lane): images.bulkhead.active, images.bulkhead.queued,
+ * images.bulkhead.rejected, images.bulkhead.wait e images.bulkhead.latency.
+ */
+public class Bulkhead {
+
+    private final BulkheadLane lane;
+    private final Semaphore permits;
+    private final int maxQueue;
+    private final Duration queueTimeout;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter rejected;
+    private final Timer waitTimer;
+    private final Timer latencyTimer;
+
+    public Bulkhead(BulkheadLane lane, int maxConcurrent, int maxQueue, Duration queueTimeout, MeterRegistry registry) {
+        this.lane = lane;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueue = maxQueue;
+        this.queueTimeout = queueTimeout;
+
+        String tag = lane.name().toLowerCase();
+        Gauge.builder("images.bulkhead.active", active, AtomicInteger::get).tag("lane", tag).register(registry);
+        Gauge.builder("images.bulkhead.queued", queued, AtomicInteger::get).tag("lane", tag).register(registry);
+        this.rejected = Counter.builder("images.bulkhead.rejected").tag("lane", tag).register(registry);
+        this.waitTimer = Timer.builder("images.bulkhead.wait").tag("lane", tag)
+                .publishPercentileHistogram().register(registry);
+        this.latencyTimer = Timer.builder("images.bulkhead.latency").tag("lane", tag)
+                .publishPercentileHistogram().register(registry);
+    }
+
+    public BulkheadLane getLane() {
+        return lane;
+    }
+
+    /**
+     * Intenta entrar al carril. Retorna false si la cola está llena o se agotó la espera.
+     */
+    public boolean tryEnter() {
+        if (permits.tryAcquire()) {
+            waitTimer.record(Duration.ZERO);
+            active.incrementAndGet();
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        active.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Sale del carril registrando el tiempo de ejecución de la petición
+     */
+    public void exit(long elapsedNanos) {
+        active.decrementAndGet();
+        permits.release();
+        latencyTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return (long) rejected.count();
+    }
+}
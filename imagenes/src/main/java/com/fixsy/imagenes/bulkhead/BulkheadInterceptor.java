@@ -0,0 +1,54 @@
+package com.fixsy.imagenes.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Map;
+
+/**
+ * Aplica el carril declarado con @UseBulkhead: ocupa un permiso antes del handler
+ * (la lectura del multipart es diferida, así que ocurre dentro del carril) y lo libera al terminar.
+ */
+public class BulkheadInterceptor implements HandlerInterceptor {
+
+    private static final String BULKHEAD_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".bulkhead";
+    private static final String START_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".start";
+
+    private final Map<BulkheadLane, Bulkhead> bulkheads;
+
+    public BulkheadInterceptor(Map<BulkheadLane, Bulkhead> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        UseBulkhead annotation = handlerMethod.getMethodAnnotation(UseBulkhead.class);
+        if (annotation == null) {
+            return true;
+        }
+        Bulkhead bulkhead = bulkheads.get(annotation.value());
+        if (!bulkhead.tryEnter()) {
+            response.setHeader("Retry-After", "1");
+            throw new RuntimeException("Servicio saturado: carril " + bulkhead.getLane().name().toLowerCase()
+                    + " sin capacidad, reintente más tarde");
+        }
+        request.setAttribute(BULKHEAD_ATTRIBUTE, bulkhead);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object bulkhead = request.getAttribute(BULKHEAD_ATTRIBUTE);
+        if (bulkhead != null) {
+            request.removeAttribute(BULKHEAD_ATTRIBUTE);
+            long start = (Long) request.getAttribute(START_ATTRIBUTE);
+            ((Bulkhead) bulkhead).exit(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.fixsy.imagenes.bulkhead;
+
+/**
+ * Carriles de ejecución independientes del servicio de imágenes.
+ * Cada carril tiene su propio límite de concurrencia y de cola, de modo que
+ * una ráfaga de subidas no aumenta la latencia de las lecturas.
+ */
+public enum BulkheadLane {
+    UPLOAD,
+    DOWNLOAD,
+    METADATA
+}
@@ -0,0 +1,15 @@
+package com.fixsy.imagenes.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asigna un endpoint a un carril (bulkhead). Lo aplica BulkheadInterceptor.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface UseBulkhead {
+    BulkheadLane value();
+}
@@ -0,0 +1,49 @@
+package com.fixsy.imagenes.config;
+
+import com.fixsy.imagenes.bulkhead.Bulkhead;
+import com.fixsy.imagenes.bulkhead.BulkheadInterceptor;
+import com.fixsy.imagenes.bulkhead.BulkheadLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Carriles (bulkheads) de subida, descarga y metadatos del controlador de imágenes.
+ * Las peticiones corren en hilos virtuales (spring.threads.virtual.enabled), por lo que el límite
+ * real de cada carril es su semáforo y no el pool de Tomcat.
+ */
+@Configuration
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    private final Map<BulkheadLane, Bulkhead> bulkheads = new EnumMap<>(BulkheadLane.class);
+
+    public BulkheadConfig(MeterRegistry meterRegistry,
+                          @Value("${app.bulkhead.upload.max-concurrent:8}") int uploadConcurrent,
+                          @Value("${app.bulkhead.upload.max-queue:16}") int uploadQueue,
+                          @Value("${app.bulkhead.download.max-concurrent:64}") int downloadConcurrent,
+                          @Value("${app.bulkhead.download.max-queue:128}") int downloadQueue,
+                          @Value("${app.bulkhead.metadata.max-concurrent:64}") int metadataConcurrent,
+                          @Value("${app.bulkhead.metadata.max-queue:128}") int metadataQueue,
+                          @Value("${app.bulkhead.queue-timeout:2s}") Duration queueTimeout) {
+        bulkheads.put(BulkheadLane.UPLOAD, new Bulkhead(BulkheadLane.UPLOAD, uploadConcurrent, uploadQueue, queueTimeout, meterRegistry));
+        bulkheads.put(BulkheadLane.DOWNLOAD, new Bulkhead(BulkheadLane.DOWNLOAD, downloadConcurrent, downloadQueue, queueTimeout, meterRegistry));
+        bulkheads.put(BulkheadLane.METADATA, new Bulkhead(BulkheadLane.METADATA, metadataConcurrent, metadataQueue, queueTimeout, meterRegistry));
+    }
+
+    @Bean
+    public BulkheadInterceptor bulkheadInterceptor() {
+        return new BulkheadInterceptor(bulkheads);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(bulkheadInterceptor()).addPathPatterns("/api/images/**", "/api/images");
+    }
+}
@@ -0,0 +1,61 @@
+package com.fixsy.imagenes.config;
+
+import com.fixsy.imagenes.sharding.ShardIds;
+import com.fixsy.imagenes.sharding.ShardRoutingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Datasource enrutado por shard (solo con app.sharding.enabled=true).
+ * Reemplaza al datasource autoconfigurado: JPA y los repositorios lo usan de forma transparente
+ * y ShardRouter decide el shard de cada operación.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardingProperties properties) {
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled=true requiere al menos un app.sharding.shards[n].url");
+        }
+        if (shards.size() > ShardIds.MAX_SHARDS) {
+            throw new IllegalStateException("Máximo " + ShardIds.MAX_SHARDS + " shards");
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            ShardingProperties.Shard shard = shards.get(i);
+            DataSource dataSource = DataSourceBuilder.create()
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            if (properties.isInitSchema()) {
+                new ResourceDatabasePopulator(new ClassPathResource("db/images-shard-schema.sql")).execute(dataSource);
+            }
+            targets.put(i, dataSource);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+
+        // La conexión física se obtiene en la primera sentencia, cuando el shard ya está fijado
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,43 @@
+package com.fixsy.imagenes.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de shards de imágenes (app.sharding.*).
+ * Con enabled=false se usa el datasource normal (spring.datasource) como único shard.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // ID de esta instancia del servicio (0-31), distinto en cada réplica. Obligatorio: sin él dos réplicas
+    // podrían generar el mismo ID (el perfil dev fija 0 para desarrollo local)
+    private Integer workerId;
+
+    // Nodos virtuales por shard en el anillo de hash consistente
+    private int virtualNodes = 64;
+
+    // Crear la tabla images en cada shard al iniciar (CREATE TABLE IF NOT EXISTS)
+    private boolean initSchema = true;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    public int shardCount() {
+        return enabled && !shards.isEmpty() ? shards.size() : 1;
+    }
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
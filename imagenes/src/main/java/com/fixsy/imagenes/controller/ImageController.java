@@ -1,7 +1,13 @@
 package com.fixsy.imagenes.controller;
 
+import com.fixsy.imagenes.bulkhead.BulkheadLane;
+import com.fixsy.imagenes.bulkhead.UseBulkhead;
+import com.fixsy.imagenes.dto.ImageBatchDTO;
 import com.fixsy.imagenes.dto.ImageDTO;
+import com.fixsy.imagenes.dto.SpriteMapDTO;
+import com.fixsy.imagenes.service.ImageRenditionService;
 import com.fixsy.imagenes.service.ImageService;
+import com.fixsy.imagenes.service.ImageSpriteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,6 +16,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -19,6 +26,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/images")
@@ -28,7 +36,14 @@ public class ImageController {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private ImageSpriteService imageSpriteService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
     @GetMapping
+    @UseBulkhead(BulkheadLane.METADATA)
     @Operation(summary = "Obtener todas las imágenes", description = "Retorna una lista con todas las imágenes registradas")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de imágenes obtenida exitosamente",
@@ -40,7 +55,45 @@ public class ImageController {
         return ResponseEntity.ok(imageService.getAllImages());
     }
 
+    @GetMapping("/batch")
+    @UseBulkhead(BulkheadLane.METADATA)
+    @Operation(summary = "Obtener metadatos de varias imágenes",
+            description = "Retorna los metadatos (sin datos Base64) de hasta 500 imágenes en una sola petición. " +
+                    "Los IDs inexistentes se informan en 'missing'")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Metadatos obtenidos exitosamente",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImageBatchDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Lista de IDs vacía o demasiado larga",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<ImageBatchDTO> getImagesBatch(
+            @Parameter(description = "IDs de las imágenes separados por coma", required = true, example = "1,2,3")
+            @RequestParam List<Long> ids) {
+        return ResponseEntity.ok(imageService.getImagesMetadata(ids));
+    }
+
+    @PostMapping("/batch")
+    @UseBulkhead(BulkheadLane.METADATA)
+    @Operation(summary = "Obtener metadatos de varias imágenes (POST)",
+            description = "Igual que GET /batch pero recibe los IDs en el cuerpo: {\"ids\": [1, 2, 3]}")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Metadatos obtenidos exitosamente",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImageBatchDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Lista de IDs vacía o demasiado larga",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<ImageBatchDTO> postImagesBatch(
+            @Parameter(description = "Objeto con la lista de IDs")
+            @RequestBody Map<String, List<Long>> request) {
+        return ResponseEntity.ok(imageService.getImagesMetadata(request.get("ids")));
+    }
+
     @GetMapping("/{id}")
+    @UseBulkhead(BulkheadLane.METADATA)
     @Operation(summary = "Obtener imagen por ID", description = "Retorna la información de una imagen específica")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Imagen encontrada exitosamente",
@@ -57,7 +110,11 @@ public class ImageController {
     }
 
     @GetMapping("/{id}/download")
-    @Operation(summary = "Descargar imagen", description = "Retorna el contenido binario de la imagen")
+    @UseBulkhead(BulkheadLane.DOWNLOAD)
+    @Operation(summary = "Descargar imagen",
+            description = "Retorna el contenido binario de la imagen en la variante más adecuada según el header Accept " +
+                    "(JPEG/PNG) y el ancho solicitado (parámetro w o client hints Width / Viewport-Width). " +
+                    "Las variantes se generan una vez y se reutilizan")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Imagen descargada exitosamente",
                 content = @Content(mediaType = "image/*")),
@@ -68,17 +125,28 @@ public class ImageController {
     })
     public ResponseEntity<byte[]> downloadImage(
             @Parameter(description = "ID de la imagen", required = true, example = "1")
-            @PathVariable Long id) {
-        byte[] imageData = imageService.getImageData(id);
-        String contentType = imageService.getImageContentType(id);
+            @PathVariable Long id,
+            @Parameter(description = "Ancho deseado en px", example = "320")
+            @RequestParam(value = "w", required = false) Integer width,
+            @Parameter(description = "Formato deseado (jpeg, png); tiene prioridad sobre Accept", example = "jpeg")
+            @RequestParam(value = "format", required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "Width", required = false) Integer widthHint,
+            @RequestHeader(value = "Viewport-Width", required = false) Integer viewportWidth) {
+        Integer targetWidth = width != null ? width : (widthHint != null ? widthHint : viewportWidth);
+        ImageRenditionService.Rendition rendition = imageRenditionService.getRendition(id, accept, format, targetWidth);
         
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(contentType));
+        headers.setContentType(MediaType.parseMediaType(rendition.contentType()));
+        // La respuesta depende de estos headers: las cachés deben distinguirlos
+        headers.setVary(List.of(HttpHeaders.ACCEPT, "Width", "Viewport-Width"));
+        headers.set("Accept-CH", "Width, Viewport-Width");
         
-        return new ResponseEntity<>(imageData, headers, HttpStatus.OK);
+        return new ResponseEntity<>(rendition.data(), headers, HttpStatus.OK);
     }
 
     @GetMapping("/user/{userId}")
+    @UseBulkhead(BulkheadLane.METADATA)
     @Operation(summary = "Obtener imágenes por usuario", description = "Retorna todas las imágenes de un usuario")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de imágenes del usuario obtenida exitosamente",
@@ -93,6 +161,7 @@ public class ImageController {
     }
 
     @GetMapping("/entity/{entityType}/{entityId}")
+    @UseBulkhead(BulkheadLane.METADATA)
     @Operation(summary = "Obtener imágenes por entidad", description = "Retorna todas las imágenes asociadas a una entidad")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de imágenes de la entidad obtenida exitosamente",
@@ -109,7 +178,74 @@ public class ImageController {
         return ResponseEntity.ok(imageService.getImagesByEntity(entityType, entityId));
     }
 
+    @GetMapping("/entity/{entityType}/{entityId}/sprite")
+    @UseBulkhead(BulkheadLane.DOWNLOAD)
+    @Operation(summary = "Obtener sprite de miniaturas por entidad",
+            description = "Retorna una única imagen JPEG con las miniaturas de todas las imágenes de la entidad. " +
+                    "Las coordenadas de cada miniatura se obtienen en /sprite/map, cuya spriteUrl incluye ?v=<versión>: " +
+                    "si esa versión ya no es la vigente se responde 404 y hay que volver a pedir el mapa")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Sprite generado exitosamente (ETag = versión)",
+                content = @Content(mediaType = "image/jpeg")),
+        @ApiResponse(responseCode = "304", description = "El sprite no cambió desde el ETag enviado"),
+        @ApiResponse(responseCode = "404", description = "La entidad no tiene imágenes o la versión pedida ya no es la vigente",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<byte[]> getEntitySprite(
+            @Parameter(description = "Tipo de entidad", required = true, example = "SERVICE_REQUEST",
+                    schema = @Schema(allowableValues = {"USER", "VEHICLE", "SERVICE_REQUEST"}))
+            @PathVariable String entityType,
+            @Parameter(description = "ID de la entidad", required = true, example = "1")
+            @PathVariable Long entityId,
+            @Parameter(description = "Versión del sprite indicada en el mapa", example = "9f86d081884c7d65")
+            @RequestParam(value = "v", required = false) String version,
+            @Parameter(description = "ETag de una respuesta anterior")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ImageSpriteService.SpriteImage sprite = imageSpriteService.getSpriteImage(entityType, entityId);
+        if (version != null && !version.equals(sprite.version())) {
+            // Servir otra versión en esta URL dejaría el mapa del cliente apuntando a miniaturas equivocadas
+            throw new RuntimeException("Versión del sprite no encontrada: las imágenes cambiaron, vuelva a pedir el mapa");
+        }
+
+        // Con ?v= la URL identifica el contenido y puede cachearse sin revalidar
+        CacheControl cacheControl = version != null
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+        if (ifNoneMatch != null && (ifNoneMatch.contains(sprite.etag()) || ifNoneMatch.strip().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(sprite.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(sprite.etag())
+                .cacheControl(cacheControl)
+                .body(sprite.data());
+    }
+
+    @GetMapping("/entity/{entityType}/{entityId}/sprite/map")
+    @UseBulkhead(BulkheadLane.METADATA)
+    @Operation(summary = "Obtener mapa del sprite por entidad",
+            description = "Retorna las coordenadas (x, y, ancho, alto) de cada imagen dentro del sprite de la entidad")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Mapa del sprite obtenido exitosamente",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = SpriteMapDTO.class))),
+        @ApiResponse(responseCode = "404", description = "La entidad no tiene imágenes",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<SpriteMapDTO> getEntitySpriteMap(
+            @Parameter(description = "Tipo de entidad", required = true, example = "SERVICE_REQUEST",
+                    schema = @Schema(allowableValues = {"USER", "VEHICLE", "SERVICE_REQUEST"}))
+            @PathVariable String entityType,
+            @Parameter(description = "ID de la entidad", required = true, example = "1")
+            @PathVariable Long entityId) {
+        return ResponseEntity.ok(imageSpriteService.getSpriteMap(entityType, entityId));
+    }
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @UseBulkhead(BulkheadLane.UPLOAD)
     @Operation(summary = "Subir imagen (multipart)", description = "Sube una nueva imagen como archivo multipart")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Imagen subida exitosamente",
@@ -133,6 +269,7 @@ public class ImageController {
     }
 
     @PostMapping("/base64")
+    @UseBulkhead(BulkheadLane.UPLOAD)
     @Operation(summary = "Subir imagen (Base64)", description = "Sube una nueva imagen en formato Base64. La imagen se guarda OBLIGATORIAMENTE en la BD como BLOB.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Imagen subida exitosamente",
@@ -184,6 +321,7 @@ public class ImageController {
     }
     
     @PostMapping
+    @UseBulkhead(BulkheadLane.UPLOAD)
     @Operation(summary = "Subir imagen (Base64 - Alias)", description = "Alias para /base64. Sube una nueva imagen en formato Base64 desde DTO.")
     public ResponseEntity<ImageDTO> uploadImageFromDTO(
             @RequestBody Map<String, Object> request) {
@@ -192,6 +330,7 @@ public class ImageController {
     }
 
     @DeleteMapping("/{id}")
+    @UseBulkhead(BulkheadLane.METADATA)
     @Operation(summary = "Eliminar imagen", description = "Elimina una imagen del sistema")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "204", description = "Imagen eliminada exitosamente"),
@@ -208,6 +347,7 @@ public class ImageController {
     }
 
     @DeleteMapping("/entity/{entityType}/{entityId}")
+    @UseBulkhead(BulkheadLane.METADATA)
     @Operation(summary = "Eliminar imágenes por entidad", description = "Elimina todas las imágenes asociadas a una entidad")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "204", description = "Imágenes eliminadas exitosamente"),
@@ -0,0 +1,20 @@
+package com.fixsy.imagenes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resultado de una consulta de metadatos por lote")
+public class ImageBatchDTO {
+    @Schema(description = "Metadatos de las imágenes encontradas (sin datos Base64), en el orden solicitado")
+    private List<ImageDTO> images;
+
+    @Schema(description = "IDs solicitados que no existen", example = "[42]")
+    private List<Long> missing;
+}
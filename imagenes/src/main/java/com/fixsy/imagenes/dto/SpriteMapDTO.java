@@ -0,0 +1,39 @@
+package com.fixsy.imagenes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Mapa de coordenadas de las miniaturas de una entidad dentro de su sprite")
+public class SpriteMapDTO {
+    @Schema(description = "Tipo de entidad", example = "SERVICE_REQUEST")
+    private String entityType;
+
+    @Schema(description = "ID de la entidad", example = "1")
+    private Long entityId;
+
+    @Schema(description = "URL del sprite", example = "/api/images/entity/SERVICE_REQUEST/1/sprite")
+    private String spriteUrl;
+
+    @Schema(description = "Versión del sprite (cambia cuando cambia el conjunto de imágenes)", example = "3f2a9c1b")
+    private String version;
+
+    @Schema(description = "Ancho total del sprite en px", example = "256")
+    private int width;
+
+    @Schema(description = "Alto total del sprite en px", example = "256")
+    private int height;
+
+    @Schema(description = "Coordenadas de cada miniatura, indexadas por ID de imagen")
+    private Map<Long, SpriteTileDTO> tiles;
+
+    @Schema(description = "IDs de imágenes que no pudieron decodificarse (no incluidas en el sprite)")
+    private List<Long> skipped;
+}
@@ -0,0 +1,24 @@
+package com.fixsy.imagenes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Posición de una miniatura dentro del sprite")
+public class SpriteTileDTO {
+    @Schema(description = "Coordenada X (px) de la miniatura", example = "0")
+    private int x;
+
+    @Schema(description = "Coordenada Y (px) de la miniatura", example = "128")
+    private int y;
+
+    @Schema(description = "Ancho (px) de la miniatura", example = "128")
+    private int width;
+
+    @Schema(description = "Alto (px) de la miniatura", example = "96")
+    private int height;
+}
@@ -24,6 +24,8 @@ public class GlobalExceptionHandler {
                 status = HttpStatus.NOT_FOUND;
             } else if (message.contains("vacío") || message.contains("inválido") || message.contains("requerido")) {
                 status = HttpStatus.BAD_REQUEST;
+            } else if (message.contains("saturado")) {
+                status = HttpStatus.SERVICE_UNAVAILABLE;
             } else {
                 status = HttpStatus.INTERNAL_SERVER_ERROR;
             }
@@ -1,5 +1,6 @@
 package com.fixsy.imagenes.model;
 
+import com.fixsy.imagenes.sharding.ShardedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -8,13 +9,17 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_user", columnList = "user_id"),
+        @Index(name = "idx_images_entity", columnList = "entity_type, entity_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Image {
+    // ID con el shard codificado (ver ShardIds): permite enrutar findById sin consultar todos los shards
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ShardedId
     private Long id;
 
     @Column(name = "file_name", nullable = false)
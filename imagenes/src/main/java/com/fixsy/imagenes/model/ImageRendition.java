@@ -0,0 +1,55 @@
+package com.fixsy.imagenes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Variante derivada de una imagen (otro formato y/o ancho), generada una sola vez y reutilizada.
+ * Vive en el mismo shard que su imagen original.
+ */
+@Entity
+@Table(name = "image_renditions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_image_rendition", columnNames = {"image_id", "content_type", "width"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageRendition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "image_id", nullable = false)
+    private Long imageId;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "width", nullable = false)
+    private Integer width; // Ancho solicitado (bucket); 0 = tamaño original
+
+    @Column(name = "actual_width")
+    private Integer actualWidth;
+
+    @Column(name = "actual_height")
+    private Integer actualHeight;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Lob
+    @Column(name = "data", columnDefinition = "LONGBLOB", nullable = false)
+    private byte[] data;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
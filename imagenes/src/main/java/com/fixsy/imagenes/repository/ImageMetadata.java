@@ -0,0 +1,18 @@
+package com.fixsy.imagenes.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección con los metadatos de una imagen (sin la columna image_data)
+ */
+public interface ImageMetadata {
+    Long getId();
+    String getFileName();
+    String getOriginalName();
+    String getContentType();
+    Long getFileSize();
+    Long getUserId();
+    String getEntityType();
+    Long getEntityId();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,25 @@
+package com.fixsy.imagenes.repository;
+
+import com.fixsy.imagenes.model.ImageRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ImageRenditionRepository extends JpaRepository<ImageRendition, Long> {
+    Optional<ImageRendition> findByImageIdAndContentTypeAndWidth(Long imageId, String contentType, Integer width);
+
+    @Transactional
+    void deleteByImageId(Long imageId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageRendition r WHERE r.imageId IN " +
+            "(SELECT i.id FROM Image i WHERE i.entityType = :entityType AND i.entityId = :entityId)")
+    void deleteByEntity(@Param("entityType") String entityType, @Param("entityId") Long entityId);
+}
@@ -2,8 +2,12 @@ package com.fixsy.imagenes.repository;
 
 import com.fixsy.imagenes.model.Image;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,6 +15,15 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByUserId(Long userId);
     List<Image> findByEntityTypeAndEntityId(String entityType, Long entityId);
     List<Image> findByUserIdAndEntityType(Long userId, String entityType);
+
+    // Metadatos de varias imágenes en una sola consulta IN, sin leer los BLOB
+    List<ImageMetadata> findMetadataByIdIn(Collection<Long> ids);
+
+    // Transaccional por sí mismo: con sharding se ejecuta una vez por shard, cada una en su propia conexión
+    @Transactional
     void deleteByEntityTypeAndEntityId(String entityType, Long entityId);
-}
 
+    // Solo IDs (sin BLOB): sirve como "firma" barata del conjunto de imágenes de una entidad
+    @Query("SELECT i.id FROM Image i WHERE i.entityType = :entityType AND i.entityId = :entityId ORDER BY i.id")
+    List<Long> findIdsByEntity(@Param("entityType") String entityType, @Param("entityId") Long entityId);
+}
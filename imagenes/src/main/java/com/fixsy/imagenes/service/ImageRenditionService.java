@@ -0,0 +1,269 @@
+package com.fixsy.imagenes.service;
+
+import com.fixsy.imagenes.model.Image;
+import com.fixsy.imagenes.model.ImageRendition;
+import com.fixsy.imagenes.repository.ImageMetadata;
+import com.fixsy.imagenes.repository.ImageRenditionRepository;
+import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Selecciona la mejor variante almacenada de una imagen según Accept y el ancho solicitado
+ * (parámetro w o client hints Width / Viewport-Width).
+ *
+ * Las variantes que faltan se generan con ImageIO una sola vez y se persisten en image_renditions;
+ * las peticiones concurrentes por la misma variante esperan (sin monitor, para no fijar el hilo portador
+ * de los hilos virtuales) el resultado de la primera en lugar de repetir el trabajo.
+ * ImageIO solo codifica JPEG y PNG, por lo que esas son las conversiones disponibles; los originales
+ * que no puede decodificar se recuerdan para no intentarlo en cada petición.
+ */
+@Service
+public class ImageRenditionService {
+
+    // Anchos permitidos: se redondea hacia arriba para acotar la cantidad de variantes por imagen
+    static final int[] WIDTH_BUCKETS = {160, 320, 640, 960, 1280, 1920};
+
+    private static final List<String> ENCODABLE_TYPES = List.of(MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE);
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageRenditionRepository renditionRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    // Máximo de imágenes no decodificables recordadas (las imágenes no cambian: el resultado no caduca)
+    private static final int MAX_UNDECODABLE = 10_000;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Rendition>> inFlight = new ConcurrentHashMap<>();
+
+    private final Set<Long> undecodable = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > MAX_UNDECODABLE;
+                }
+            }));
+
+    /**
+     * Contenido a enviar al cliente
+     */
+    public record Rendition(byte[] data, String contentType) {
+    }
+
+    /**
+     * Obtiene la variante más adecuada de la imagen
+     *
+     * @param accept valor del header Accept (puede ser null)
+     * @param format formato explícito (jpeg, png); tiene prioridad sobre Accept
+     * @param width  ancho deseado en px (null = original)
+     */
+    public Rendition getRendition(Long imageId, String accept, String format, Integer width) {
+        int shard = shardRouter.shardForImage(imageId);
+        ImageMetadata metadata = shardRouter.onShard(shard, () -> imageRepository.findMetadataByIdIn(List.of(imageId)))
+                .stream().findFirst()
+                .orElseThrow(() -> new RuntimeException("Imagen no encontrada"));
+
+        String originalType = metadata.getContentType();
+        int bucket = widthBucket(width);
+        String targetType = chooseContentType(originalType, accept, format, bucket > 0);
+
+        if (targetType.equals(originalType) && bucket == 0) {
+            return new Rendition(loadOriginal(shard, imageId).getImageData(), originalType);
+        }
+
+        if (undecodable.contains(imageId)) {
+            // ImageIO ya falló con este original: se entrega sin convertir y sin volver a decodificarlo
+            return new Rendition(loadOriginal(shard, imageId).getImageData(), originalType);
+        }
+
+        return shardRouter.onShard(shard, () -> {
+            Optional<ImageRendition> stored = renditionRepository.findByImageIdAndContentTypeAndWidth(imageId, targetType, bucket);
+            if (stored.isPresent()) {
+                return new Rendition(stored.get().getData(), targetType);
+            }
+
+            String key = imageId + ":" + targetType + ":" + bucket;
+            CompletableFuture<Rendition> mine = new CompletableFuture<>();
+            CompletableFuture<Rendition> inProgress = inFlight.putIfAbsent(key, mine);
+            if (inProgress != null) {
+                return await(inProgress);
+            }
+            try {
+                // Otra petición pudo terminar y guardarla entre la primera consulta y el registro en inFlight
+                Rendition rendition = renditionRepository.findByImageIdAndContentTypeAndWidth(imageId, targetType, bucket)
+                        .map(existing -> new Rendition(existing.getData(), targetType))
+                        .orElseGet(() -> generate(loadOriginal(shard, imageId), targetType, bucket));
+                mine.complete(rendition);
+                return rendition;
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        });
+    }
+
+    private static Rendition await(CompletableFuture<Rendition> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Redondea el ancho al siguiente bucket; 0 si no se pidió ancho
+     */
+    static int widthBucket(Integer width) {
+        if (width == null || width <= 0) {
+            return 0;
+        }
+        for (int bucket : WIDTH_BUCKETS) {
+            if (width <= bucket) {
+                return bucket;
+            }
+        }
+        return WIDTH_BUCKETS[WIDTH_BUCKETS.length - 1];
+    }
+
+    /**
+     * Elige el tipo de contenido: formato explícito, o el de mayor calidad (q) en Accept
+     * entre el original, JPEG y PNG. En empate se prefiere el original (no requiere conversión).
+     */
+    static String chooseContentType(String originalType, String accept, String format, boolean resizing) {
+        if (format != null && !format.isBlank()) {
+            return switch (format.toLowerCase()) {
+                case "jpg", "jpeg" -> MediaType.IMAGE_JPEG_VALUE;
+                case "png" -> MediaType.IMAGE_PNG_VALUE;
+                default -> throw new RuntimeException("Formato inválido: solo se admite jpeg o png");
+            };
+        }
+
+        List<String> candidates = new ArrayList<>();
+        // Si hay que redimensionar y el original no se puede codificar (p. ej. WebP), no es candidato
+        if (!resizing || ENCODABLE_TYPES.contains(originalType)) {
+            candidates.add(originalType);
+        }
+        ENCODABLE_TYPES.stream().filter(type -> !candidates.contains(type)).forEach(candidates::add);
+
+        List<MediaType> accepted;
+        try {
+            accepted = accept == null || accept.isBlank() ? List.of(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            accepted = List.of(MediaType.ALL);
+        }
+
+        String best = candidates.get(0);
+        double bestQuality = -1;
+        for (String candidate : candidates) {
+            MediaType candidateType = MediaType.parseMediaType(candidate);
+            double quality = 0;
+            for (MediaType mediaType : accepted) {
+                if (mediaType.includes(candidateType)) {
+                    quality = Math.max(quality, mediaType.getQualityValue());
+                }
+            }
+            if (quality > bestQuality) {
+                best = candidate;
+                bestQuality = quality;
+            }
+        }
+        return bestQuality > 0 ? best : candidates.get(0);
+    }
+
+    private Image loadOriginal(int shard, Long imageId) {
+        Image image = shardRouter.onShard(shard, () -> imageRepository.findById(imageId))
+                .orElseThrow(() -> new RuntimeException("Imagen no encontrada"));
+        if (image.getImageData() == null || image.getImageData().length == 0) {
+            throw new RuntimeException("Los datos de la imagen no están disponibles");
+        }
+        return image;
+    }
+
+    private Rendition generate(Image original, String targetType, int bucket) {
+        BufferedImage source;
+        try {
+            source = ImageIO.read(new ByteArrayInputStream(original.getImageData()));
+        } catch (IOException e) {
+            source = null;
+        }
+        if (source == null) {
+            // Formato que ImageIO no puede leer: se entrega el original sin convertir
+            undecodable.add(original.getId());
+            return new Rendition(original.getImageData(), original.getContentType());
+        }
+
+        int width = bucket > 0 ? Math.min(bucket, source.getWidth()) : source.getWidth();
+        int height = Math.max(1, (int) Math.round(source.getHeight() * (width / (double) source.getWidth())));
+        boolean png = MediaType.IMAGE_PNG_VALUE.equals(targetType);
+
+        BufferedImage target = new BufferedImage(width, height, png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            if (!png) {
+                // JPEG no admite transparencia
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        byte[] data;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(target, png ? "png" : "jpg", out);
+            data = out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Error al generar la variante de la imagen: " + e.getMessage());
+        }
+
+        ImageRendition rendition = new ImageRendition();
+        rendition.setImageId(original.getId());
+        rendition.setContentType(targetType);
+        rendition.setWidth(bucket);
+        rendition.setActualWidth(width);
+        rendition.setActualHeight(height);
+        rendition.setFileSize((long) data.length);
+        rendition.setData(data);
+        try {
+            renditionRepository.save(rendition);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia la guardó primero: el contenido es equivalente
+        }
+        return new Rendition(data, targetType);
+    }
+}
@@ -1,33 +1,61 @@
 package com.fixsy.imagenes.service;
 
+import com.fixsy.imagenes.dto.ImageBatchDTO;
 import com.fixsy.imagenes.dto.ImageDTO;
 import com.fixsy.imagenes.model.Image;
+import com.fixsy.imagenes.repository.ImageMetadata;
+import com.fixsy.imagenes.repository.ImageRenditionRepository;
 import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
  * Servicio para gestión de imágenes
  * Simplificado siguiendo el patrón del microservicio de solicitudes
+ *
+ * Cada operación se enruta a su shard con ShardRouter: por userId al crear, por ID de imagen en las
+ * operaciones puntuales y a todos los shards en las consultas globales y por usuario. Las imágenes
+ * de un usuario pueden estar en más de un shard: las anteriores al sharding quedaron en el shard 0
+ * y agregar un shard al anillo mueve a parte de los usuarios sin mover sus filas.
  */
 @Service
 public class ImageService {
 
+    // Máximo de IDs por consulta de lote (acota el tamaño de la cláusula IN)
+    public static final int MAX_BATCH_SIZE = 500;
+
     @Autowired
     private ImageRepository imageRepository;
 
+    @Autowired
+    private ImageRenditionRepository renditionRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Obtiene todas las imágenes
      */
     public List<ImageDTO> getAllImages() {
-        return imageRepository.findAll().stream()
+        return shardRouter.onAllShards(imageRepository::findAll).stream()
+                .sorted(Comparator.comparing(Image::getId))
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
@@ -36,8 +64,7 @@ public class ImageService {
      * Obtiene una imagen por su ID
      */
     public ImageDTO getImageById(Long id) {
-        Image image = imageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Imagen no encontrada"));
+        Image image = findImage(id);
         ImageDTO dto = convertToDTO(image);
         // Incluir datos base64 si están disponibles
         if (image.getImageData() != null && image.getImageData().length > 0) {
@@ -46,12 +73,48 @@ public class ImageService {
         return dto;
     }
 
+    /**
+     * Obtiene los metadatos (sin Base64) de varias imágenes con una consulta IN por shard.
+     * Los IDs inexistentes se reportan en "missing" en lugar de producir un error.
+     */
+    public ImageBatchDTO getImagesMetadata(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RuntimeException("Al menos un ID de imagen es requerido");
+        }
+        LinkedHashSet<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("Número de IDs inválido: máximo " + MAX_BATCH_SIZE + " por petición");
+        }
+
+        // Agrupar por shard (codificado en el ID) para hacer una sola consulta por shard
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        for (Long id : requested) {
+            idsByShard.computeIfAbsent(shardRouter.shardForImage(id), shard -> new ArrayList<>()).add(id);
+        }
+        Map<Long, ImageDTO> found = new HashMap<>();
+        idsByShard.forEach((shard, shardIds) ->
+                shardRouter.onShard(shard, () -> imageRepository.findMetadataByIdIn(shardIds))
+                        .forEach(metadata -> found.put(metadata.getId(), convertToDTO(metadata))));
+
+        List<ImageDTO> images = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            ImageDTO dto = found.get(id);
+            if (dto != null) {
+                images.add(dto);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new ImageBatchDTO(images, missing);
+    }
+
     /**
      * Obtiene el contenido binario de una imagen
      */
     public byte[] getImageData(Long id) {
-        Image image = imageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Imagen no encontrada"));
+        Image image = findImage(id);
         
         if (image.getImageData() == null || image.getImageData().length == 0) {
             throw new RuntimeException("Los datos de la imagen no están disponibles");
@@ -64,16 +127,16 @@ public class ImageService {
      * Obtiene el tipo de contenido de una imagen
      */
     public String getImageContentType(Long id) {
-        Image image = imageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Imagen no encontrada"));
+        Image image = findImage(id);
         return image.getContentType();
     }
 
     /**
-     * Obtiene imágenes por usuario
+     * Obtiene imágenes por usuario, de todos los shards (ver nota de la clase)
      */
     public List<ImageDTO> getImagesByUserId(Long userId) {
-        return imageRepository.findByUserId(userId).stream()
+        return shardRouter.onAllShards(() -> imageRepository.findByUserId(userId)).stream()
+                .sorted(Comparator.comparing(Image::getId))
                 .map(image -> {
                     ImageDTO dto = convertToDTO(image);
                     if (image.getImageData() != null && image.getImageData().length > 0) {
@@ -88,7 +151,8 @@ public class ImageService {
      * Obtiene imágenes por entidad (tipo e ID)
      */
     public List<ImageDTO> getImagesByEntity(String entityType, Long entityId) {
-        return imageRepository.findByEntityTypeAndEntityId(entityType, entityId).stream()
+        return shardRouter.onAllShards(() -> imageRepository.findByEntityTypeAndEntityId(entityType, entityId)).stream()
+                .sorted(Comparator.comparing(Image::getId))
                 .map(image -> {
                     ImageDTO dto = convertToDTO(image);
                     if (image.getImageData() != null && image.getImageData().length > 0) {
@@ -126,8 +190,7 @@ public class ImageService {
             // ⚠️ CRÍTICO: Guardar imagen como BLOB en la BD (obligatorio)
             image.setImageData(file.getBytes());
 
-            Image savedImage = imageRepository.save(image);
-            imageRepository.flush(); // Forzar persistencia inmediata
+            Image savedImage = saveOnUserShard(image);
             
             return convertToDTO(savedImage);
 
@@ -192,8 +255,7 @@ public class ImageService {
             image.setImageData(imageBytes);
 
             // Guardar en BD - SIMPLE Y DIRECTO (como ServiceRequestService.createRequest)
-            Image savedImage = imageRepository.save(image);
-            imageRepository.flush(); // Forzar persistencia inmediata
+            Image savedImage = saveOnUserShard(image);
             
             return convertToDTO(savedImage);
 
@@ -209,18 +271,41 @@ public class ImageService {
      */
     @Transactional
     public void deleteImage(Long id) {
-        if (!imageRepository.existsById(id)) {
-            throw new RuntimeException("Imagen no encontrada");
-        }
-        imageRepository.deleteById(id);
+        shardRouter.onShard(shardRouter.shardForImage(id), () -> {
+            if (!imageRepository.existsById(id)) {
+                throw new RuntimeException("Imagen no encontrada");
+            }
+            renditionRepository.deleteByImageId(id);
+            imageRepository.deleteById(id);
+        });
     }
 
     /**
-     * Elimina todas las imágenes de una entidad
+     * Elimina todas las imágenes de una entidad (y sus variantes) en todos los shards.
+     * En cada shard variantes e imágenes se borran en una sola transacción; entre shards no hay atomicidad
+     * (repetir la operación completa lo que haya quedado pendiente)
      */
-    @Transactional
     public void deleteImagesByEntity(String entityType, Long entityId) {
-        imageRepository.deleteByEntityTypeAndEntityId(entityType, entityId);
+        shardRouter.forEachShard(() -> transactionTemplate.executeWithoutResult(status -> {
+            renditionRepository.deleteByEntity(entityType, entityId);
+            imageRepository.deleteByEntityTypeAndEntityId(entityType, entityId);
+        }));
+    }
+
+    private Image findImage(Long id) {
+        return shardRouter.onShard(shardRouter.shardForImage(id), () -> imageRepository.findById(id))
+                .orElseThrow(() -> new RuntimeException("Imagen no encontrada"));
+    }
+
+    /**
+     * Guarda la imagen en el shard de su usuario; el ID se genera con ese shard codificado
+     */
+    private Image saveOnUserShard(Image image) {
+        return shardRouter.onShard(shardRouter.shardForUser(image.getUserId()), () -> {
+            Image savedImage = imageRepository.save(image);
+            imageRepository.flush(); // Forzar persistencia inmediata (y fijar la conexión del shard)
+            return savedImage;
+        });
     }
 
     private void validateFile(MultipartFile file) {
@@ -273,4 +358,19 @@ public class ImageService {
         dto.setCreatedAt(image.getCreatedAt());
         return dto;
     }
+
+    private ImageDTO convertToDTO(ImageMetadata metadata) {
+        ImageDTO dto = new ImageDTO();
+        dto.setId(metadata.getId());
+        dto.setFileName(metadata.getFileName());
+        dto.setOriginalName(metadata.getOriginalName());
+        dto.setContentType(metadata.getContentType());
+        dto.setFileSize(metadata.getFileSize());
+        dto.setUserId(metadata.getUserId());
+        dto.setEntityType(metadata.getEntityType());
+        dto.setEntityId(metadata.getEntityId());
+        dto.setDownloadUrl("/api/images/" + metadata.getId() + "/download");
+        dto.setCreatedAt(metadata.getCreatedAt());
+        return dto;
+    }
 }
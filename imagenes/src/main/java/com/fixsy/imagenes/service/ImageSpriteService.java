@@ -0,0 +1,249 @@
+package com.fixsy.imagenes.service;
+
+import com.fixsy.imagenes.dto.SpriteMapDTO;
+import com.fixsy.imagenes.dto.SpriteTileDTO;
+import com.fixsy.imagenes.model.Image;
+import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Genera "sprites" (hojas de contacto) con las miniaturas de todas las imágenes de una entidad,
+ * para que una galería se cargue con una sola petición en lugar de N descargas.
+ *
+ * Los sprites se generan bajo demanda con ImageIO/Java2D y se guardan en una caché LRU.
+ * La validez se comprueba con la lista de IDs de la entidad (consulta sin BLOB):
+ * si cambia el conjunto de imágenes, el sprite se regenera. Las imágenes no se modifican,
+ * así que la versión (hash de los IDs) identifica el contenido: el mapa apunta a ?v=version
+ * y el sprite la envía como ETag, para que mapa y sprite correspondan siempre a la misma versión.
+ * Varias peticiones concurrentes sin caché para la misma versión esperan a una sola generación.
+ */
+@Service
+public class ImageSpriteService {
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${app.sprite.tile-size:128}")
+    private int tileSize = 128;
+
+    @Value("${app.sprite.cache-size:200}")
+    private int cacheSize = 200;
+
+    private final Map<String, Sprite> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Sprite> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    private final ConcurrentHashMap<String, CompletableFuture<Sprite>> building = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene el sprite (JPEG) de una entidad y su versión, generándolo si no existe o quedó desactualizado
+     */
+    public SpriteImage getSpriteImage(String entityType, Long entityId) {
+        Sprite sprite = getSprite(entityType, entityId);
+        return new SpriteImage(sprite.version(), sprite.data());
+    }
+
+    /**
+     * Obtiene el mapa de coordenadas de las miniaturas dentro del sprite
+     */
+    public SpriteMapDTO getSpriteMap(String entityType, Long entityId) {
+        Sprite sprite = getSprite(entityType, entityId);
+        return new SpriteMapDTO(entityType, entityId,
+                "/api/images/entity/" + entityType + "/" + entityId + "/sprite?v=" + sprite.version(),
+                sprite.version(), sprite.width(), sprite.height(), sprite.tiles(), sprite.skipped());
+    }
+
+    private Sprite getSprite(String entityType, Long entityId) {
+        String key = cacheKey(entityType, entityId);
+        List<Long> ids = shardRouter.onAllShards(() -> imageRepository.findIdsByEntity(entityType, entityId));
+        ids.sort(Comparator.naturalOrder());
+        if (ids.isEmpty()) {
+            cache.remove(key);
+            throw new RuntimeException("Imágenes no encontradas para la entidad");
+        }
+
+        Sprite cached = cache.get(key);
+        if (cached != null && cached.imageIds().equals(ids)) {
+            return cached;
+        }
+
+        // Una sola generación por entidad y versión; las demás peticiones esperan su resultado
+        String version = versionOf(ids);
+        String buildKey = key + "@" + version;
+        CompletableFuture<Sprite> mine = new CompletableFuture<>();
+        CompletableFuture<Sprite> inProgress = building.putIfAbsent(buildKey, mine);
+        if (inProgress != null) {
+            return await(inProgress);
+        }
+        try {
+            List<Image> images = shardRouter.onAllShards(() -> imageRepository.findByEntityTypeAndEntityId(entityType, entityId));
+            images.sort(Comparator.comparing(Image::getId));
+            Sprite sprite = buildSprite(images, ids, version);
+            cache.put(key, sprite);
+            mine.complete(sprite);
+            return sprite;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(buildKey, mine);
+        }
+    }
+
+    private static Sprite await(CompletableFuture<Sprite> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Versión del sprite: SHA-256 (64 bits) de los IDs ordenados
+     */
+    static String versionOf(List<Long> ids) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            for (Long id : ids) {
+                digest.update(buffer.clear().putLong(id).array());
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private Sprite buildSprite(List<Image> images, List<Long> ids, String version) {
+        List<Long> skipped = new ArrayList<>();
+        Map<Long, BufferedImage> thumbnails = new LinkedHashMap<>();
+        for (Image image : images) {
+            BufferedImage thumbnail = decodeThumbnail(image.getImageData());
+            if (thumbnail == null) {
+                skipped.add(image.getId());
+            } else {
+                thumbnails.put(image.getId(), thumbnail);
+            }
+        }
+        if (thumbnails.isEmpty()) {
+            throw new RuntimeException("Formato inválido: ninguna imagen de la entidad pudo decodificarse");
+        }
+
+        int columns = (int) Math.ceil(Math.sqrt(thumbnails.size()));
+        int rows = (int) Math.ceil(thumbnails.size() / (double) columns);
+        int width = columns * tileSize;
+        int height = rows * tileSize;
+
+        BufferedImage sheet = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = sheet.createGraphics();
+        Map<Long, SpriteTileDTO> tiles = new LinkedHashMap<>();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            int index = 0;
+            for (Map.Entry<Long, BufferedImage> entry : thumbnails.entrySet()) {
+                BufferedImage thumbnail = entry.getValue();
+                int x = (index % columns) * tileSize;
+                int y = (index / columns) * tileSize;
+                g.drawImage(thumbnail, x, y, null);
+                tiles.put(entry.getKey(), new SpriteTileDTO(x, y, thumbnail.getWidth(), thumbnail.getHeight()));
+                index++;
+            }
+        } finally {
+            g.dispose();
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(sheet, "jpg", out);
+            return new Sprite(List.copyOf(ids), version, out.toByteArray(), width, height, tiles, skipped);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al generar el sprite: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodifica la imagen y la escala para que quepa en una celda (manteniendo proporción).
+     * Retorna null si ImageIO no soporta el formato (p. ej. WebP).
+     */
+    private BufferedImage decodeThumbnail(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        BufferedImage source;
+        try {
+            source = ImageIO.read(new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            return null;
+        }
+        if (source == null) {
+            return null;
+        }
+
+        double scale = Math.min(1.0, Math.min(tileSize / (double) source.getWidth(), tileSize / (double) source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return thumbnail;
+    }
+
+    private String cacheKey(String entityType, Long entityId) {
+        return entityType + ":" + entityId;
+    }
+
+    public record SpriteImage(String version, byte[] data) {
+
+        public String etag() {
+            return "\"" + version + "\"";
+        }
+    }
+
+    private record Sprite(List<Long> imageIds, String version, byte[] data, int width, int height,
+                          Map<Long, SpriteTileDTO> tiles, List<Long> skipped) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.fixsy.imagenes.sharding;
+
+/**
+ * Shard activo para el hilo actual.
+ * Lo lee ShardRoutingDataSource al obtener la conexión y ShardIdGenerator al generar IDs.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Shard activo, o 0 (shard por defecto) si no se ha fijado ninguno
+     */
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    static Integer get() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
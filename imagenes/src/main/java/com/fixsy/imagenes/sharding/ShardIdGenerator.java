@@ -0,0 +1,16 @@
+package com.fixsy.imagenes.sharding;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Generador Hibernate que asigna IDs con el shard activo (ShardContext) codificado.
+ * Al no depender de IDENTITY, el INSERT no necesita ir a la BD para conocer el ID.
+ */
+public class ShardIdGenerator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return ShardIds.nextId(ShardContext.current());
+    }
+}
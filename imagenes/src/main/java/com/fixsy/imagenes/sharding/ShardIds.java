@@ -0,0 +1,110 @@
+package com.fixsy.imagenes.sharding;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * IDs de imagen que codifican el shard donde vive la fila, para enrutar por ID sin consultar ningún índice.
+ *
+ * Formato (53 bits, seguro para JavaScript):
+ * [1 bit marca][31 bits segundos desde 2024-01-01][5 bits instancia][6 bits shard][10 bits secuencia]
+ *
+ * El bit de marca (2^52) distingue los IDs nuevos de los heredados (IDENTITY), que viven en el shard 0:
+ * un ID heredado nunca llega a 2^52, así que no se infiere el formato por la magnitud del valor.
+ *
+ * La exclusión usa un ReentrantLock y no un monitor: un hilo virtual que espera el lock, o que duerme
+ * porque se agotó la secuencia del segundo, libera su hilo portador.
+ */
+public final class ShardIds {
+
+    public static final int MAX_SHARDS = 64;
+    public static final int MAX_WORKERS = 32;
+
+    private static final long EPOCH_SECONDS = 1704067200L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 10;
+    private static final int SHARD_BITS = 6;
+    private static final int WORKER_BITS = 5;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int SHARD_SHIFT = SEQUENCE_BITS;
+    private static final int WORKER_SHIFT = SEQUENCE_BITS + SHARD_BITS;
+    private static final int TIME_SHIFT = SEQUENCE_BITS + SHARD_BITS + WORKER_BITS;
+    private static final int TIME_BITS = 31;
+    private static final long TAG = 1L << (TIME_SHIFT + TIME_BITS);
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static volatile int workerId = 0;
+    private static long lastSecond = -1;
+    private static long sequence = 0;
+
+    private ShardIds() {
+    }
+
+    /**
+     * Fija el ID de instancia (debe ser distinto en cada réplica del servicio)
+     */
+    public static void setWorkerId(int id) {
+        if (id < 0 || id >= MAX_WORKERS) {
+            throw new IllegalArgumentException("El worker-id debe estar entre 0 y " + (MAX_WORKERS - 1));
+        }
+        workerId = id;
+    }
+
+    public static long nextId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard fuera de rango: " + shard);
+        }
+        LOCK.lock();
+        try {
+            long second = currentSecond();
+            if (second < lastSecond) {
+                // Reloj retrocedió: seguir con el último segundo emitido para no repetir IDs
+                second = lastSecond;
+            }
+            if (second == lastSecond) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    // Secuencia agotada en este segundo: esperar al siguiente
+                    second = waitNextSecond(lastSecond);
+                }
+            } else {
+                sequence = 0;
+            }
+            lastSecond = second;
+            return TAG
+                    | (second << TIME_SHIFT)
+                    | ((long) workerId << WORKER_SHIFT)
+                    | ((long) shard << SHARD_SHIFT)
+                    | sequence;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Shard codificado en el ID (0 para IDs heredados, sin el bit de marca)
+     */
+    public static int shardOf(long id) {
+        if ((id & TAG) == 0) {
+            return 0;
+        }
+        return (int) ((id >>> SHARD_SHIFT) & ((1L << SHARD_BITS) - 1));
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000 - EPOCH_SECONDS;
+    }
+
+    private static long waitNextSecond(long last) {
+        long second = currentSecond();
+        while (second <= last) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido esperando un nuevo ID", e);
+            }
+            second = currentSecond();
+        }
+        return second;
+    }
+}
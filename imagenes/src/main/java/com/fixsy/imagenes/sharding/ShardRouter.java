@@ -0,0 +1,116 @@
+package com.fixsy.imagenes.sharding;
+
+import com.fixsy.imagenes.config.ShardingProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Decide en qué shard se ejecuta cada operación sobre imágenes:
+ * - por userId (hash consistente) al crear o listar imágenes de un usuario
+ * - por ID de imagen (el shard va codificado en el ID)
+ * - en todos los shards en paralelo para consultas globales (fan-out + merge)
+ *
+ * Las operaciones deben ejecutar su primera sentencia SQL dentro de onShard(...),
+ * ya que la conexión se enruta en ese momento.
+ */
+@Component
+public class ShardRouter {
+
+    private final ConsistentHashRing ring;
+    private final ExecutorService fanOutExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Router de un único shard (sin sharding configurado)
+     */
+    public ShardRouter() {
+        this.ring = new ConsistentHashRing(1, 1);
+    }
+
+    @Autowired
+    public ShardRouter(ShardingProperties properties) {
+        this.ring = new ConsistentHashRing(properties.shardCount(), properties.getVirtualNodes());
+        if (properties.getWorkerId() == null) {
+            throw new IllegalStateException("app.sharding.worker-id es obligatorio y debe ser distinto en cada réplica "
+                    + "(0-" + (ShardIds.MAX_WORKERS - 1) + "); en desarrollo local use el perfil dev");
+        }
+        ShardIds.setWorkerId(properties.getWorkerId());
+    }
+
+    public int shardCount() {
+        return ring.shardCount();
+    }
+
+    public int shardForUser(Long userId) {
+        return userId != null ? ring.shardFor(userId) : 0;
+    }
+
+    public int shardForImage(Long imageId) {
+        int shard = imageId != null ? ShardIds.shardOf(imageId) : 0;
+        return shard < shardCount() ? shard : 0;
+    }
+
+    /**
+     * Ejecuta la operación con el shard indicado como activo
+     */
+    public <T> T onShard(int shard, Supplier<T> operation) {
+        Integer previous = ShardContext.get();
+        ShardContext.set(shard);
+        try {
+            return operation.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public void onShard(int shard, Runnable operation) {
+        onShard(shard, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ejecuta la consulta en todos los shards en paralelo y concatena los resultados.
+     * Cada shard usa su propia conexión/transacción, por lo que no debe llamarse dentro de una transacción.
+     */
+    public <T> List<T> onAllShards(Supplier<List<T>> query) {
+        if (shardCount() == 1) {
+            return new ArrayList<>(onShard(0, query));
+        }
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shardCount(); shard++) {
+            final int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, query), fanOutExecutor));
+        }
+        List<T> merged = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                merged.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return merged;
+    }
+
+    /**
+     * Ejecuta la operación en cada shard (en paralelo), p. ej. borrados por entidad
+     */
+    public void forEachShard(Runnable operation) {
+        onAllShards(() -> {
+            operation.run();
+            return List.of();
+        });
+    }
+}
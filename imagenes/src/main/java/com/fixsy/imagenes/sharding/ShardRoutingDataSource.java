@@ -0,0 +1,16 @@
+package com.fixsy.imagenes.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource que delega en el shard fijado en ShardContext al momento de obtener la conexión.
+ * Debe envolverse en un LazyConnectionDataSourceProxy para que la conexión física se obtenga
+ * en la primera sentencia SQL (y no al abrir la transacción, antes de conocer el shard).
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
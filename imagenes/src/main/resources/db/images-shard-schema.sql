@@ -0,0 +1,33 @@
+-- Esquema de las tablas de imágenes en cada shard (app.sharding.init-schema=true).
+-- Debe mantenerse alineado con com.fixsy.imagenes.model.Image e ImageRendition.
+CREATE TABLE IF NOT EXISTS images (
+    id BIGINT NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    original_name VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    file_size BIGINT,
+    file_path VARCHAR(255),
+    user_id BIGINT,
+    entity_type VARCHAR(255),
+    entity_id BIGINT,
+    image_data LONGBLOB,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    INDEX idx_images_user (user_id),
+    INDEX idx_images_entity (entity_type, entity_id)
+);
+
+CREATE TABLE IF NOT EXISTS image_renditions (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    image_id BIGINT NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    width INT NOT NULL,
+    actual_width INT,
+    actual_height INT,
+    file_size BIGINT,
+    data LONGBLOB NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_image_rendition UNIQUE (image_id, content_type, width)
+);
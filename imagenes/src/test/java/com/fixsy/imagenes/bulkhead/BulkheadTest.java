@@ -0,0 +1,69 @@
+package com.fixsy.imagenes.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Debe rechazar cuando se agotan la concurrencia y la cola")
+    void tryEnter_ShouldReject_WhenLaneIsFull() {
+        Bulkhead bulkhead = new Bulkhead(BulkheadLane.UPLOAD, 1, 0, Duration.ofMillis(10), registry);
+
+        assertTrue(bulkhead.tryEnter());
+        assertFalse(bulkhead.tryEnter());
+        assertEquals(1, bulkhead.getRejected());
+
+        bulkhead.exit(1_000_000);
+        assertTrue(bulkhead.tryEnter());
+        assertEquals(1, registry.get("images.bulkhead.latency").tag("lane", "upload").timer().count());
+    }
+
+    @Test
+    @DisplayName("Un carril saturado no debe afectar a los demás")
+    void interceptor_ShouldIsolateLanes() throws Exception {
+        Map<BulkheadLane, Bulkhead> lanes = new EnumMap<>(BulkheadLane.class);
+        for (BulkheadLane lane : BulkheadLane.values()) {
+            lanes.put(lane, new Bulkhead(lane, 1, 0, Duration.ofMillis(10), registry));
+        }
+        BulkheadInterceptor interceptor = new BulkheadInterceptor(lanes);
+        HandlerMethod upload = new HandlerMethod(new Handlers(), Handlers.class.getMethod("upload"));
+        HandlerMethod metadata = new HandlerMethod(new Handlers(), Handlers.class.getMethod("metadata"));
+
+        MockHttpServletRequest firstUpload = new MockHttpServletRequest();
+        assertTrue(interceptor.preHandle(firstUpload, new MockHttpServletResponse(), upload));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), upload));
+        assertTrue(exception.getMessage().contains("saturado"));
+
+        MockHttpServletRequest read = new MockHttpServletRequest();
+        assertTrue(interceptor.preHandle(read, new MockHttpServletResponse(), metadata));
+        interceptor.afterCompletion(read, new MockHttpServletResponse(), metadata, null);
+
+        interceptor.afterCompletion(firstUpload, new MockHttpServletResponse(), upload, null);
+        assertEquals(0, lanes.get(BulkheadLane.UPLOAD).getActive());
+    }
+
+    static class Handlers {
+        @UseBulkhead(BulkheadLane.UPLOAD)
+        public void upload() {
+        }
+
+        @UseBulkhead(BulkheadLane.METADATA)
+        public void metadata() {
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.fixsy.imagenes.controller;
 
+import com.fixsy.imagenes.dto.ImageBatchDTO;
 import com.fixsy.imagenes.dto.ImageDTO;
+import com.fixsy.imagenes.dto.SpriteMapDTO;
+import com.fixsy.imagenes.dto.SpriteTileDTO;
+import com.fixsy.imagenes.service.ImageRenditionService;
 import com.fixsy.imagenes.service.ImageService;
+import com.fixsy.imagenes.service.ImageSpriteService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -30,6 +35,12 @@ class ImageControllerTest {
     @Mock
     private ImageService imageService;
 
+    @Mock
+    private ImageSpriteService imageSpriteService;
+
+    @Mock
+    private ImageRenditionService imageRenditionService;
+
     @InjectMocks
     private ImageController imageController;
 
@@ -83,16 +94,32 @@ class ImageControllerTest {
         assertEquals("test-image.jpg", response.getBody().getFileName());
     }
 
+    @Test
+    @DisplayName("GET /api/images/batch - Debe retornar metadatos por lote")
+    void getImagesBatch_ShouldReturnMetadata() {
+        // Arrange
+        ImageBatchDTO batch = new ImageBatchDTO(List.of(testImageDTO), List.of(2L));
+        when(imageService.getImagesMetadata(Arrays.asList(1L, 2L))).thenReturn(batch);
+
+        // Act
+        ResponseEntity<ImageBatchDTO> response = imageController.getImagesBatch(Arrays.asList(1L, 2L));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getImages().size());
+        assertEquals(List.of(2L), response.getBody().getMissing());
+    }
+
     @Test
     @DisplayName("GET /api/images/{id}/download - Debe descargar imagen")
     void downloadImage_ShouldReturnImageBytes() {
         // Arrange
         byte[] imageData = new byte[]{1, 2, 3, 4, 5};
-        when(imageService.getImageData(1L)).thenReturn(imageData);
-        when(imageService.getImageContentType(1L)).thenReturn("image/jpeg");
+        when(imageRenditionService.getRendition(1L, null, null, null))
+            .thenReturn(new ImageRenditionService.Rendition(imageData, "image/jpeg"));
 
         // Act
-        ResponseEntity<byte[]> response = imageController.downloadImage(1L);
+        ResponseEntity<byte[]> response = imageController.downloadImage(1L, null, null, null, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -101,6 +128,21 @@ class ImageControllerTest {
         assertEquals(MediaType.IMAGE_JPEG, response.getHeaders().getContentType());
     }
 
+    @Test
+    @DisplayName("GET /api/images/{id}/download - Debe negociar variante por Accept y Width")
+    void downloadImage_ShouldNegotiateRendition() {
+        // Arrange
+        when(imageRenditionService.getRendition(1L, "image/png", null, 300))
+            .thenReturn(new ImageRenditionService.Rendition(new byte[]{9}, "image/png"));
+
+        // Act
+        ResponseEntity<byte[]> response = imageController.downloadImage(1L, null, null, "image/png", 300, 1080);
+
+        // Assert
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType());
+        assertTrue(response.getHeaders().getVary().containsAll(List.of("Accept", "Width", "Viewport-Width")));
+    }
+
     @Test
     @DisplayName("GET /api/images/user/{userId} - Debe retornar imágenes por usuario")
     void getImagesByUserId_ShouldReturnUserImages() {
@@ -133,6 +175,68 @@ class ImageControllerTest {
         assertEquals("SERVICE_REQUEST", response.getBody().get(0).getEntityType());
     }
 
+    @Test
+    @DisplayName("GET /api/images/entity/{entityType}/{entityId}/sprite - Debe retornar sprite JPEG con su versión como ETag")
+    void getEntitySprite_ShouldReturnJpeg() {
+        // Arrange
+        when(imageSpriteService.getSpriteImage("SERVICE_REQUEST", 1L))
+            .thenReturn(new ImageSpriteService.SpriteImage("abc", new byte[]{1, 2, 3}));
+
+        // Act
+        ResponseEntity<byte[]> response = imageController.getEntitySprite("SERVICE_REQUEST", 1L, "abc", null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.IMAGE_JPEG, response.getHeaders().getContentType());
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+        assertEquals(3, response.getBody().length);
+    }
+
+    @Test
+    @DisplayName("GET /api/images/entity/{entityType}/{entityId}/sprite - Debe responder 404 si la versión pedida ya no es la vigente")
+    void getEntitySprite_ShouldRejectStaleVersion() {
+        // Arrange
+        when(imageSpriteService.getSpriteImage("SERVICE_REQUEST", 1L))
+            .thenReturn(new ImageSpriteService.SpriteImage("def", new byte[]{1, 2, 3}));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> imageController.getEntitySprite("SERVICE_REQUEST", 1L, "abc", null));
+        assertTrue(exception.getMessage().contains("no encontrada"));
+    }
+
+    @Test
+    @DisplayName("GET /api/images/entity/{entityType}/{entityId}/sprite - Debe responder 304 si el ETag coincide")
+    void getEntitySprite_ShouldReturnNotModified_WhenEtagMatches() {
+        // Arrange
+        when(imageSpriteService.getSpriteImage("SERVICE_REQUEST", 1L))
+            .thenReturn(new ImageSpriteService.SpriteImage("abc", new byte[]{1, 2, 3}));
+
+        // Act
+        ResponseEntity<byte[]> response = imageController.getEntitySprite("SERVICE_REQUEST", 1L, null, "\"abc\"");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    @DisplayName("GET /api/images/entity/{entityType}/{entityId}/sprite/map - Debe retornar coordenadas")
+    void getEntitySpriteMap_ShouldReturnTiles() {
+        // Arrange
+        SpriteMapDTO map = new SpriteMapDTO("SERVICE_REQUEST", 1L, "/api/images/entity/SERVICE_REQUEST/1/sprite",
+            "abc", 128, 128, Map.of(1L, new SpriteTileDTO(0, 0, 128, 96)), List.of());
+        when(imageSpriteService.getSpriteMap("SERVICE_REQUEST", 1L)).thenReturn(map);
+
+        // Act
+        ResponseEntity<SpriteMapDTO> response = imageController.getEntitySpriteMap("SERVICE_REQUEST", 1L);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(96, response.getBody().getTiles().get(1L).getHeight());
+    }
+
     @Test
     @DisplayName("POST /api/images - Debe subir imagen multipart correctamente")
     void uploadImage_ShouldReturnCreatedImage() {
@@ -0,0 +1,192 @@
+package com.fixsy.imagenes.service;
+
+import com.fixsy.imagenes.model.Image;
+import com.fixsy.imagenes.model.ImageRendition;
+import com.fixsy.imagenes.repository.ImageMetadata;
+import com.fixsy.imagenes.repository.ImageRenditionRepository;
+import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageRenditionServiceTest {
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Mock
+    private ImageRenditionRepository renditionRepository;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter();
+
+    @InjectMocks
+    private ImageRenditionService imageRenditionService;
+
+    private Image testImage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_INT_ARGB), "png", out);
+
+        testImage = new Image();
+        testImage.setId(1L);
+        testImage.setContentType("image/png");
+        testImage.setImageData(out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Debe entregar el original cuando no se pide conversión ni cambio de tamaño")
+    void getRendition_ShouldReturnOriginal_WhenNoNegotiationNeeded() {
+        // Arrange
+        stubPngMetadata();
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(testImage));
+
+        // Act
+        ImageRenditionService.Rendition result = imageRenditionService.getRendition(1L, "image/*", null, null);
+
+        // Assert
+        assertEquals("image/png", result.contentType());
+        assertSame(testImage.getImageData(), result.data());
+        verify(renditionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe generar y persistir la variante solicitada una sola vez")
+    void getRendition_ShouldGenerateAndPersist_WhenMissing() throws IOException {
+        // Arrange
+        stubPngMetadata();
+        when(renditionRepository.findByImageIdAndContentTypeAndWidth(1L, "image/jpeg", 320)).thenReturn(Optional.empty());
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(testImage));
+
+        // Act
+        ImageRenditionService.Rendition result = imageRenditionService.getRendition(1L, "image/jpeg", null, 300);
+
+        // Assert
+        assertEquals("image/jpeg", result.contentType());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(result.data()));
+        assertEquals(320, decoded.getWidth());
+        assertEquals(160, decoded.getHeight());
+        ArgumentCaptor<ImageRendition> captor = ArgumentCaptor.forClass(ImageRendition.class);
+        verify(renditionRepository, times(1)).save(captor.capture());
+        assertEquals(320, captor.getValue().getWidth());
+    }
+
+    @Test
+    @DisplayName("Debe reutilizar la variante almacenada sin leer el original")
+    void getRendition_ShouldServeStoredRendition() {
+        // Arrange
+        stubPngMetadata();
+        ImageRendition stored = new ImageRendition();
+        stored.setData(new byte[]{7, 7});
+        when(renditionRepository.findByImageIdAndContentTypeAndWidth(1L, "image/png", 640)).thenReturn(Optional.of(stored));
+
+        // Act
+        ImageRenditionService.Rendition result = imageRenditionService.getRendition(1L, null, null, 500);
+
+        // Assert
+        assertArrayEquals(new byte[]{7, 7}, result.data());
+        verify(imageRepository, never()).findById(anyLong());
+        verify(renditionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe recordar los originales que ImageIO no decodifica y no volver a intentarlo")
+    void getRendition_ShouldCacheDecodeFailures() {
+        // Arrange
+        stubPngMetadata();
+        testImage.setImageData(new byte[]{1, 2, 3});
+        when(renditionRepository.findByImageIdAndContentTypeAndWidth(1L, "image/jpeg", 0)).thenReturn(Optional.empty());
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(testImage));
+
+        // Act
+        ImageRenditionService.Rendition first = imageRenditionService.getRendition(1L, null, "jpeg", null);
+        ImageRenditionService.Rendition second = imageRenditionService.getRendition(1L, null, "jpeg", null);
+
+        // Assert
+        assertEquals("image/png", first.contentType());
+        assertArrayEquals(new byte[]{1, 2, 3}, second.data());
+        verify(renditionRepository, times(2)).findByImageIdAndContentTypeAndWidth(1L, "image/jpeg", 0);
+        verify(renditionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Las peticiones concurrentes por la misma variante deben esperar a una sola generación")
+    void getRendition_ShouldCoalesceConcurrentGeneration() throws Exception {
+        // Arrange
+        stubPngMetadata();
+        when(renditionRepository.findByImageIdAndContentTypeAndWidth(1L, "image/jpeg", 320)).thenReturn(Optional.empty());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(testImage);
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Act
+            Future<ImageRenditionService.Rendition> first = executor.submit(() -> imageRenditionService.getRendition(1L, "image/jpeg", null, 300));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<ImageRenditionService.Rendition> second = executor.submit(() -> imageRenditionService.getRendition(1L, "image/jpeg", null, 300));
+            // La segunda consulta la variante almacenada (vacía) y se queda esperando a la primera
+            verify(renditionRepository, timeout(5000).times(3)).findByImageIdAndContentTypeAndWidth(1L, "image/jpeg", 320);
+            release.countDown();
+
+            // Assert
+            assertSame(first.get(5, TimeUnit.SECONDS).data(), second.get(5, TimeUnit.SECONDS).data());
+        }
+        verify(imageRepository, times(1)).findById(1L);
+        verify(renditionRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe elegir el formato según la calidad (q) del header Accept")
+    void chooseContentType_ShouldHonorQualityValues() {
+        assertEquals("image/png", ImageRenditionService.chooseContentType("image/png", "image/*", null, false));
+        assertEquals("image/jpeg", ImageRenditionService.chooseContentType("image/png", "image/jpeg, image/png;q=0.5", null, false));
+        assertEquals("image/jpeg", ImageRenditionService.chooseContentType("image/webp", "image/webp, image/*;q=0.8", null, true));
+        assertEquals("image/png", ImageRenditionService.chooseContentType("image/jpeg", "image/jpeg", "png", false));
+    }
+
+    @Test
+    @DisplayName("Debe redondear el ancho al siguiente bucket")
+    void widthBucket_ShouldRoundUp() {
+        assertEquals(0, ImageRenditionService.widthBucket(null));
+        assertEquals(160, ImageRenditionService.widthBucket(100));
+        assertEquals(640, ImageRenditionService.widthBucket(600));
+        assertEquals(1920, ImageRenditionService.widthBucket(5000));
+    }
+
+    private void stubPngMetadata() {
+        ImageMetadata metadata = mock(ImageMetadata.class);
+        when(metadata.getContentType()).thenReturn("image/png");
+        when(imageRepository.findMetadataByIdIn(List.of(1L))).thenReturn(List.of(metadata));
+    }
+}
@@ -1,18 +1,27 @@
 package com.fixsy.imagenes.service;
 
+import com.fixsy.imagenes.dto.ImageBatchDTO;
 import com.fixsy.imagenes.dto.ImageDTO;
+import com.fixsy.imagenes.repository.ImageMetadata;
+import com.fixsy.imagenes.repository.ImageRenditionRepository;
 import com.fixsy.imagenes.model.Image;
 import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,6 +37,15 @@ class ImageServiceTest {
     @Mock
     private ImageRepository imageRepository;
 
+    @Mock
+    private ImageRenditionRepository renditionRepository;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new ImmediateTransactionTemplate();
+
     @InjectMocks
     private ImageService imageService;
 
@@ -100,6 +118,43 @@ class ImageServiceTest {
         assertEquals("Imagen no encontrada", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Debe obtener metadatos por lote y reportar IDs inexistentes")
+    void getImagesMetadata_ShouldReturnFoundAndMissing() {
+        // Arrange
+        ImageMetadata metadata = mock(ImageMetadata.class);
+        when(metadata.getId()).thenReturn(1L);
+        when(metadata.getFileName()).thenReturn("test-image.jpg");
+        when(imageRepository.findMetadataByIdIn(anyCollection())).thenReturn(List.of(metadata));
+
+        // Act
+        ImageBatchDTO result = imageService.getImagesMetadata(Arrays.asList(42L, 1L, 42L));
+
+        // Assert
+        assertEquals(1, result.getImages().size());
+        assertEquals("test-image.jpg", result.getImages().get(0).getFileName());
+        assertNull(result.getImages().get(0).getBase64Data());
+        assertEquals(List.of(42L), result.getMissing());
+        verify(imageRepository, times(1)).findMetadataByIdIn(anyCollection());
+        verify(imageRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar lotes que exceden el máximo permitido")
+    void getImagesMetadata_ShouldThrowException_WhenTooManyIds() {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long i = 1; i <= ImageService.MAX_BATCH_SIZE + 1; i++) {
+            ids.add(i);
+        }
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> imageService.getImagesMetadata(ids));
+        assertTrue(exception.getMessage().contains("inválido"));
+        verify(imageRepository, never()).findMetadataByIdIn(anyCollection());
+    }
+
     @Test
     @DisplayName("Debe obtener datos binarios de imagen")
     void getImageData_ShouldReturnBytes_WhenImageHasData() {
@@ -240,6 +295,7 @@ class ImageServiceTest {
 
         // Assert
         verify(imageRepository, times(1)).existsById(1L);
+        verify(renditionRepository, times(1)).deleteByImageId(1L);
         verify(imageRepository, times(1)).deleteById(1L);
     }
 
@@ -266,8 +322,17 @@ class ImageServiceTest {
         // Act
         imageService.deleteImagesByEntity("SERVICE_REQUEST", 1L);
 
-        // Assert
+        // Assert: variantes e imágenes del shard en la misma transacción
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        verify(renditionRepository, times(1)).deleteByEntity("SERVICE_REQUEST", 1L);
         verify(imageRepository, times(1)).deleteByEntityTypeAndEntityId("SERVICE_REQUEST", 1L);
     }
+
+    private static class ImmediateTransactionTemplate extends TransactionTemplate {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(new SimpleTransactionStatus());
+        }
+    }
 }
 
@@ -0,0 +1,170 @@
+package com.fixsy.imagenes.service;
+
+import com.fixsy.imagenes.dto.SpriteMapDTO;
+import com.fixsy.imagenes.model.Image;
+import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.sharding.ShardRouter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageSpriteServiceTest {
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter();
+
+    @InjectMocks
+    private ImageSpriteService imageSpriteService;
+
+    @Test
+    @DisplayName("Debe generar un sprite con las miniaturas de la entidad")
+    void getSpriteMap_ShouldComposeThumbnails() throws IOException {
+        // Arrange
+        Image image1 = createImage(1L, pngBytes(256, 128));
+        Image image2 = createImage(2L, pngBytes(64, 64));
+        when(imageRepository.findIdsByEntity("SERVICE_REQUEST", 1L)).thenReturn(Arrays.asList(1L, 2L));
+        when(imageRepository.findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L))
+            .thenReturn(Arrays.asList(image1, image2));
+
+        // Act
+        SpriteMapDTO map = imageSpriteService.getSpriteMap("SERVICE_REQUEST", 1L);
+        ImageSpriteService.SpriteImage spriteImage = imageSpriteService.getSpriteImage("SERVICE_REQUEST", 1L);
+        byte[] sprite = spriteImage.data();
+
+        // Assert
+        assertEquals(map.getVersion(), spriteImage.version());
+        assertTrue(map.getSpriteUrl().endsWith("/sprite?v=" + map.getVersion()));
+        assertEquals(2, map.getTiles().size());
+        assertEquals(128, map.getTiles().get(1L).getWidth());
+        assertEquals(64, map.getTiles().get(1L).getHeight());
+        assertEquals(128, map.getTiles().get(2L).getX());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(sprite));
+        assertEquals(map.getWidth(), decoded.getWidth());
+        assertEquals(map.getHeight(), decoded.getHeight());
+        // El segundo acceso se sirve desde caché: los BLOB se leen una sola vez
+        verify(imageRepository, times(1)).findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L);
+    }
+
+    @Test
+    @DisplayName("Debe regenerar el sprite cuando cambia el conjunto de imágenes")
+    void getSpriteMap_ShouldRebuild_WhenImageSetChanges() throws IOException {
+        // Arrange
+        Image image1 = createImage(1L, pngBytes(32, 32));
+        Image image2 = createImage(2L, pngBytes(32, 32));
+        when(imageRepository.findIdsByEntity("SERVICE_REQUEST", 1L))
+            .thenReturn(Collections.singletonList(1L), Arrays.asList(1L, 2L));
+        when(imageRepository.findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L))
+            .thenReturn(Collections.singletonList(image1), Arrays.asList(image1, image2));
+
+        // Act
+        SpriteMapDTO first = imageSpriteService.getSpriteMap("SERVICE_REQUEST", 1L);
+        SpriteMapDTO second = imageSpriteService.getSpriteMap("SERVICE_REQUEST", 1L);
+
+        // Assert
+        assertEquals(1, first.getTiles().size());
+        assertEquals(2, second.getTiles().size());
+        assertNotEquals(first.getVersion(), second.getVersion());
+    }
+
+    @Test
+    @DisplayName("Peticiones concurrentes sin caché deben esperar una sola generación del sprite")
+    void getSpriteImage_ShouldCoalesceConcurrentBuilds() throws Exception {
+        // Arrange: la primera generación queda bloqueada leyendo las imágenes
+        Image image1 = createImage(1L, pngBytes(32, 32));
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageRepository.findIdsByEntity("SERVICE_REQUEST", 1L)).thenAnswer(invocation -> new ArrayList<>(List.of(1L)));
+        when(imageRepository.findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(image1);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            Future<ImageSpriteService.SpriteImage> first = executor.submit(() -> imageSpriteService.getSpriteImage("SERVICE_REQUEST", 1L));
+            verify(imageRepository, timeout(2000)).findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L);
+            Future<ImageSpriteService.SpriteImage> second = executor.submit(() -> imageSpriteService.getSpriteImage("SERVICE_REQUEST", 1L));
+            verify(imageRepository, timeout(2000).times(2)).findIdsByEntity("SERVICE_REQUEST", 1L);
+            Thread.sleep(50);
+            release.countDown();
+
+            // Assert
+            assertSame(first.get(5, TimeUnit.SECONDS).data(), second.get(5, TimeUnit.SECONDS).data());
+            verify(imageRepository, times(1)).findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe reportar imágenes que no pueden decodificarse")
+    void getSpriteMap_ShouldSkipUndecodableImages() throws IOException {
+        // Arrange
+        Image image1 = createImage(1L, pngBytes(32, 32));
+        Image image2 = createImage(2L, new byte[]{1, 2, 3});
+        when(imageRepository.findIdsByEntity("SERVICE_REQUEST", 1L)).thenReturn(Arrays.asList(1L, 2L));
+        when(imageRepository.findByEntityTypeAndEntityId("SERVICE_REQUEST", 1L))
+            .thenReturn(Arrays.asList(image1, image2));
+
+        // Act
+        SpriteMapDTO map = imageSpriteService.getSpriteMap("SERVICE_REQUEST", 1L);
+
+        // Assert
+        assertEquals(1, map.getTiles().size());
+        assertEquals(List.of(2L), map.getSkipped());
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción cuando la entidad no tiene imágenes")
+    void getSpriteImage_ShouldThrowException_WhenEntityHasNoImages() {
+        // Arrange
+        when(imageRepository.findIdsByEntity("SERVICE_REQUEST", 99L)).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> imageSpriteService.getSpriteImage("SERVICE_REQUEST", 99L));
+        assertEquals("Imágenes no encontradas para la entidad", exception.getMessage());
+        verify(imageRepository, never()).findByEntityTypeAndEntityId(anyString(), anyLong());
+    }
+
+    private Image createImage(Long id, byte[] data) {
+        Image image = new Image();
+        image.setId(id);
+        image.setContentType("image/png");
+        image.setEntityType("SERVICE_REQUEST");
+        image.setEntityId(1L);
+        image.setImageData(data);
+        return image;
+    }
+
+    private byte[] pngBytes(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
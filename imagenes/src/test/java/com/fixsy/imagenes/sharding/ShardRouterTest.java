@@ -0,0 +1,124 @@
+package com.fixsy.imagenes.sharding;
+
+import com.fixsy.imagenes.config.ShardingProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+    @Test
+    @DisplayName("Debe codificar el shard en los IDs generados")
+    void nextId_ShouldEncodeShard() {
+        Set<Long> ids = new HashSet<>();
+        for (int shard = 0; shard < 4; shard++) {
+            for (int i = 0; i < 100; i++) {
+                long id = ShardIds.nextId(shard);
+                assertEquals(shard, ShardIds.shardOf(id));
+                assertTrue(id < (1L << 53), "El ID debe ser seguro para JavaScript");
+                ids.add(id);
+            }
+        }
+        assertEquals(400, ids.size());
+    }
+
+    @Test
+    @DisplayName("No debe repetir IDs generados concurrentemente desde hilos virtuales")
+    void nextId_ShouldBeUnique_AcrossVirtualThreads() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 50; t++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 40; i++) {
+                        ids.add(ShardIds.nextId(2));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        assertEquals(2000, ids.size());
+    }
+
+    @Test
+    @DisplayName("Debe tratar los IDs heredados (IDENTITY), sin el bit de marca, como del shard 0")
+    void shardOf_ShouldReturnZero_ForLegacyIds() {
+        assertEquals(0, ShardIds.shardOf(1L));
+        assertEquals(0, ShardIds.shardOf(150_000L));
+        // Heredados grandes: antes se confundían con IDs nuevos y se enrutaban a otro shard
+        assertEquals(0, ShardIds.shardOf(2_097_152L + 5 * 1024));
+        assertEquals(0, ShardIds.shardOf(900_000_000_000L));
+    }
+
+    @Test
+    @DisplayName("Debe exigir un worker-id explícito")
+    void constructor_ShouldFail_WhenWorkerIdMissing() {
+        ShardingProperties properties = properties(2);
+        properties.setWorkerId(null);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> new ShardRouter(properties));
+        assertTrue(exception.getMessage().contains("worker-id"));
+    }
+
+    @Test
+    @DisplayName("Debe repartir usuarios entre shards de forma estable")
+    void shardForUser_ShouldBeStableAndBalanced() {
+        ShardRouter router = new ShardRouter(properties(3));
+        int[] counts = new int[3];
+        for (long userId = 1; userId <= 3000; userId++) {
+            int shard = router.shardForUser(userId);
+            assertEquals(shard, router.shardForUser(userId));
+            counts[shard]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 500, "Distribución desbalanceada: " + count);
+        }
+    }
+
+    @Test
+    @DisplayName("Agregar un shard solo debe mover una fracción de los usuarios")
+    void shardForUser_ShouldMoveFewKeys_WhenShardAdded() {
+        ShardRouter three = new ShardRouter(properties(3));
+        ShardRouter four = new ShardRouter(properties(4));
+        int moved = 0;
+        for (long userId = 1; userId <= 4000; userId++) {
+            if (three.shardForUser(userId) != four.shardForUser(userId)) {
+                moved++;
+            }
+        }
+        assertTrue(moved < 2000, "Se movieron demasiados usuarios: " + moved);
+    }
+
+    @Test
+    @DisplayName("Debe ejecutar la consulta en todos los shards y unir los resultados")
+    void onAllShards_ShouldMergeResults() {
+        ShardRouter router = new ShardRouter(properties(3));
+        List<Integer> result = router.onAllShards(() -> List.of(ShardContext.current()));
+        assertEquals(Set.of(0, 1, 2), new HashSet<>(result));
+        assertNull(ShardContext.get());
+    }
+
+    private ShardingProperties properties(int shards) {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setWorkerId(1);
+        for (int i = 0; i < shards; i++) {
+            ShardingProperties.Shard shard = new ShardingProperties.Shard();
+            shard.setUrl("jdbc:h2:mem:shard" + i);
+            properties.getShards().add(shard);
+        }
+        return properties;
+    }
+}
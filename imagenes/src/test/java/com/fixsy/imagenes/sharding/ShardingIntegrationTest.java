@@ -0,0 +1,138 @@
+package com.fixsy.imagenes.sharding;
+
+import com.fixsy.imagenes.dto.ImageDTO;
+import com.fixsy.imagenes.model.Image;
+import com.fixsy.imagenes.repository.ImageRenditionRepository;
+import com.fixsy.imagenes.repository.ImageRepository;
+import com.fixsy.imagenes.service.ImageRenditionService;
+import com.fixsy.imagenes.service.ImageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sharding de extremo a extremo con tres instancias H2 embebidas
+ */
+@SpringBootTest(properties = {
+        "app.sharding.enabled=true",
+        "app.sharding.worker-id=1",
+        "app.sharding.shards[0].url=jdbc:h2:mem:images_shard0;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[1].url=jdbc:h2:mem:images_shard1;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[2].url=jdbc:h2:mem:images_shard2;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[0].username=sa",
+        "app.sharding.shards[1].username=sa",
+        "app.sharding.shards[2].username=sa",
+        "spring.jpa.show-sql=false"
+})
+class ShardingIntegrationTest {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageRenditionRepository imageRenditionRepository;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    @DisplayName("Debe guardar cada imagen en el shard de su usuario y consultarlas en todos")
+    void images_ShouldBeRoutedByUserId() {
+        int users = 12;
+        for (long userId = 1; userId <= users; userId++) {
+            imageService.uploadImage(file(), userId, "SERVICE_REQUEST", 500L);
+        }
+
+        long total = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            final int target = shard;
+            List<Long> owners = shardRouter.onShard(shard, () -> imageRepository.findAll()).stream()
+                    .map(image -> image.getUserId())
+                    .toList();
+            owners.forEach(userId -> assertEquals(target, shardRouter.shardForUser(userId)));
+            total += owners.size();
+        }
+        assertEquals(users, total);
+
+        List<ImageDTO> entityImages = imageService.getImagesByEntity("SERVICE_REQUEST", 500L);
+        assertEquals(users, entityImages.size());
+        for (ImageDTO image : entityImages) {
+            assertEquals(image.getUserId(), imageService.getImageById(image.getId()).getUserId());
+            assertEquals(1, imageService.getImagesByUserId(image.getUserId()).size());
+        }
+
+        List<Long> ids = new ArrayList<>(entityImages.stream().map(ImageDTO::getId).toList());
+        ids.add(-1L);
+        assertEquals(users, imageService.getImagesMetadata(ids).getImages().size());
+        assertEquals(List.of(-1L), imageService.getImagesMetadata(ids).getMissing());
+
+        imageService.deleteImagesByEntity("SERVICE_REQUEST", 500L);
+        assertTrue(imageService.getAllImages().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe listar las imágenes de un usuario aunque estén fuera de su shard (anteriores al sharding)")
+    void imagesByUser_ShouldIncludeRowsOnOtherShards() {
+        long userId = 1L;
+        while (shardRouter.shardForUser(userId) == 0) {
+            userId++;
+        }
+        long owner = userId;
+        imageService.uploadImage(file(), owner, "VEHICLE", 9L);
+        shardRouter.onShard(0, () -> {
+            Image legacy = new Image();
+            legacy.setFileName("legacy.jpg");
+            legacy.setOriginalName("legacy.jpg");
+            legacy.setContentType("image/jpeg");
+            legacy.setFileSize(3L);
+            legacy.setFilePath("");
+            legacy.setUserId(owner);
+            legacy.setImageData(new byte[]{1, 2, 3});
+            return imageRepository.save(legacy);
+        });
+
+        assertEquals(2, imageService.getImagesByUserId(owner).size());
+
+        shardRouter.forEachShard(() -> imageRepository.deleteAll());
+    }
+
+    @Test
+    @DisplayName("Debe persistir las variantes en el shard de la imagen")
+    void renditions_ShouldBeStoredOnImageShard() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", png);
+        ImageDTO image = imageService.uploadImage(
+                new MockMultipartFile("file", "foto.png", "image/png", png.toByteArray()), 77L, "VEHICLE", 9L);
+
+        ImageRenditionService.Rendition first = imageRenditionService.getRendition(image.getId(), "image/jpeg", null, 150);
+        ImageRenditionService.Rendition second = imageRenditionService.getRendition(image.getId(), "image/jpeg", null, 150);
+
+        assertEquals("image/jpeg", first.contentType());
+        assertArrayEquals(first.data(), second.data());
+        int shard = shardRouter.shardForUser(77L);
+        assertEquals(1L, shardRouter.onShard(shard, () -> imageRenditionRepository.count()));
+
+        imageService.deleteImage(image.getId());
+        assertEquals(0L, shardRouter.onShard(shard, () -> imageRenditionRepository.count()));
+    }
+
+    private MockMultipartFile file() {
+        return new MockMultipartFile("file", "foto.jpg", "image/jpeg", new byte[]{1, 2, 3});
+    }
+}
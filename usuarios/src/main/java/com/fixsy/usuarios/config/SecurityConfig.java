@@ -1,19 +1,45 @@
 package com.fixsy.usuarios.config;
 
+import com.fixsy.usuarios.security.BCryptStrength;
+import com.fixsy.usuarios.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 /**
  * Configuración de seguridad para encriptación de contraseñas
  */
 @Configuration
 public class SecurityConfig {
 
+    /**
+     * BCrypt ejecutado en un pool acotado (app.password-hashing.*); threads=0 usa un hilo por núcleo.
+     * Con strength=0 el costo se calibra al arrancar para acercarse a target-ms por hash.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.password-hashing.threads:0}") int threads,
+            @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password-hashing.timeout-ms:2000}") long timeoutMs,
+            @Value("${app.password-hashing.strength:0}") int strength,
+            @Value("${app.password-hashing.target-ms:200}") long targetMs,
+            @Value("${app.password-hashing.min-strength:10}") int minStrength,
+            @Value("${app.password-hashing.max-strength:16}") int maxStrength,
+            MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int bcryptStrength = strength > 0
+                ? strength
+                : BCryptStrength.calibrate(Duration.ofMillis(targetMs), minStrength, maxStrength);
+        Gauge.builder("users.password.hash.strength", () -> bcryptStrength)
+                .description("Costo de BCrypt en uso")
+                .register(meterRegistry);
+
+        return new BoundedPasswordEncoder(BCryptStrength.versionedEncoder(bcryptStrength), poolSize, queueCapacity,
+                Duration.ofMillis(timeoutMs), meterRegistry);
     }
 }
-
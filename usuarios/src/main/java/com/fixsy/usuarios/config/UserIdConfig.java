@@ -0,0 +1,21 @@
+package com.fixsy.usuarios.config;
+
+import com.fixsy.usuarios.model.UserIds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configura el ID de instancia usado por UserIds (app.ids.worker-id, distinto en cada réplica).
+ * No tiene valor por defecto: dos réplicas con el mismo ID pueden generar la misma clave primaria.
+ */
+@Configuration
+public class UserIdConfig {
+
+    public UserIdConfig(@Value("${app.ids.worker-id:#{null}}") Integer workerId) {
+        if (workerId == null) {
+            throw new IllegalStateException("app.ids.worker-id es obligatorio y debe ser distinto en cada réplica "
+                    + "(0-" + (UserIds.MAX_WORKERS - 1) + "); en desarrollo local use el perfil dev");
+        }
+        UserIds.setWorkerId(workerId);
+    }
+}
@@ -1,8 +1,19 @@
 package com.fixsy.usuarios.controller;
 
+import com.fixsy.usuarios.dto.LoginResponseDTO;
+import com.fixsy.usuarios.dto.UserChangesDTO;
 import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.dto.UserImportResultDTO;
+import com.fixsy.usuarios.dto.UserPageDTO;
 import com.fixsy.usuarios.dto.UserRequestDTO;
+import com.fixsy.usuarios.security.AccessTokenService;
+import com.fixsy.usuarios.security.LoginThrottle;
+import com.fixsy.usuarios.service.MechanicDirectory;
+import com.fixsy.usuarios.service.UserChangeFeed;
+import com.fixsy.usuarios.service.UserExportService;
+import com.fixsy.usuarios.service.UserImportService;
 import com.fixsy.usuarios.service.UserService;
+import com.fixsy.usuarios.service.VersionedUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,11 +21,27 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -25,23 +52,177 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private UserChangeFeed userChangeFeed;
+
+    @Autowired
+    private MechanicDirectory mechanicDirectory;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Value("${app.login-throttle.trust-forwarded-for:false}")
+    private boolean trustForwardedFor = false;
+
     @GetMapping
-    @Operation(summary = "Obtener todos los usuarios", description = "Retorna una lista con todos los usuarios registrados en el sistema")
+    @Operation(summary = "Listar usuarios", description = "Retorna una página de usuarios ordenada por ID. " +
+            "Para la siguiente página se envía como cursor el valor del header X-Next-Cursor (ausente en la última página)")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente",
+        @ApiResponse(responseCode = "200", description = "Página de usuarios obtenida exitosamente",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Límite, rol o rango de fechas inválido",
+                content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor",
                 content = @Content(mediaType = "application/json"))
     })
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<UserDTO>> getAllUsers(
+            @Parameter(description = "ID del último usuario de la página anterior", example = "150")
+            @RequestParam(required = false) Long cursor,
+            @Parameter(description = "Tamaño de página (1-500, por defecto 50)", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Filtrar por rol", example = "MECHANIC")
+            @RequestParam(required = false) String role,
+            @Parameter(description = "Fecha de alta desde (inclusive, ISO-8601)", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Fecha de alta hasta (exclusive, ISO-8601)", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo) {
+        UserPageDTO page = userService.getUsersPage(cursor, limit, role, createdFrom, createdTo);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getUsers());
+    }
+
+    @GetMapping(value = "/export", produces = UserExportService.NDJSON)
+    @Operation(summary = "Exportar usuarios", description = "Exporta todos los usuarios en orden de ID como NDJSON (un UserDTO por línea). " +
+            "Las filas se envían a medida que se leen de la BD, sin armar la lista completa en memoria")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Exportación en curso (stream NDJSON)",
+                content = @Content(mediaType = UserExportService.NDJSON, schema = @Schema(implementation = UserDTO.class))),
+        @ApiResponse(responseCode = "503", description = "Demasiadas exportaciones en curso, reintentar más tarde",
+                content = @Content(mediaType = "application/json"))
+    })
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(UserExportService.NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        try {
+            userExportService.export(response.getOutputStream());
+        } catch (RuntimeException e) {
+            // Sin bytes enviados aún (p. ej. exportaciones saturadas): el error se responde como JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    @GetMapping("/mechanics")
+    @Operation(summary = "Listar mecánicos", description = "Retorna todos los usuarios con rol MECHANIC desde una instantánea en memoria. " +
+            "Incluye un ETag de la colección: reenviándolo en If-None-Match se obtiene 304 mientras no haya cambios")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Mecánicos obtenidos exitosamente",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
+        @ApiResponse(responseCode = "304", description = "La lista no cambió desde el ETag enviado")
+    })
+    public ResponseEntity<List<UserDTO>> getMechanics(
+            @Parameter(description = "ETag de una respuesta anterior")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        MechanicDirectory.Snapshot snapshot = mechanicDirectory.snapshot();
+        // no-cache: el cliente puede guardar la respuesta pero debe revalidarla en cada consulta
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).cacheControl(CacheControl.noCache()).body(snapshot.mechanics());
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Buscar usuarios", description = "Busca por nombre, email o teléfono, de forma parcial y tolerando " +
+            "errores de tipeo. Retorna los resultados más relevantes primero")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resultados de la búsqueda",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Término de búsqueda o límite inválido",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "503", description = "Índice de búsqueda en construcción",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<List<UserDTO>> searchUsers(
+            @Parameter(description = "Texto a buscar (entre 2 y 100 caracteres)", required = true, example = "gonzalez")
+            @RequestParam String q,
+            @Parameter(description = "Máximo de resultados (1-100, por defecto 20)", example = "20")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.searchUsers(q, limit));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Cambios de usuarios (long-poll)", description = "Retorna en orden los altas, modificaciones y bajas " +
+            "posteriores a since. Si no hay ninguno espera hasta waitSeconds; la siguiente consulta usa nextSince. " +
+            "Con Accept: text/event-stream el mismo endpoint abre un stream SSE")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lote de cambios (vacío si venció la espera)",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserChangesDTO.class))),
+        @ApiResponse(responseCode = "400", description = "since, límite o tiempo de espera inválido",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "503", description = "Demasiados suscriptores conectados",
+                content = @Content(mediaType = "application/json"))
+    })
+    public DeferredResult<UserChangesDTO> getChanges(
+            @Parameter(description = "Posición del último cambio recibido (0 para empezar desde el más antiguo retenido)", example = "1024")
+            @RequestParam(required = false) Long since,
+            @Parameter(description = "Máximo de cambios por respuesta (1-1000, por defecto 100)", example = "100")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Segundos de espera si no hay cambios (0-60, por defecto 25)", example = "25")
+            @RequestParam(required = false) Integer waitSeconds) {
+        return userChangeFeed.poll(since, limit, waitSeconds);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Cambios de usuarios (SSE)", description = "Stream de eventos user-change desde since. " +
+            "Cada evento lleva como id su posición; al reconectar se retoma desde Last-Event-ID")
+    public SseEmitter streamChanges(
+            @Parameter(description = "Posición del último cambio recibido", example = "1024")
+            @RequestParam(required = false) Long since,
+            @Parameter(description = "Enviado por el cliente SSE al reconectar; tiene prioridad sobre since")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return userChangeFeed.stream(lastEventId != null ? lastEventId : since);
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Obtener varios usuarios por ID",
+            description = "Recibe {\"ids\": [1, 2, 3]} (máximo 500) y retorna un mapa ID -> usuario. " +
+                    "Los IDs inexistentes no aparecen en la respuesta")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Usuarios obtenidos exitosamente",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "400", description = "Lista de IDs vacía o demasiado larga",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<Map<Long, UserDTO>> getUsersBatch(
+            @Parameter(description = "Objeto con la lista de IDs")
+            @RequestBody Map<String, List<Long>> request) {
+        return ResponseEntity.ok(userService.getUsersByIds(request.get("ids")));
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Obtener usuario por ID", description = "Busca y retorna un usuario específico por su ID")
+    @Operation(summary = "Obtener usuario por ID", description = "Busca y retorna un usuario específico por su ID. " +
+            "Incluye ETag y Last-Modified; con If-None-Match o If-Modified-Since responde 304 si el usuario no cambió")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Usuario encontrado exitosamente",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
+        @ApiResponse(responseCode = "304", description = "El usuario no cambió desde la versión enviada"),
         @ApiResponse(responseCode = "404", description = "Usuario no encontrado",
                 content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor",
@@ -49,8 +230,20 @@ public class UserController {
     })
     public ResponseEntity<UserDTO> getUserById(
             @Parameter(description = "ID del usuario", required = true, example = "1")
-            @PathVariable Long id) {
-        return ResponseEntity.ok(userService.getUserById(id));
+            @PathVariable Long id,
+            @Parameter(description = "ETag de una respuesta anterior")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @Parameter(description = "Last-Modified de una respuesta anterior (se ignora si se envía If-None-Match)")
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince) {
+        // Petición condicional: basta con la versión (caché o consulta por PK), sin leer el usuario
+        if (ifNoneMatch != null || ifModifiedSince != null) {
+            LocalDateTime version = userService.getUserVersion(id);
+            if (notModified(version, ifNoneMatch, ifModifiedSince)) {
+                return withVersion(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version).build();
+            }
+        }
+        VersionedUser user = userService.getVersionedUser(id);
+        return withVersion(ResponseEntity.ok(), user.updatedAt()).body(user.user());
     }
 
     @GetMapping("/email/{email}")
@@ -74,6 +267,23 @@ public class UserController {
         }
     }
 
+    @GetMapping("/email-available")
+    @Operation(summary = "Verificar disponibilidad de email", description = "Indica si un email está libre para registrarse. " +
+            "Pensado para validar mientras el usuario escribe: la mayoría de las consultas se responden en memoria")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Disponibilidad obtenida exitosamente",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "400", description = "Email obligatorio",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<Map<String, Object>> isEmailAvailable(
+            @Parameter(description = "Email a verificar", required = true, example = "usuario@example.com")
+            @RequestParam String email) {
+        return ResponseEntity.ok(Map.of("email", email, "available", userService.isEmailAvailable(email)));
+    }
+
     @PostMapping
     @Operation(summary = "Crear nuevo usuario", description = "Registra un nuevo usuario en el sistema con contraseña encriptada")
     @ApiResponses(value = {
@@ -108,8 +318,27 @@ public class UserController {
         return new ResponseEntity<>(userService.createUser(userRequest), HttpStatus.CREATED);
     }
 
+    @PostMapping("/import")
+    @Operation(summary = "Importar usuarios en lote",
+            description = "Crea hasta 10.000 usuarios en una petición. Las filas inválidas, con email repetido " +
+                    "o ya registrado se omiten y se informan en 'skipped'; el resto se crea")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Importación procesada",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserImportResultDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Lista vacía o demasiado larga",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<UserImportResultDTO> importUsers(
+            @Parameter(description = "Usuarios a crear (mismo formato que POST /api/users)")
+            @RequestBody List<UserRequestDTO> users) {
+        return ResponseEntity.ok(userImportService.importUsers(users));
+    }
+
     @PutMapping("/{id}")
-    @Operation(summary = "Actualizar usuario", description = "Actualiza los datos de un usuario existente")
+    @Operation(summary = "Actualizar usuario", description = "Actualiza los datos de un usuario existente. " +
+            "Con If-Match solo se aplica si el usuario no cambió desde esa versión (control de concurrencia optimista)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
@@ -117,13 +346,17 @@ public class UserController {
                 content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "404", description = "Usuario no encontrado",
                 content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "412", description = "El usuario fue modificado después de la versión enviada en If-Match",
+                content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor",
                 content = @Content(mediaType = "application/json"))
     })
     public ResponseEntity<?> updateUser(
             @Parameter(description = "ID del usuario", required = true, example = "1")
             @PathVariable Long id, 
-            @RequestBody UserRequestDTO userRequest) {
+            @RequestBody UserRequestDTO userRequest,
+            @Parameter(description = "ETag de la versión leída: si el usuario cambió desde entonces responde 412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (userRequest.getEmail() == null || userRequest.getEmail().isBlank()) {
             return ResponseEntity.badRequest().build();
         }
@@ -141,7 +374,8 @@ public class UserController {
         }
         
         try {
-            return ResponseEntity.ok(userService.updateUser(id, userRequest));
+            VersionedUser updated = userService.updateUser(id, userRequest, etags(ifMatch));
+            return withVersion(ResponseEntity.ok(), updated.updatedAt()).body(updated.user());
         } catch (IllegalArgumentException e) {
             // Si el error es sobre contraseña actual incorrecta, devolver 401 (Unauthorized)
             if (e.getMessage() != null && e.getMessage().contains("contraseña actual")) {
@@ -160,11 +394,49 @@ public class UserController {
                 return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(Map.of("error", e.getMessage()));
             }
+            if (e.getMessage() != null && e.getMessage().contains("Versión desactualizada")) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(Map.of("error", e.getMessage()));
+            }
+            if (e.getMessage() != null && e.getMessage().contains("saturado")) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", e.getMessage()));
+            }
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Error interno del servidor"));
         }
     }
 
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Actualizar usuario parcialmente", description = "JSON Merge Patch: solo se modifican los campos " +
+            "enviados (email, name, phone, role, o password junto con currentPassword). Si nada cambia no se escribe nada. " +
+            "Con If-Match solo se aplica si el usuario no cambió desde esa versión")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Campo desconocido, valor inválido o intento de eliminar un campo obligatorio",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "401", description = "Contraseña actual incorrecta",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "404", description = "Usuario no encontrado",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "409", description = "El email ya está registrado por otro usuario",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "412", description = "El usuario fue modificado después de la versión enviada en If-Match",
+                content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<UserDTO> patchUser(
+            @Parameter(description = "ID del usuario", required = true, example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Campos a modificar, p. ej. {\"phone\": \"+56 9 1234 5678\"}")
+            @RequestBody Map<String, Object> patch,
+            @Parameter(description = "ETag de la versión leída: si el usuario cambió desde entonces responde 412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedUser updated = userService.patchUser(id, patch, etags(ifMatch));
+        return withVersion(ResponseEntity.ok(), updated.updatedAt()).body(updated.user());
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Eliminar usuario", description = "Elimina un usuario del sistema")
     @ApiResponses(value = {
@@ -182,18 +454,23 @@ public class UserController {
     }
 
     @PostMapping("/login")
-    @Operation(summary = "Iniciar sesión", description = "Verifica las credenciales del usuario")
+    @Operation(summary = "Iniciar sesión", description = "Verifica las credenciales del usuario y emite un token de acceso firmado")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Login exitoso",
-                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))),
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponseDTO.class))),
         @ApiResponse(responseCode = "401", description = "Credenciales inválidas",
                 content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "429", description = "Demasiados intentos para el email o la IP, reintentar tras Retry-After",
+                content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "503", description = "Servicio saturado, reintentar más tarde",
+                content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor",
                 content = @Content(mediaType = "application/json"))
     })
     public ResponseEntity<?> login(
             @Parameter(description = "Credenciales del usuario")
-            @RequestBody Map<String, String> credentials) {
+            @RequestBody Map<String, String> credentials,
+            HttpServletRequest request) {
         String email = credentials.get("email");
         String password = credentials.get("password");
         
@@ -201,16 +478,32 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(Map.of("error", "Email y contraseña son requeridos"));
         }
-        
+
+        // Antes de tocar la BD o BCrypt: un bot de credenciales no debe costar un hash por intento
+        long retryAfter = loginThrottle.tryAcquire(email, clientIp(request));
+        if (retryAfter > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(Map.of("error", "Demasiados intentos de inicio de sesión, reintente más tarde"));
+        }
+
         try {
             UserDTO userDTO = userService.verifyCredentials(email, password);
-            return ResponseEntity.ok(userDTO);
+            loginThrottle.onSuccess(email);
+            AccessTokenService.IssuedToken token = accessTokenService.issue(userDTO);
+            return ResponseEntity.ok(new LoginResponseDTO(userDTO, token.token(), token.expiresAt()));
         } catch (RuntimeException e) {
             // Si las credenciales son inválidas, retornar 401 Unauthorized
             if (e.getMessage() != null && e.getMessage().contains("Credenciales inválidas")) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Correo o contraseña incorrectos"));
             }
+            // Pool de hash saturado: rechazo rápido para que el cliente reintente
+            if (e.getMessage() != null && e.getMessage().contains("saturado")) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", e.getMessage()));
+            }
             // Otros errores retornan 500
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Error interno del servidor"));
@@ -277,4 +570,55 @@ public class UserController {
         userService.resetPassword(email, token, newPassword);
         return ResponseEntity.ok(Map.of("message", "Contraseña restablecida exitosamente"));
     }
+
+    /**
+     * IP del cliente; X-Forwarded-For solo se usa detrás de un proxy confiable (app.login-throttle.trust-forwarded-for)
+     */
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.split(",")[0].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Agrega ETag y Last-Modified de la versión del usuario a la respuesta
+     */
+    private static <B extends ResponseEntity.HeadersBuilder<B>> B withVersion(B response, LocalDateTime version) {
+        response.eTag(VersionedUser.etagOf(version));
+        ZonedDateTime lastModified = VersionedUser.lastModifiedOf(version);
+        if (lastModified != null) {
+            response.lastModified(lastModified);
+        }
+        return response;
+    }
+
+    /**
+     * If-None-Match tiene prioridad; If-Modified-Since se compara con resolución de segundos (la del header)
+     */
+    private static boolean notModified(LocalDateTime version, String ifNoneMatch, String ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            return VersionedUser.matches(etags(ifNoneMatch), VersionedUser.etagOf(version));
+        }
+        ZonedDateTime lastModified = VersionedUser.lastModifiedOf(version);
+        if (lastModified == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return lastModified.toEpochSecond() <= since.toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false; // Fecha inválida: se ignora el header
+        }
+    }
+
+    private static List<String> etags(String header) {
+        if (header == null || header.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(header.split(",")).map(String::strip).filter(tag -> !tag.isEmpty()).toList();
+    }
 }
@@ -0,0 +1,29 @@
+package com.fixsy.usuarios.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Schema(description = "Usuario autenticado junto con su token de acceso firmado")
+public class LoginResponseDTO extends UserDTO {
+    @Schema(description = "Token de acceso (JWT HS256) con id, rol y expiración", example = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9...")
+    private String token;
+
+    @Schema(description = "Tipo de token para el header Authorization", example = "Bearer")
+    private String tokenType = "Bearer";
+
+    @Schema(description = "Instante de expiración del token", example = "2025-01-01T12:00:00Z")
+    private Instant expiresAt;
+
+    public LoginResponseDTO(UserDTO user, String token, Instant expiresAt) {
+        super(user.getId(), user.getEmail(), user.getName(), user.getPhone(), user.getRole());
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+}
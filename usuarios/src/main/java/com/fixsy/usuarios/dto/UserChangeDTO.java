@@ -0,0 +1,29 @@
+package com.fixsy.usuarios.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Cambio de un usuario publicado en el feed")
+public class UserChangeDTO {
+    @Schema(description = "Posición del evento en el feed (usar como since)", example = "1024")
+    private Long id;
+
+    @Schema(description = "ID del usuario", example = "1")
+    private Long userId;
+
+    @Schema(description = "Tipo de cambio", example = "UPDATED", allowableValues = {"CREATED", "UPDATED", "DELETED"})
+    private String type;
+
+    @Schema(description = "Estado del usuario tras el cambio (null si fue eliminado)")
+    private UserDTO user;
+
+    @Schema(description = "Fecha del cambio", example = "2025-06-01T10:15:30")
+    private LocalDateTime changedAt;
+}
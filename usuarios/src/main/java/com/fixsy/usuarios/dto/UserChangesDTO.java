@@ -0,0 +1,20 @@
+package com.fixsy.usuarios.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Lote de cambios de usuarios")
+public class UserChangesDTO {
+    @Schema(description = "Cambios en orden; vacío si no hubo cambios durante la espera")
+    private List<UserChangeDTO> changes;
+
+    @Schema(description = "Valor de since para la siguiente consulta", example = "1024")
+    private Long nextSince;
+}
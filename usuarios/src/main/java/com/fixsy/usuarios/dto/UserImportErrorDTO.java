@@ -0,0 +1,21 @@
+package com.fixsy.usuarios.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Fila de la importación que no se creó")
+public class UserImportErrorDTO {
+    @Schema(description = "Posición de la fila en la petición (desde 0)", example = "3")
+    private int row;
+
+    @Schema(description = "Email de la fila", example = "usuario@example.com")
+    private String email;
+
+    @Schema(description = "Motivo", example = "El email ya está registrado")
+    private String reason;
+}
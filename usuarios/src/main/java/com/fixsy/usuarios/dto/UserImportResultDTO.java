@@ -0,0 +1,23 @@
+package com.fixsy.usuarios.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resultado de una importación masiva de usuarios")
+public class UserImportResultDTO {
+    @Schema(description = "Filas recibidas", example = "1000")
+    private int received;
+
+    @Schema(description = "Usuarios creados", example = "997")
+    private int created;
+
+    @Schema(description = "Filas omitidas y su motivo")
+    private List<UserImportErrorDTO> skipped;
+}
@@ -0,0 +1,20 @@
+package com.fixsy.usuarios.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Página de usuarios ordenada por ID")
+public class UserPageDTO {
+    @Schema(description = "Usuarios de la página")
+    private List<UserDTO> users;
+
+    @Schema(description = "Cursor para la siguiente página (ID del último usuario); null si no hay más", example = "150")
+    private Long nextCursor;
+}
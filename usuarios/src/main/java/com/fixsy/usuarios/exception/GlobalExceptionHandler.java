@@ -49,8 +49,13 @@ public class GlobalExceptionHandler {
                        message.contains("obligatorio") || message.contains("required") ||
                        message.contains("expirado") || message.contains("expired")) {
                 status = HttpStatus.BAD_REQUEST;
-            } else if (message.contains("Credenciales") || message.contains("credentials")) {
+            } else if (message.contains("Credenciales") || message.contains("credentials") ||
+                       message.contains("contraseña actual es incorrecta")) {
                 status = HttpStatus.UNAUTHORIZED;
+            } else if (message.contains("Versión desactualizada")) {
+                status = HttpStatus.PRECONDITION_FAILED;
+            } else if (message.contains("saturado") || message.contains("no disponible")) {
+                status = HttpStatus.SERVICE_UNAVAILABLE;
             } else {
                 status = HttpStatus.INTERNAL_SERVER_ERROR;
             }
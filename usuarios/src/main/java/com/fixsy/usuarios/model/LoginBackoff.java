@@ -0,0 +1,38 @@
+package com.fixsy.usuarios.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Bloqueo progresivo de una clave de login (email o IP) que superó el límite de intentos.
+ * Se persiste para que un reinicio no libere a los atacantes reincidentes.
+ */
+@Entity
+@Table(name = "login_backoff", indexes = {
+        @Index(name = "idx_login_backoff_blocked_until", columnList = "blocked_until")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginBackoff {
+    @Id
+    @Column(name = "throttle_key", length = 320)
+    private String key;
+
+    @Column(nullable = false)
+    private int strikes;
+
+    @Column(name = "blocked_until", nullable = false)
+    private Instant blockedUntil;
+
+    @Column(name = "last_strike_at", nullable = false)
+    private Instant lastStrikeAt;
+
+    public LoginBackoff(String key) {
+        this.key = key;
+    }
+}
@@ -3,21 +3,36 @@ package com.fixsy.usuarios.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        // Nombre explícito: UserService distingue por él un email duplicado de otras violaciones (p. ej. de la PK)
+        @UniqueConstraint(name = User.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email")
+}, indexes = {
+        // Listado paginado por keyset en orden de id: filtro de rol (y de fecha de alta, leída del mismo índice).
+        // Sin filtro de rol, el orden por id lo da la PK; un índice que empiece por created_at no sirve a ese orden
+        @Index(name = "idx_users_role_id_created", columnList = "role_id, id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+// UPDATE solo con las columnas modificadas (p. ej. un cambio de teléfono no reescribe email ni hash)
+@DynamicUpdate
 public class User {
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_users_email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
@@ -30,35 +45,30 @@ public class User {
     private String phone;
 
     // Relación con la tabla de roles normalizada
-    @ManyToOne(fetch = FetchType.EAGER)
+    // LAZY: el nombre del rol se resuelve por role_id con RoleRegistry.nameOf, sin JOIN en las lecturas
+    // (leer role.getName() fuera de una transacción lanza LazyInitializationException: open-in-view=false)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "role_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Role role;
 
-    @Column(name = "reset_token")
-    private String resetToken;
-
-    @Column(name = "reset_token_expiry")
-    private LocalDateTime resetTokenExpiry;
-
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // updatedAt es la versión del usuario (ETag): se trunca a microsegundos, la precisión que guarda la BD,
+    // para que el valor en memoria tras un UPDATE coincida con el que se leerá después
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        updatedAt = createdAt.truncatedTo(ChronoUnit.MICROS);
     }
 
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
-    }
-
-    // Método de conveniencia para obtener el nombre del rol como String
-    public String getRoleName() {
-        return role != null ? role.getName().name() : null;
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 }
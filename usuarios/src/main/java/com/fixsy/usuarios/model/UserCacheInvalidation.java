@@ -0,0 +1,36 @@
+package com.fixsy.usuarios.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del log de invalidaciones de caché entre réplicas: "el usuario userId cambió".
+ * Se escribe en la transacción del cambio; las demás réplicas la leen por rango de ID y la
+ * purgan pasados unos minutos (solo sirve a las réplicas que están corriendo).
+ */
+@Entity
+@Table(name = "user_cache_invalidations", indexes = {
+        @Index(name = "idx_user_cache_invalidations_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCacheInvalidation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Réplica que hizo el cambio: ya invalidó su caché y no necesita releer su propia entrada
+    @Column(name = "node_id", nullable = false, length = 36)
+    private String nodeId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package com.fixsy.usuarios.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del outbox de usuarios: se escribe en la misma transacción que el cambio del usuario
+ * y guarda su estado visible (sin contraseña) para que los consumidores no tengan que releerlo.
+ * El ID autoincremental define el orden del feed.
+ */
+@Entity
+@Table(name = "user_change_events", indexes = {
+        @Index(name = "idx_user_change_events_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private UserChangeType type;
+
+    // Estado del usuario tras el cambio; null en DELETED
+    private String email;
+
+    private String name;
+
+    private String phone;
+
+    @Column(length = 32)
+    private String role;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,10 @@
+package com.fixsy.usuarios.model;
+
+/**
+ * Tipos de cambio publicados en el feed de usuarios
+ */
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
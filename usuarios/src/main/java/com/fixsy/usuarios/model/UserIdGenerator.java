@@ -0,0 +1,16 @@
+package com.fixsy.usuarios.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Generador Hibernate que asigna IDs con UserIds.
+ * Al no depender de IDENTITY, el INSERT no necesita ir a la BD para conocer el ID.
+ */
+public class UserIdGenerator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return UserIds.nextId();
+    }
+}
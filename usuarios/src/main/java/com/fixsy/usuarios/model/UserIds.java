@@ -0,0 +1,66 @@
+package com.fixsy.usuarios.model;
+
+/**
+ * IDs de usuario generados en la aplicación (sin IDENTITY), para que Hibernate pueda agrupar
+ * los INSERT en lotes JDBC sin ir a la BD por cada ID.
+ *
+ * Formato (53 bits, seguro para JavaScript):
+ * [32 bits segundos desde 2024-01-01][5 bits instancia][16 bits secuencia]
+ *
+ * Crecen con el tiempo, así que el orden por ID sigue siendo el orden de alta (paginación por keyset),
+ * y siempre son mayores que los IDs AUTO_INCREMENT heredados.
+ */
+public final class UserIds {
+
+    public static final int MAX_WORKERS = 32;
+
+    private static final long EPOCH_SECONDS = 1704067200L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 16;
+    private static final int WORKER_BITS = 5;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int WORKER_SHIFT = SEQUENCE_BITS;
+    private static final int TIME_SHIFT = SEQUENCE_BITS + WORKER_BITS;
+
+    private static volatile int workerId = 0;
+    private static long lastSecond = -1;
+    private static long sequence = 0;
+
+    private UserIds() {
+    }
+
+    /**
+     * Fija el ID de instancia (debe ser distinto en cada réplica del servicio)
+     */
+    public static void setWorkerId(int id) {
+        if (id < 0 || id >= MAX_WORKERS) {
+            throw new IllegalArgumentException("El worker-id debe estar entre 0 y " + (MAX_WORKERS - 1));
+        }
+        workerId = id;
+    }
+
+    public static synchronized long nextId() {
+        long second = currentSecond();
+        if (second < lastSecond) {
+            // Reloj retrocedió: seguir con el último segundo emitido para no repetir IDs
+            second = lastSecond;
+        }
+        if (second == lastSecond) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // Secuencia agotada (65.536 IDs en un segundo): tomar prestado el siguiente segundo
+                // en lugar de bloquear una importación masiva
+                second = lastSecond + 1;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastSecond = second;
+        return (second << TIME_SHIFT)
+                | ((long) workerId << WORKER_SHIFT)
+                | sequence;
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000 - EPOCH_SECONDS;
+    }
+}
@@ -0,0 +1,13 @@
+package com.fixsy.usuarios.repository;
+
+import com.fixsy.usuarios.model.LoginBackoff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface LoginBackoffRepository extends JpaRepository<LoginBackoff, String> {
+    List<LoginBackoff> findByBlockedUntilAfter(Instant instant);
+}
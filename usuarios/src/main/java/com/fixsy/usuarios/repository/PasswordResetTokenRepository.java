@@ -0,0 +1,28 @@
+package com.fixsy.usuarios.repository;
+
+import com.fixsy.usuarios.model.PasswordResetToken;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PasswordResetToken t WHERE t.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Hashes de tokens vencidos, los más antiguos primero (usa idx_reset_tokens_expires_at)
+     */
+    @Query("SELECT t.tokenHash FROM PasswordResetToken t WHERE t.expiresAt < :now ORDER BY t.expiresAt")
+    List<String> findExpiredHashes(@Param("now") LocalDateTime now, Limit limit);
+}
@@ -0,0 +1,25 @@
+package com.fixsy.usuarios.repository;
+
+import com.fixsy.usuarios.model.UserCacheInvalidation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserCacheInvalidationRepository extends JpaRepository<UserCacheInvalidation, Long> {
+
+    @Query("SELECT i FROM UserCacheInvalidation i WHERE i.id > :afterId ORDER BY i.id")
+    List<UserCacheInvalidation> findAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT MAX(i.id) FROM UserCacheInvalidation i")
+    Optional<Long> findMaxId();
+
+    @Query("SELECT i.id FROM UserCacheInvalidation i WHERE i.createdAt < :cutoff ORDER BY i.id")
+    List<Long> findIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+}
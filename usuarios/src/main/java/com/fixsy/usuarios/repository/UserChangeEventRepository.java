@@ -0,0 +1,24 @@
+package com.fixsy.usuarios.repository;
+
+import com.fixsy.usuarios.model.UserChangeEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserChangeEventRepository extends JpaRepository<UserChangeEvent, Long> {
+
+    /**
+     * Eventos posteriores a afterId en orden (rango sobre la clave primaria)
+     */
+    @Query("SELECT e FROM UserChangeEvent e WHERE e.id > :afterId ORDER BY e.id")
+    List<UserChangeEvent> findAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT e.id FROM UserChangeEvent e WHERE e.createdAt < :cutoff ORDER BY e.id")
+    List<Long> findIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+}
@@ -0,0 +1,9 @@
+package com.fixsy.usuarios.repository;
+
+/**
+ * Proyección para el login: las columnas de UserDTO más el hash de la contraseña.
+ * Es un record (expresión constructora en JPQL) y no una interfaz: se instancia directo desde la fila,
+ * sin proxy ni mapa intermedio, y no queda ninguna entidad en el contexto de persistencia
+ */
+public record UserCredentials(Long id, String email, String name, String phone, Long roleId, String password) {
+}
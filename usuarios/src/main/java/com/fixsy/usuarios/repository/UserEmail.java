@@ -0,0 +1,9 @@
+package com.fixsy.usuarios.repository;
+
+/**
+ * Proyección mínima (id y email) para recorrer todos los emails registrados
+ */
+public interface UserEmail {
+    Long getId();
+    String getEmail();
+}
@@ -1,14 +1,124 @@
 package com.fixsy.usuarios.repository;
 
 import com.fixsy.usuarios.model.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-    Optional<User> findByResetToken(String resetToken);
+
+    /**
+     * Datos del login en una sola lectura por el índice único de email, sin hidratar la entidad User
+     */
+    @Query("SELECT new com.fixsy.usuarios.repository.UserCredentials(u.id, u.email, u.name, u.phone, u.role.id, u.password) " +
+           "FROM User u WHERE u.email = :email")
+    Optional<UserCredentials> findCredentialsByEmail(@Param("email") String email);
+
+    /**
+     * Usuario bloqueado (SELECT ... FOR UPDATE) hasta el fin de la transacción: para
+     * actualizaciones condicionales (If-Match), donde la versión comprobada no debe cambiar antes del UPDATE
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Solo la versión (updatedAt) de un usuario, por clave primaria
+     */
+    @Query("SELECT u.id AS id, u.updatedAt AS updatedAt FROM User u WHERE u.id = :id")
+    Optional<UserVersion> findVersionById(@Param("id") Long id);
+
+    /*
+     * Páginas por keyset: usuarios con id > afterId en orden de id. El costo depende del tamaño de la página,
+     * no del de la tabla. Hay una consulta por combinación de filtros (sin filtros opcionales "IS NULL OR")
+     * para que cada una use su índice: la PK, o idx_users_role_id_created (role_id, id, created_at).
+     */
+
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.phone AS phone, u.role.id AS roleId FROM User u " +
+           "WHERE u.id > :afterId ORDER BY u.id")
+    List<UserSummary> findPage(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Recorre (role_id, id) desde afterId: igualdad en el rol y rango en el id, ya en orden
+     */
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.phone AS phone, u.role.id AS roleId FROM User u " +
+           "WHERE u.role.id = :roleId AND u.id > :afterId ORDER BY u.id")
+    List<UserSummary> findPageByRole(@Param("afterId") Long afterId, @Param("roleId") Long roleId, Limit limit);
+
+    /**
+     * Recorre la PK desde afterId y filtra por created_at. Los IDs crecen con el tiempo, así que las filas del
+     * rango quedan contiguas en orden de id: solo la primera página lee las filas anteriores a createdFrom
+     */
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.phone AS phone, u.role.id AS roleId FROM User u " +
+           "WHERE u.id > :afterId AND u.createdAt >= :createdFrom AND u.createdAt < :createdTo ORDER BY u.id")
+    List<UserSummary> findPageByCreatedAt(@Param("afterId") Long afterId,
+                                          @Param("createdFrom") LocalDateTime createdFrom,
+                                          @Param("createdTo") LocalDateTime createdTo,
+                                          Limit limit);
+
+    /**
+     * Recorre (role_id, id, created_at) desde afterId; la fecha se filtra en el mismo índice, sin leer la fila
+     */
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.phone AS phone, u.role.id AS roleId FROM User u " +
+           "WHERE u.role.id = :roleId AND u.id > :afterId " +
+           "AND u.createdAt >= :createdFrom AND u.createdAt < :createdTo ORDER BY u.id")
+    List<UserSummary> findPageByRoleAndCreatedAt(@Param("afterId") Long afterId,
+                                                 @Param("roleId") Long roleId,
+                                                 @Param("createdFrom") LocalDateTime createdFrom,
+                                                 @Param("createdTo") LocalDateTime createdTo,
+                                                 Limit limit);
+
+    /**
+     * Todos los usuarios en orden de ID, leídos de a 1000 filas con un cursor del servidor
+     * (en MySQL requiere useCursorFetch=true en la URL). Debe consumirse dentro de una transacción y cerrarse
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.phone AS phone, u.role.id AS roleId " +
+           "FROM User u ORDER BY u.id")
+    Stream<UserSummary> streamAllOrderById();
+
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.phone AS phone, u.role.id AS roleId " +
+           "FROM User u WHERE u.id IN :ids")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Emails (de la lista) que ya están registrados: una sola consulta por lote de importación
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Emails por keyset sobre el ID, para construir el filtro de emails registrados sin cargar entidades
+     */
+    @Query("SELECT u.id AS id, u.email AS email FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserEmail> findEmailsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT u.id AS id, u.email AS email FROM User u WHERE u.id = :id")
+    Optional<UserEmail> findEmailById(@Param("id") Long id);
+
+    /**
+     * Reemplaza el hash solo si no cambió desde que se leyó (evita pisar un cambio de contraseña concurrente)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
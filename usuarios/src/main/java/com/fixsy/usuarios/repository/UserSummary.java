@@ -0,0 +1,12 @@
+package com.fixsy.usuarios.repository;
+
+/**
+ * Proyección con las columnas de UserDTO (sin contraseña ni JOIN a roles)
+ */
+public interface UserSummary {
+    Long getId();
+    String getEmail();
+    String getName();
+    String getPhone();
+    Long getRoleId();
+}
@@ -0,0 +1,11 @@
+package com.fixsy.usuarios.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección mínima (id y fecha de última modificación) para responder GET condicionales sin leer el usuario
+ */
+public interface UserVersion {
+    Long getId();
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,62 @@
+package com.fixsy.usuarios.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fixsy.usuarios.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Emite tokens de acceso sin estado (JWT HS256 con id, rol y expiración) al iniciar sesión.
+ * Los demás servicios los validan con AccessTokenVerifier en lugar de consultar /api/users/{id}.
+ * Firma con la clave del verificador, que ya rechaza al arrancar un secreto ausente o corto.
+ */
+@Component
+public class AccessTokenService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AccessTokenVerifier verifier;
+    private final Duration ttl;
+
+    public AccessTokenService(AccessTokenVerifier verifier,
+                              @Value("${app.auth.token-ttl-minutes:60}") long ttlMinutes) {
+        this.verifier = verifier;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    /**
+     * Token emitido y su instante de expiración
+     */
+    public record IssuedToken(String token, Instant expiresAt) {
+    }
+
+    public IssuedToken issue(UserDTO user) {
+        Instant issuedAt = Instant.now();
+        Instant expiresAt = issuedAt.plus(ttl);
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", String.valueOf(user.getId()));
+        claims.put("role", user.getRole());
+        claims.put("iat", issuedAt.getEpochSecond());
+        claims.put("exp", expiresAt.getEpochSecond());
+
+        String payload;
+        try {
+            payload = AccessTokenVerifier.base64Url(MAPPER.writeValueAsBytes(claims));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el token", e);
+        }
+        String content = AccessTokenVerifier.HEADER + "." + payload;
+        return new IssuedToken(content + "." + AccessTokenVerifier.base64Url(verifier.sign(content)), expiresAt);
+    }
+
+    public AccessTokenClaims verify(String token) {
+        return verifier.verify(token);
+    }
+}
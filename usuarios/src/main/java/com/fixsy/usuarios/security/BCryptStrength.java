@@ -0,0 +1,64 @@
+package com.fixsy.usuarios.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Calibración del costo de BCrypt según el hardware donde corre el servicio.
+ *
+ * Cada punto de costo duplica el tiempo del hash, así que se mide desde el mínimo hacia arriba
+ * y se elige el mayor costo cuyo tiempo no supera el objetivo configurado.
+ */
+public final class BCryptStrength {
+
+    public static final String ENCODING_ID = "bcrypt";
+
+    private static final String SAMPLE_PASSWORD = "calibracion-fixsy";
+
+    private BCryptStrength() {
+    }
+
+    /**
+     * Retorna el mayor costo entre min y max cuyo hash tarda como máximo target
+     * (siempre al menos min)
+     */
+    public static int calibrate(Duration target, int min, int max) {
+        int chosen = min;
+        // Primera medición descartada: calienta el JIT para no subestimar el costo
+        measure(min);
+        for (int strength = min; strength <= max; strength++) {
+            long elapsed = Math.min(measure(strength), measure(strength));
+            if (elapsed > target.toNanos()) {
+                break;
+            }
+            chosen = strength;
+            // El siguiente costo tarda el doble: si ya no entra, no hace falta medirlo
+            if (elapsed * 2 > target.toNanos()) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Encoder con formato versionado {bcrypt}$2a$NN$...; los hashes sin prefijo (anteriores)
+     * se siguen validando como BCrypt y upgradeEncoding los marca para rehash.
+     */
+    public static PasswordEncoder versionedEncoder(int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(ENCODING_ID, Map.of(ENCODING_ID, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode(SAMPLE_PASSWORD);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,38 @@
+package com.fixsy.usuarios.security;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de una verificación de credenciales (com.fixsy.usuarios.Login).
+ *
+ * Su duración es la de verifyCredentials completo y los campos la reparten por fase, para
+ * cruzarla en JMC con los eventos de CPU, GC y JDBC del mismo hilo. No incluye el email.
+ */
+@Name("com.fixsy.usuarios.Login")
+@Label("Login")
+@Category({"Fixsy", "Usuarios"})
+@Description("Verificación de credenciales en POST /api/users/login")
+@StackTrace(false)
+class LoginEvent extends Event {
+
+    @Label("Resultado")
+    String outcome;
+
+    @Label("Búsqueda del usuario")
+    @Timespan(Timespan.NANOSECONDS)
+    long lookup;
+
+    @Label("Comparación BCrypt")
+    @Timespan(Timespan.NANOSECONDS)
+    long hash;
+
+    @Label("Conversión a DTO")
+    @Timespan(Timespan.NANOSECONDS)
+    long mapping;
+}
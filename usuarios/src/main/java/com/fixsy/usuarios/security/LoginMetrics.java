@@ -0,0 +1,106 @@
+package com.fixsy.usuarios.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de verifyCredentials para dimensionar la CPU de los picos de login.
+ *
+ * users.login.phase (histograma, tag phase): lookup = findByEmail, hash = passwordEncoder.matches
+ * (incluye la espera en el pool de BCrypt, ver users.password.hash.wait), mapping = conversión a DTO.
+ * users.login.attempts (tag outcome): success, bad_password, unknown_email o error (p. ej. pool saturado).
+ * Cada intento emite además un evento JFR com.fixsy.usuarios.Login (ver LoginEvent).
+ */
+@Component
+public class LoginMetrics {
+
+    public enum Outcome {
+        SUCCESS, BAD_PASSWORD, UNKNOWN_EMAIL, ERROR
+    }
+
+    private final Timer lookupTimer;
+    private final Timer hashTimer;
+    private final Timer mappingTimer;
+    private final Map<Outcome, Counter> attempts = new EnumMap<>(Outcome.class);
+
+    public LoginMetrics(MeterRegistry registry) {
+        this.lookupTimer = phaseTimer("lookup", registry);
+        this.hashTimer = phaseTimer("hash", registry);
+        this.mappingTimer = phaseTimer("mapping", registry);
+        for (Outcome outcome : Outcome.values()) {
+            attempts.put(outcome, Counter.builder("users.login.attempts")
+                    .description("Intentos de login verificados, por resultado")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Inicia la medición de un intento; se cierra con try-with-resources. Si no se marca un
+     * resultado antes de cerrar (excepción inesperada), se cuenta como error
+     */
+    public Attempt start() {
+        return new Attempt(this);
+    }
+
+    private static Timer phaseTimer(String phase, MeterRegistry registry) {
+        return Timer.builder("users.login.phase")
+                .description("Duración de cada fase de la verificación de credenciales")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public static final class Attempt implements AutoCloseable {
+        private final LoginMetrics metrics;
+        private final LoginEvent event = new LoginEvent();
+        private long mark = System.nanoTime();
+        private Outcome outcome = Outcome.ERROR;
+
+        private Attempt(LoginMetrics metrics) {
+            this.metrics = metrics;
+            event.begin();
+        }
+
+        public void lookedUp() {
+            event.lookup = lap(metrics.lookupTimer);
+        }
+
+        public void hashed() {
+            event.hash = lap(metrics.hashTimer);
+        }
+
+        public void mapped() {
+            event.mapping = lap(metrics.mappingTimer);
+        }
+
+        public void outcome(Outcome outcome) {
+            this.outcome = outcome;
+        }
+
+        @Override
+        public void close() {
+            metrics.attempts.get(outcome).increment();
+            event.end();
+            if (event.shouldCommit()) {
+                event.outcome = outcome.name();
+                event.commit();
+            }
+        }
+
+        private long lap(Timer timer) {
+            long now = System.nanoTime();
+            long elapsed = now - mark;
+            mark = now;
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+            return elapsed;
+        }
+    }
+}
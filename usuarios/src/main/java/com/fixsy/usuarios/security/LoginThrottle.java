@@ -0,0 +1,248 @@
+package com.fixsy.usuarios.security;
+
+import com.fixsy.usuarios.model.LoginBackoff;
+import com.fixsy.usuarios.repository.LoginBackoffRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limitador de intentos de login por email y por IP, evaluado antes de consultar la BD o calcular BCrypt.
+ *
+ * Cada clave usa una ventana deslizante aproximada (ventana actual + fracción de la anterior),
+ * guardada en mapas LRU repartidos en franjas con su propio lock para no serializar todos los logins.
+ * Al superar el límite la clave recibe un bloqueo que se duplica con cada reincidencia;
+ * ese estado se persiste en login_backoff para que un reinicio no lo borre.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final int STRIPES = 64;
+
+    private final Limit emailLimit;
+    private final Limit ipLimit;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long strikeDecayMillis;
+    private final LoginBackoffRepository backoffRepository;
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ConcurrentHashMap<String, Long> blockedUntil = new ConcurrentHashMap<>();
+    private final int maxKeys;
+
+    @Autowired
+    public LoginThrottle(
+            LoginBackoffRepository backoffRepository,
+            @Value("${app.login-throttle.email.max-attempts:5}") int emailMaxAttempts,
+            @Value("${app.login-throttle.email.window-seconds:300}") long emailWindowSeconds,
+            @Value("${app.login-throttle.ip.max-attempts:50}") int ipMaxAttempts,
+            @Value("${app.login-throttle.ip.window-seconds:60}") long ipWindowSeconds,
+            @Value("${app.login-throttle.backoff.base-seconds:60}") long baseBackoffSeconds,
+            @Value("${app.login-throttle.backoff.max-seconds:86400}") long maxBackoffSeconds,
+            @Value("${app.login-throttle.backoff.decay-hours:24}") long strikeDecayHours,
+            @Value("${app.login-throttle.max-keys:100000}") int maxKeys) {
+        this(backoffRepository,
+                new Limit(emailMaxAttempts, Duration.ofSeconds(emailWindowSeconds)),
+                new Limit(ipMaxAttempts, Duration.ofSeconds(ipWindowSeconds)),
+                Duration.ofSeconds(baseBackoffSeconds), Duration.ofSeconds(maxBackoffSeconds),
+                Duration.ofHours(strikeDecayHours), maxKeys, System::currentTimeMillis);
+    }
+
+    LoginThrottle(LoginBackoffRepository backoffRepository, Limit emailLimit, Limit ipLimit,
+                  Duration baseBackoff, Duration maxBackoff, Duration strikeDecay, int maxKeys, LongSupplier clock) {
+        this.backoffRepository = backoffRepository;
+        this.emailLimit = emailLimit;
+        this.ipLimit = ipLimit;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.strikeDecayMillis = strikeDecay.toMillis();
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxKeys / STRIPES));
+        }
+
+        // Bloqueos aún vigentes de una ejecución anterior
+        for (LoginBackoff backoff : backoffRepository.findByBlockedUntilAfter(Instant.ofEpochMilli(clock.getAsLong()))) {
+            blockedUntil.put(backoff.getKey(), backoff.getBlockedUntil().toEpochMilli());
+        }
+    }
+
+    /**
+     * Registra un intento de login; retorna 0 si puede continuar o los segundos que debe esperar el cliente
+     */
+    public long tryAcquire(String email, String clientIp) {
+        long now = clock.getAsLong();
+        String emailKey = email != null ? "email:" + email.trim().toLowerCase(Locale.ROOT) : null;
+        String ipKey = clientIp != null ? "ip:" + clientIp : null;
+
+        long wait = Math.max(remainingBlock(emailKey, now), remainingBlock(ipKey, now));
+        if (wait > 0) {
+            return toSeconds(wait);
+        }
+        if (ipKey != null && !record(ipKey, ipLimit, now)) {
+            return toSeconds(strike(ipKey, now));
+        }
+        if (emailKey != null && !record(emailKey, emailLimit, now)) {
+            return toSeconds(strike(emailKey, now));
+        }
+        return 0;
+    }
+
+    /**
+     * Login correcto: el email deja de acumular intentos (la IP no, puede ser compartida por un atacante)
+     */
+    public void onSuccess(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = "email:" + email.trim().toLowerCase(Locale.ROOT);
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            stripe.windows.remove(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private long remainingBlock(String key, long now) {
+        if (key == null) {
+            return 0;
+        }
+        Long until = blockedUntil.get(key);
+        if (until == null) {
+            return 0;
+        }
+        if (until <= now) {
+            blockedUntil.remove(key, until);
+            return 0;
+        }
+        return until - now;
+    }
+
+    /**
+     * Suma el intento a la ventana de la clave; false si ya alcanzó el límite (el intento no se cuenta)
+     */
+    private boolean record(String key, Limit limit, long now) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Window window = stripe.windows.computeIfAbsent(key, k -> new Window(now));
+            long windowMillis = limit.window().toMillis();
+            window.advance(now, windowMillis);
+            if (window.estimate(now, windowMillis) + 1 > limit.maxAttempts()) {
+                return false;
+            }
+            window.current++;
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Bloquea la clave con backoff exponencial según sus reincidencias recientes y lo persiste.
+     * La decisión se toma con el lock de la franja de la clave, para que una ráfaga concurrente sobre
+     * la misma clave cuente una sola reincidencia; la lectura y el guardado en la BD quedan fuera del lock.
+     */
+    private long strike(String key, long now) {
+        long pending = remainingBlock(key, now);
+        if (pending > 0) {
+            return pending;
+        }
+
+        LoginBackoff backoff = backoffRepository.findById(key).orElseGet(() -> new LoginBackoff(key));
+        long duration;
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            pending = remainingBlock(key, now);
+            if (pending > 0) {
+                // Otro intento concurrente ya bloqueó la clave
+                return pending;
+            }
+            boolean recent = backoff.getLastStrikeAt() != null
+                    && now - backoff.getLastStrikeAt().toEpochMilli() < strikeDecayMillis;
+            int strikes = recent ? backoff.getStrikes() + 1 : 1;
+            duration = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(strikes - 1, 30));
+
+            backoff.setStrikes(strikes);
+            backoff.setLastStrikeAt(Instant.ofEpochMilli(now));
+            backoff.setBlockedUntil(Instant.ofEpochMilli(now + duration));
+
+            if (blockedUntil.size() >= maxKeys) {
+                blockedUntil.values().removeIf(until -> until <= now);
+            }
+            blockedUntil.put(key, now + duration);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        backoffRepository.save(backoff);
+        return duration;
+    }
+
+    private Stripe stripeFor(String key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    private static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    record Limit(int maxAttempts, Duration window) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Window> windows;
+
+        Stripe(int capacity) {
+            this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
+    private static final class Window {
+        private long start;
+        private int current;
+        private int previous;
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        void advance(long now, long windowMillis) {
+            long elapsed = (now - start) / windowMillis;
+            if (elapsed == 1) {
+                previous = current;
+                current = 0;
+                start += windowMillis;
+            } else if (elapsed > 1) {
+                previous = 0;
+                current = 0;
+                start = now;
+            }
+        }
+
+        double estimate(long now, long windowMillis) {
+            double previousWeight = 1.0 - (double) (now - start) / windowMillis;
+            return previous * previousWeight + current;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.fixsy.usuarios.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal por el que las réplicas se avisan de los usuarios creados, modificados o eliminados, para descartar
+ * sus copias en caché y actualizar sus estructuras locales (filtro de emails, índice de búsqueda). La implementación por defecto es DbInvalidationLog (tabla sondeada);
+ * otra (p. ej. un broker de mensajes) se registra como bean y se elige con
+ * app.user-cache.invalidation.transport.
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Anuncia que el usuario se creó o cambió. Se llama dentro de la transacción del cambio, si la hay:
+     * el aviso no debe llegar a las demás réplicas si esa transacción se revierte.
+     */
+    void publish(Long userId);
+
+    /**
+     * Registra un listener para los avisos de las demás réplicas (no los de esta)
+     */
+    void subscribe(Consumer<Long> listener);
+}
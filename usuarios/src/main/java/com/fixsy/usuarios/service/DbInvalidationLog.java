@@ -0,0 +1,148 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.UserCacheInvalidation;
+import com.fixsy.usuarios.repository.UserCacheInvalidationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Invalidaciones entre réplicas a través de la tabla user_cache_invalidations, sondeada cada
+ * poll-interval-ms con una consulta por rango de ID (sin servidor de caché ni broker compartido).
+ * Además de la caché, de aquí se alimentan el filtro de emails y el índice de búsqueda.
+ *
+ * Un ID autoincremental se asigna al insertar, no al confirmar, así que una entrada con ID menor
+ * puede aparecer después que una mayor. Cada entrada se aplica en cuanto se lee, pero el cursor
+ * solo avanza sobre IDs consecutivos: se detiene en un hueco hasta que se llena o hasta que persiste
+ * más de gap-timeout-ms (medido con el reloj monotónico de esta réplica desde que lo vio; se asume
+ * que la transacción se revirtió). No depende de created_at ni de que los relojes de las réplicas
+ * coincidan. Supone IDs consecutivos (auto_increment_increment = 1) y transacciones de escritura
+ * más cortas que gap-timeout-ms.
+ *
+ * Si un listener falla, la entrada no se da por aplicada y el cursor no la pasa: se reintenta en el
+ * siguiente sondeo con todos los listeners (deben ser idempotentes), sin frenar al resto del lote.
+ */
+@Component
+@ConditionalOnProperty(name = "app.user-cache.invalidation.transport", havingValue = "db", matchIfMissing = true)
+public class DbInvalidationLog implements CacheInvalidationTransport {
+
+    @Autowired
+    private UserCacheInvalidationRepository invalidationRepository;
+
+    @Value("${app.user-cache.invalidation.gap-timeout-ms:60000}")
+    private long gapTimeoutMillis = 60000;
+
+    @Value("${app.user-cache.invalidation.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${app.user-cache.invalidation.retention-minutes:10}")
+    private long retentionMinutes = 10;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    // Estado del sondeo (solo lo toca poll): cursor = -1 hasta el primer sondeo
+    private long cursor = -1;
+    private final Set<Long> appliedAfterCursor = new HashSet<>();
+    // Huecos vistos, por ID de la entrada que los sigue -> System.nanoTime() de la primera vez
+    private final Map<Long, Long> gapsSeenAt = new HashMap<>();
+
+    @Override
+    public void publish(Long userId) {
+        invalidationRepository.save(new UserCacheInvalidation(null, userId, nodeId, LocalDateTime.now()));
+    }
+
+    @Override
+    public void subscribe(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Lee las entradas nuevas y avisa a los listeners de las hechas por otras réplicas
+     */
+    @Scheduled(fixedDelayString = "${app.user-cache.invalidation.poll-interval-ms:300}")
+    public synchronized void poll() {
+        if (cursor < 0) {
+            // Al arrancar la caché está vacía: basta con seguir desde el final del log
+            cursor = invalidationRepository.findMaxId().orElse(0L);
+            return;
+        }
+
+        long now = System.nanoTime();
+        boolean advancing = true;
+        for (UserCacheInvalidation entry : invalidationRepository.findAfter(cursor, Limit.of(batchSize))) {
+            long id = entry.getId();
+            boolean applied = appliedAfterCursor.contains(id) || apply(entry);
+            if (applied) {
+                appliedAfterCursor.add(id);
+            }
+            if (advancing && applied && (id == cursor + 1 || gapExpired(id, now))) {
+                cursor = id;
+            } else {
+                advancing = false;
+            }
+        }
+        appliedAfterCursor.removeIf(id -> id <= cursor);
+        gapsSeenAt.keySet().removeIf(id -> id <= cursor);
+    }
+
+    /**
+     * true si todos los listeners procesaron la entrada (las propias no se notifican)
+     */
+    private boolean apply(UserCacheInvalidation entry) {
+        if (nodeId.equals(entry.getNodeId())) {
+            return true;
+        }
+        boolean applied = true;
+        for (Consumer<Long> listener : listeners) {
+            try {
+                listener.accept(entry.getUserId());
+            } catch (RuntimeException e) {
+                // Se reintenta en el próximo sondeo; los demás listeners y entradas siguen
+                applied = false;
+            }
+        }
+        return applied;
+    }
+
+    private boolean gapExpired(long nextId, long now) {
+        Long seenAt = gapsSeenAt.putIfAbsent(nextId, now);
+        return seenAt != null && now - seenAt >= gapTimeoutMillis * 1_000_000;
+    }
+
+    /**
+     * Elimina por lotes las entradas más antiguas que la retención (ya las leyeron todas las réplicas activas)
+     */
+    @Scheduled(fixedDelayString = "${app.user-cache.invalidation.purge-interval-ms:60000}",
+            initialDelayString = "${app.user-cache.invalidation.purge-interval-ms:60000}")
+    public int purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        int deleted = 0;
+        List<Long> ids;
+        do {
+            ids = invalidationRepository.findIdsCreatedBefore(cutoff, Limit.of(batchSize));
+            if (!ids.isEmpty()) {
+                invalidationRepository.deleteAllByIdInBatch(ids);
+                deleted += ids.size();
+            }
+        } while (ids.size() == batchSize);
+        return deleted;
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,196 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.model.RoleType;
+import com.fixsy.usuarios.model.User;
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Directorio de mecánicos en memoria para GET /api/users/mechanics.
+ *
+ * La lista completa se guarda como una instantánea inmutable con un ETag calculado sobre su
+ * contenido (igual en todas las réplicas), así que un sondeo sin cambios responde 304 sin tocar la BD.
+ * Altas, cambios y bajas que afectan a un mecánico invalidan la instantánea y la siguiente lectura
+ * la reconstruye. max-age-seconds acota cuánto puede tardar en verse un cambio hecho en otra réplica.
+ */
+@Component
+public class MechanicDirectory {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Value("${app.mechanic-directory.max-age-seconds:30}")
+    private long maxAgeSeconds = 30;
+
+    @Value("${app.mechanic-directory.batch-size:1000}")
+    private int batchSize = 1000;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Se incrementa con cada cambio relevante; una instantánea es válida si se cargó con la generación actual
+    private final AtomicLong generation = new AtomicLong();
+    private final LongSupplier clock;
+    private volatile Loaded current;
+
+    public MechanicDirectory() {
+        this(System::currentTimeMillis);
+    }
+
+    MechanicDirectory(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Instantánea vigente. Si está desactualizada la reconstruye un solo hilo; mientras tanto
+     * los demás siguen respondiendo con la anterior
+     */
+    public Snapshot snapshot() {
+        Loaded loaded = current;
+        if (loaded != null && isFresh(loaded)) {
+            return loaded.snapshot();
+        }
+        if (loaded != null && !rebuildLock.tryLock()) {
+            return loaded.snapshot();
+        }
+        if (loaded == null) {
+            rebuildLock.lock();
+        }
+        try {
+            loaded = current;
+            if (loaded == null || !isFresh(loaded)) {
+                loaded = load();
+                current = loaded;
+            }
+            return loaded.snapshot();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Un usuario creado o modificado: afecta al directorio si ahora es mecánico o si lo era
+     */
+    public void onSaved(User user) {
+        Long roleId = user.getRole() != null ? user.getRole().getId() : null;
+        if (roleRegistry.get(RoleType.MECHANIC).getId().equals(roleId) || listed(user.getId())) {
+            invalidate();
+        }
+    }
+
+    public void onDeleted(Long id) {
+        if (listed(id)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Invalida ahora y de nuevo tras el commit: una recarga concurrente pudo leer la versión anterior
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    private boolean listed(Long id) {
+        Loaded loaded = current;
+        // Sin instantánea cargada no hay nada que invalidar: la próxima lectura ya carga
+        return loaded != null && loaded.ids().contains(id);
+    }
+
+    private boolean isFresh(Loaded loaded) {
+        return loaded.generation() == generation.get()
+                && clock.getAsLong() - loaded.loadedAt() < maxAgeSeconds * 1000;
+    }
+
+    private Loaded load() {
+        long loadedGeneration = generation.get();
+        long loadedAt = clock.getAsLong();
+        Long roleId = roleRegistry.get(RoleType.MECHANIC).getId();
+        List<UserDTO> mechanics = new ArrayList<>();
+        List<UserSummary> page;
+        long afterId = 0L;
+        do {
+            page = userRepository.findPageByRole(afterId, roleId, Limit.of(batchSize));
+            for (UserSummary user : page) {
+                mechanics.add(new UserDTO(user.getId(), user.getEmail(), user.getName(), user.getPhone(),
+                        RoleType.MECHANIC.name()));
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == batchSize);
+        Set<Long> ids = mechanics.stream().map(UserDTO::getId).collect(Collectors.toUnmodifiableSet());
+        return new Loaded(new Snapshot(List.copyOf(mechanics), etagOf(mechanics)), ids, loadedGeneration, loadedAt);
+    }
+
+    /**
+     * ETag fuerte: SHA-256 de los campos visibles de cada mecánico, en orden de ID
+     */
+    static String etagOf(List<UserDTO> mechanics) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (UserDTO user : mechanics) {
+                String row = user.getId() + "\u0000" + user.getEmail() + "\u0000" + user.getName()
+                        + "\u0000" + user.getPhone() + "\u0000" + user.getRole() + "\n";
+                digest.update(row.getBytes(StandardCharsets.UTF_8));
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public record Snapshot(List<UserDTO> mechanics, String etag) {
+
+        /**
+         * Evalúa un header If-None-Match ("*", uno o varios ETags, débiles o fuertes)
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.strip();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || Objects.equals(candidate, etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Loaded(Snapshot snapshot, Set<Long> ids, long generation, long loadedAt) {
+    }
+}
@@ -0,0 +1,253 @@
+package com.fixsy.usuarios.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché LRU acotada con TTL y carga bajo demanda.
+ *
+ * Las lecturas concurrentes de una misma clave que no está en caché esperan a una única carga
+ * (evita que un pico sobre la misma clave llegue N veces a la BD). Los errores no se guardan.
+ * Invalidar una clave descarta también el resultado de su carga en curso, para no volver a guardar
+ * un valor leído antes del cambio; las cargas de otras claves no se ven afectadas. La comprobación
+ * y el guardado ocurren bajo el mismo lock que la invalidación, así que no hay carrera entre ambos.
+ *
+ * Opcionalmente mantiene un índice inverso (p. ej. id del usuario -> email usado como clave) para
+ * invalidar por ese valor sin recorrer la caché.
+ */
+class ReadThroughCache<K, V> {
+
+    private final IntSupplier maxSize;
+    private final LongSupplier ttlMillis;
+    private final Function<V, ?> indexKeyOf;
+
+    // Las entradas, el índice inverso y las marcas de las cargas en curso se protegen con el lock de entries
+    private final Map<K, Entry<V>> entries;
+    private final Map<Object, K> keysByIndex = new HashMap<>();
+    private final ConcurrentHashMap<K, Load> inFlight = new ConcurrentHashMap<>();
+
+    ReadThroughCache(IntSupplier maxSize, LongSupplier ttlMillis) {
+        this(maxSize, ttlMillis, null);
+    }
+
+    /**
+     * @param indexKeyOf clave del índice inverso de cada valor (ver invalidateByIndex); null sin índice
+     */
+    ReadThroughCache(IntSupplier maxSize, LongSupplier ttlMillis, Function<V, ?> indexKeyOf) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.indexKeyOf = indexKeyOf;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ReadThroughCache.this.maxSize.getAsInt()) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Retorna el valor en caché o lo carga con loader (una sola carga por clave a la vez)
+     */
+    V get(K key, Function<K, V> loader) {
+        while (true) {
+            Entry<V> cached = entries.get(key);
+            if (cached != null && !cached.isExpired()) {
+                return cached.value();
+            }
+
+            Load load = new Load();
+            Load existing = inFlight.putIfAbsent(key, load);
+            if (existing == null) {
+                return load(key, load, loader);
+            }
+            V value = await(existing.result);
+            if (value != null) {
+                return value;
+            }
+            // Era la carga de un lote (getAll) que no encontró la clave: se carga con este loader
+        }
+    }
+
+    /**
+     * Valor en caché sin cargarlo (null si no está o expiró)
+     */
+    V getIfPresent(K key) {
+        Entry<V> cached = entries.get(key);
+        return cached != null && !cached.isExpired() ? cached.value() : null;
+    }
+
+    /**
+     * Variante por lotes: retorna lo que está en caché y carga el resto con una sola llamada a loader.
+     * Las claves que ya se están cargando esperan esa carga; las que no se encuentran quedan fuera del resultado.
+     */
+    Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> loader) {
+        Map<K, V> found = new HashMap<>();
+        Map<K, Load> mine = new LinkedHashMap<>();
+        Map<K, Load> others = new HashMap<>();
+        for (K key : keys) {
+            Entry<V> cached = entries.get(key);
+            if (cached != null && !cached.isExpired()) {
+                found.put(key, cached.value());
+            } else if (!mine.containsKey(key) && !others.containsKey(key)) {
+                Load load = new Load();
+                Load existing = inFlight.putIfAbsent(key, load);
+                if (existing == null) {
+                    mine.put(key, load);
+                } else {
+                    others.put(key, existing);
+                }
+            }
+        }
+
+        if (!mine.isEmpty()) {
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(mine.keySet()));
+                mine.forEach((key, load) -> {
+                    V value = loaded.get(key);
+                    if (value != null) {
+                        store(key, load, value);
+                        found.put(key, value);
+                    }
+                    load.result.complete(value);
+                });
+            } catch (RuntimeException e) {
+                mine.values().forEach(load -> load.result.completeExceptionally(e));
+                throw e;
+            } finally {
+                mine.forEach(inFlight::remove);
+            }
+        }
+
+        // Las cargas ajenas ya terminadas o en curso: su error (p. ej. no encontrado) deja la clave fuera
+        others.forEach((key, load) -> {
+            try {
+                V value = await(load.result);
+                if (value != null) {
+                    found.put(key, value);
+                }
+            } catch (RuntimeException e) {
+                // Sin valor para esta clave
+            }
+        });
+
+        // Mismo orden que las claves solicitadas
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Elimina la clave y descarta el resultado de su carga en curso; quien ya la esperaba recibe
+     * ese valor, pero las lecturas siguientes vuelven a cargarla
+     */
+    void invalidate(K key) {
+        synchronized (entries) {
+            unindex(key, entries.remove(key));
+            Load load = inFlight.remove(key);
+            if (load != null) {
+                load.invalidated = true;
+            }
+        }
+    }
+
+    /**
+     * Elimina la entrada cuyo valor tiene esa clave de índice. Las cargas en curso no se pueden
+     * ubicar por índice antes de leer su valor: se les anota la clave y no guardan un valor que la tenga
+     */
+    void invalidateByIndex(Object indexKey) {
+        synchronized (entries) {
+            K key = keysByIndex.get(indexKey);
+            if (key != null) {
+                invalidate(key);
+            }
+            for (Load load : inFlight.values()) {
+                load.invalidatedIndexKeys.add(indexKey);
+            }
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private V load(K key, Load load, Function<K, V> loader) {
+        try {
+            V value = loader.apply(key);
+            store(key, load, value);
+            load.result.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    private void store(K key, Load load, V value) {
+        synchronized (entries) {
+            if (maxSize.getAsInt() <= 0 || value == null || load.invalidated
+                    || (indexKeyOf != null && load.invalidatedIndexKeys.contains(indexKeyOf.apply(value)))) {
+                return;
+            }
+            unindex(key, entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis.getAsLong())));
+            if (indexKeyOf != null) {
+                keysByIndex.put(indexKeyOf.apply(value), key);
+            }
+        }
+    }
+
+    // Llamado con el lock de entries tomado
+    private void unindex(K key, Entry<V> removed) {
+        if (indexKeyOf != null && removed != null) {
+            keysByIndex.remove(indexKeyOf.apply(removed.value()), key);
+        }
+    }
+
+    private V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Carga en curso de una clave; las marcas de invalidación se leen y escriben con el lock de entries
+     */
+    private final class Load {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        boolean invalidated;
+        final Set<Object> invalidatedIndexKeys = new HashSet<>();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.repository.UserEmail;
+import com.fixsy.usuarios.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filtro de Bloom con los emails registrados (normalizados), para responder "email libre" sin ir a la BD.
+ *
+ * Un positivo puede ser falso y se confirma con la BD. Las altas y cambios de email locales se agregan
+ * al momento y otra vez tras el commit, así una reconstrucción en curso no las pierde; las de otras
+ * réplicas llegan por el transporte de invalidaciones, con el retraso de su sondeo. Un negativo es
+ * definitivo salvo en esa ventana, que la restricción única de la BD cubre igual al insertar.
+ * Como no se puede borrar de un filtro de Bloom, las bajas solo se cuentan y el filtro se reconstruye
+ * desde la BD cuando acumula demasiadas, cuando supera su capacidad o cuando cumple max-age.
+ */
+@Component
+public class RegisteredEmailFilter {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheInvalidationTransport invalidationTransport;
+
+    @Value("${app.email-filter.expected-emails:1000000}")
+    private int expectedEmails = 1000000;
+
+    @Value("${app.email-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    @Value("${app.email-filter.batch-size:5000}")
+    private int batchSize = 5000;
+
+    @Value("${app.email-filter.max-stale-ratio:0.1}")
+    private double maxStaleRatio = 0.1;
+
+    @Value("${app.email-filter.max-age-minutes:60}")
+    private long maxAgeMinutes = 60;
+
+    // null hasta la primera construcción: mientras tanto todo se consulta en la BD
+    private volatile BloomFilter current;
+    private volatile BloomFilter rebuilding;
+    private volatile long builtAt;
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+
+    /**
+     * false si el email seguro no está registrado; true si puede estarlo (hay que confirmar en la BD)
+     */
+    public boolean mightContain(String email) {
+        BloomFilter filter = current;
+        return filter == null || filter.mightContain(normalize(email));
+    }
+
+    /**
+     * Registra un email nuevo (alta o cambio de email)
+     */
+    public void add(String email) {
+        String normalized = normalize(email);
+        put(normalized);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(normalized);
+                }
+            });
+        }
+    }
+
+    /**
+     * Un email dejó de estar registrado (baja o cambio de email); queda en el filtro hasta reconstruirlo
+     */
+    public void markStale() {
+        staleEntries.incrementAndGet();
+    }
+
+    /**
+     * Las altas y cambios de email de otras réplicas se leen de la BD por ID y se agregan al filtro;
+     * si el usuario ya no existe, la notificación era una baja
+     */
+    @PostConstruct
+    void subscribeToRemoteChanges() {
+        invalidationTransport.subscribe(this::learnRemoteChange);
+    }
+
+    void learnRemoteChange(Long userId) {
+        userRepository.findEmailById(userId).ifPresentOrElse(
+                user -> put(normalize(user.getEmail())),
+                this::markStale);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.email-filter.check-interval-ms:300000}",
+            initialDelayString = "${app.email-filter.check-interval-ms:300000}")
+    public void rebuildIfNeeded() {
+        BloomFilter filter = current;
+        if (filter == null
+                || staleEntries.get() > filter.insertions() * maxStaleRatio
+                || filter.insertions() > filter.expectedInsertions()
+                || System.currentTimeMillis() - builtAt > maxAgeMinutes * 60_000) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Construye un filtro nuevo recorriendo los emails por keyset y lo publica al terminar.
+     * Las altas concurrentes se escriben en ambos filtros mientras dura la construcción.
+     * Si ya hay una construcción en curso no se inicia otra: la que corre recoge los mismos emails.
+     */
+    public void rebuild() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildNow();
+        } finally {
+            rebuildRunning.set(false);
+        }
+    }
+
+    private void rebuildNow() {
+        long registered = userRepository.count();
+        BloomFilter next = new BloomFilter((int) Math.min(Integer.MAX_VALUE, Math.max(expectedEmails, registered * 2)),
+                falsePositiveRate);
+        long stale = staleEntries.get();
+        rebuilding = next;
+        try {
+            long afterId = 0L;
+            List<UserEmail> page;
+            do {
+                page = userRepository.findEmailsAfter(afterId, Limit.of(batchSize));
+                for (UserEmail user : page) {
+                    next.put(normalize(user.getEmail()));
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == batchSize);
+
+            current = next;
+            builtAt = System.currentTimeMillis();
+            staleEntries.addAndGet(-stale);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private void put(String normalized) {
+        // Primero el filtro en construcción: si aún no existía, su recorrido empieza después y ya ve este email
+        BloomFilter next = rebuilding;
+        BloomFilter filter = current;
+        if (next != null) {
+            next.put(normalized);
+        }
+        if (filter != null && filter != next) {
+            filter.put(normalized);
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,52 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.repository.PasswordResetTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Elimina periódicamente los tokens de recuperación vencidos.
+ *
+ * Borra por lotes acotados (una transacción corta por lote) para no bloquear la tabla
+ * ni generar una transacción enorme cuando se acumularon muchos tokens.
+ */
+@Component
+public class ResetTokenSweeper {
+
+    @Autowired
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Value("${app.reset-tokens.sweep-batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${app.reset-tokens.sweep-max-batches:50}")
+    private int maxBatches = 50;
+
+    /**
+     * Retorna cuántos tokens se eliminaron; lo que quede pendiente se borra en la siguiente ejecución
+     */
+    @Scheduled(fixedDelayString = "${app.reset-tokens.sweep-interval-ms:600000}",
+            initialDelayString = "${app.reset-tokens.sweep-interval-ms:600000}")
+    public int sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<String> expired = resetTokenRepository.findExpiredHashes(now, Limit.of(batchSize));
+            if (expired.isEmpty()) {
+                break;
+            }
+            resetTokenRepository.deleteAllByIdInBatch(expired);
+            deleted += expired.size();
+            if (expired.size() < batchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,86 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.Role;
+import com.fixsy.usuarios.model.RoleType;
+import com.fixsy.usuarios.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registro inmutable de roles cargado una sola vez al arrancar.
+ *
+ * RoleType es un enum cerrado, así que los roles que falten en la tabla se crean al iniciar
+ * y después nunca se vuelve a consultar roles: altas y cambios de rol usan este mapa,
+ * y las lecturas resuelven el nombre del rol por role_id sin JOIN.
+ */
+@Component
+public class RoleRegistry {
+
+    private final Map<RoleType, Role> byType;
+    private final Map<Long, RoleType> typeById;
+
+    @Autowired
+    public RoleRegistry(RoleRepository roleRepository) {
+        Map<RoleType, Role> roles = new EnumMap<>(RoleType.class);
+        roleRepository.findAll().forEach(role -> roles.put(role.getName(), role));
+        for (RoleType type : RoleType.values()) {
+            roles.computeIfAbsent(type, missing -> roleRepository.save(new Role(missing, missing.getDescription())));
+        }
+        this.byType = Collections.unmodifiableMap(roles);
+        this.typeById = indexById(roles.values());
+    }
+
+    public RoleRegistry(Collection<Role> roles) {
+        Map<RoleType, Role> map = new EnumMap<>(RoleType.class);
+        roles.forEach(role -> map.put(role.getName(), role));
+        this.byType = Collections.unmodifiableMap(map);
+        this.typeById = indexById(map.values());
+    }
+
+    public Role get(RoleType type) {
+        Role role = byType.get(type);
+        if (role == null) {
+            throw new IllegalStateException("Rol no registrado: " + type);
+        }
+        return role;
+    }
+
+    /**
+     * Rol a partir de su nombre (sin distinguir mayúsculas), con CLIENT como valor por defecto
+     */
+    public Role resolve(String roleName) {
+        RoleType type;
+        try {
+            type = RoleType.valueOf(roleName.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            type = RoleType.CLIENT; // Rol por defecto
+        }
+        return get(type);
+    }
+
+    /**
+     * Nombre del rol de un usuario a partir de su id (no inicializa el proxy LAZY de la relación)
+     */
+    public String nameOf(Role role) {
+        return role == null ? null : nameOf(role.getId());
+    }
+
+    public String nameOf(Long roleId) {
+        RoleType type = roleId == null ? null : typeById.get(roleId);
+        return type != null ? type.name() : null;
+    }
+
+    private static Map<Long, RoleType> indexById(Collection<Role> roles) {
+        Map<Long, RoleType> index = new HashMap<>();
+        roles.stream()
+                .filter(role -> role.getId() != null)
+                .forEach(role -> index.put(role.getId(), role.getName()));
+        return Map.copyOf(index);
+    }
+}
@@ -0,0 +1,224 @@
+package com.fixsy.usuarios.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de trigramas sobre un texto por documento (usuario).
+ *
+ * El texto se guarda como " token1 token2 ..." (espacio inicial), así que el trigrama " ab"
+ * marca un comienzo de palabra y sirve para búsquedas por prefijo de 2 caracteres.
+ * Los documentos se numeran de forma densa y las listas de postings son arreglos de int.
+ * Actualizar o eliminar deja una lápida; las listas se compactan al reconstruir el índice.
+ */
+class TrigramIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<Long, Integer> docById = new HashMap<>();
+    private final List<Long> ids = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    // Durante la carga inicial: IDs modificados directamente, que la carga no debe pisar
+    private final Set<Long> touched = new HashSet<>();
+    private boolean loading = true;
+    private int tombstones;
+
+    /**
+     * Indexa (o reemplaza) el texto de un usuario
+     */
+    void put(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                touched.add(id);
+            }
+            removeLocked(id);
+            addLocked(id, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Variante para la carga inicial: ignora los usuarios que ya fueron actualizados o eliminados
+     * mientras se cargaba (esa versión es más reciente que la leída de la BD)
+     */
+    void load(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            if (!touched.contains(id) && !docById.containsKey(id)) {
+                addLocked(id, text);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                touched.add(id);
+            }
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * La carga terminó: ya no hace falta recordar qué IDs se tocaron
+     */
+    void loaded() {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            touched.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int tombstones() {
+        lock.readLock().lock();
+        try {
+            return tombstones;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna hasta limit IDs ordenados por relevancia para una consulta normalizada como el texto indexado.
+     *
+     * Cuenta en un arreglo por documento cuántos de los n trigramas de la consulta contiene (una pasada
+     * secuencial por cada lista de postings) y puntúa solo los que comparten al menos n - maxMissing.
+     * maxCandidates acota cuántos documentos se puntúan en consultas muy poco selectivas.
+     */
+    List<Long> search(String query, int maxMissing, int limit, int maxCandidates) {
+        List<String> grams = trigrams(query);
+        if (grams.isEmpty()) {
+            return List.of();
+        }
+        String terms = query.strip();
+        int required = grams.size() - Math.min(maxMissing, grams.size() - 1);
+
+        lock.readLock().lock();
+        try {
+            // Un documento pasa a ser candidato al alcanzar required trigramas en común (una sola vez)
+            short[] counts = new short[ids.size()];
+            IntList candidates = new IntList();
+            for (String gram : grams) {
+                IntList list = postings.get(key(gram));
+                for (int i = 0; list != null && i < list.size(); i++) {
+                    int doc = list.get(i);
+                    if (++counts[doc] == required) {
+                        candidates.add(doc);
+                    }
+                }
+            }
+
+            PriorityQueue<Scored> top = new PriorityQueue<>(Comparator.comparingDouble(Scored::score)
+                    .thenComparing(Scored::id, Comparator.reverseOrder()));
+            for (int i = 0; i < candidates.size() && i < maxCandidates; i++) {
+                int doc = candidates.get(i);
+                String text = texts.get(doc);
+                if (text == null) {
+                    continue;
+                }
+                double score = (double) counts[doc] / grams.size();
+                int exact = text.indexOf(terms);
+                if (exact > 0) {
+                    // Coincidencia exacta, mejor aún si empieza una palabra
+                    score += text.charAt(exact - 1) == ' ' ? 1.0 : 0.5;
+                }
+                top.add(new Scored(ids.get(doc), score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Scored> ranked = new ArrayList<>(top);
+            ranked.sort(Comparator.comparingDouble(Scored::score).reversed().thenComparing(Scored::id));
+            return ranked.stream().map(Scored::id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(long id, String text) {
+        int doc = ids.size();
+        ids.add(id);
+        texts.add(text);
+        docById.put(id, doc);
+        for (String gram : trigrams(text)) {
+            postings.computeIfAbsent(key(gram), k -> new IntList()).add(doc);
+        }
+    }
+
+    private void removeLocked(long id) {
+        Integer doc = docById.remove(id);
+        if (doc != null) {
+            texts.set(doc, null);
+            tombstones++;
+        }
+    }
+
+    /**
+     * Trigramas distintos del texto, sin los que cruzan de una palabra a otra
+     */
+    static List<String> trigrams(String text) {
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            String gram = text.substring(i, i + 3);
+            if (gram.charAt(1) != ' ' && !(gram.charAt(0) == ' ' && gram.charAt(2) == ' ')) {
+                grams.add(gram);
+            }
+        }
+        return grams.stream().distinct().toList();
+    }
+
+    private static long key(String gram) {
+        return ((long) gram.charAt(0) << 32) | ((long) gram.charAt(1) << 16) | gram.charAt(2);
+    }
+
+    private record Scored(long id, double score) {
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
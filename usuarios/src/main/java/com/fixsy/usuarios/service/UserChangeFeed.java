@@ -0,0 +1,341 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.dto.UserChangeDTO;
+import com.fixsy.usuarios.dto.UserChangesDTO;
+import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.model.UserChangeEvent;
+import com.fixsy.usuarios.model.UserChangeType;
+import com.fixsy.usuarios.repository.UserChangeEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feed ordenado de cambios de usuarios leído desde el outbox (GET /api/users/changes).
+ *
+ * Long-poll y SSE comparten un único sondeo periódico: cada tick hace una consulta por rango de ID
+ * y reparte los eventos nuevos a los suscriptores, sin una consulta por cliente conectado. Los envíos SSE
+ * corren en hilos virtuales, fuera del hilo del scheduler: un cliente lento solo se atrasa él, y si un envío
+ * sigue bloqueado más de send-timeout-seconds se lo desconecta (reconecta con Last-Event-ID).
+ *
+ * Un ID autoincremental se asigna al insertar, no al confirmar, así que un evento con ID menor
+ * puede confirmarse después que uno mayor. Por eso el lote se corta en el primer hueco de la secuencia
+ * (un ID que falta entre dos leídos) y solo se saltea cuando el hueco persiste más de gap-timeout-ms:
+ * ahí se asume que su transacción se revirtió. El plazo se mide con el reloj monotónico de esta réplica
+ * desde que vio el hueco, no con created_at, así que no depende de que los relojes de las réplicas
+ * coincidan. Supone auto_increment_increment = 1 (IDs consecutivos) y que ninguna transacción de
+ * escritura dura más que gap-timeout-ms; una que lo supere confirma un evento que el feed ya salteó.
+ */
+@Component
+public class UserChangeFeed {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    public static final int MAX_WAIT_SECONDS = 60;
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    @Autowired
+    private UserChangeEventRepository changeEventRepository;
+
+    @Value("${app.user-changes.gap-timeout-ms:60000}")
+    private long gapTimeoutMillis = 60000;
+
+    @Value("${app.user-changes.max-subscribers:500}")
+    private int maxSubscribers = 500;
+
+    @Value("${app.user-changes.sse-timeout-minutes:30}")
+    private long sseTimeoutMinutes = 30;
+
+    @Value("${app.user-changes.keepalive-seconds:15}")
+    private long keepaliveSeconds = 15;
+
+    @Value("${app.user-changes.send-timeout-seconds:10}")
+    private long sendTimeoutSeconds = 10;
+
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Huecos vistos, por ID del evento que los sigue -> System.nanoTime() de la primera vez.
+    // Acotado: olvidar un hueco viejo solo hace que un consumidor atrasado vuelva a esperarlo
+    private final Map<Long, Long> gapsSeenAt = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_TRACKED_GAPS;
+        }
+    });
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Retorna de inmediato si hay cambios posteriores a since; si no, espera hasta waitSeconds
+     * y responde con los primeros cambios que lleguen (o un lote vacío al vencer la espera)
+     */
+    public DeferredResult<UserChangesDTO> poll(Long since, Integer limit, Integer waitSeconds) {
+        long after = validateSince(since);
+        int batchSize = validateLimit(limit);
+        int wait = waitSeconds != null ? waitSeconds : 25;
+        if (wait < 0 || wait > MAX_WAIT_SECONDS) {
+            throw new RuntimeException("Tiempo de espera inválido: debe estar entre 0 y " + MAX_WAIT_SECONDS);
+        }
+
+        DeferredResult<UserChangesDTO> result = new DeferredResult<>(wait * 1000L, new UserChangesDTO(List.of(), after));
+        List<UserChangeDTO> ready = readAfter(after, batchSize);
+        if (!ready.isEmpty() || wait == 0) {
+            result.setResult(toBatch(ready, after));
+            return result;
+        }
+
+        ensureCapacity();
+        LongPollSubscriber subscriber = new LongPollSubscriber(after, batchSize, result);
+        subscribers.add(subscriber);
+        result.onCompletion(() -> subscribers.remove(subscriber));
+        return result;
+    }
+
+    /**
+     * Abre un stream SSE desde since: envía lo pendiente y luego cada cambio nuevo (evento "user-change",
+     * con id = posición en el feed para reconectar con Last-Event-ID)
+     */
+    public SseEmitter stream(Long since) {
+        long after = validateSince(since);
+        ensureCapacity();
+
+        SseEmitter emitter = createEmitter();
+        SseSubscriber subscriber = new SseSubscriber(after, emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        // Lo pendiente se envía en el próximo tick; aquí solo se confirma la conexión
+        subscriber.keepalive();
+        return emitter;
+    }
+
+    /**
+     * Un tick: una consulta por cada posición distinta de los suscriptores (normalmente todos
+     * están al día y comparten la misma), y entrega a cada uno lo que le corresponde
+     */
+    @Scheduled(fixedDelayString = "${app.user-changes.poll-interval-ms:500}")
+    public void dispatch() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<Long, List<UserChangeDTO>> byPosition = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            List<UserChangeDTO> changes = byPosition.computeIfAbsent(subscriber.position(),
+                    position -> readAfter(position, MAX_LIMIT));
+            if (!changes.isEmpty()) {
+                subscriber.deliver(changes);
+            } else if (now - subscriber.lastSentAt() > keepaliveSeconds * 1000) {
+                subscriber.keepalive();
+            }
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(sseTimeoutMinutes * 60_000);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Eventos confirmados posteriores a afterId, cortando antes del primer hueco que aún puede llenarse.
+     * Desde el inicio (afterId = 0) los IDs anteriores al primer evento ya se purgaron o nunca existieron
+     */
+    private List<UserChangeDTO> readAfter(long afterId, int limit) {
+        long now = System.nanoTime();
+        List<UserChangeDTO> changes = new ArrayList<>();
+        long expected = afterId + 1;
+        for (UserChangeEvent event : changeEventRepository.findAfter(afterId, Limit.of(limit))) {
+            boolean gap = event.getId() != expected && (afterId != 0 || !changes.isEmpty());
+            if (gap && !gapExpired(event.getId(), now)) {
+                break;
+            }
+            changes.add(toDTO(event));
+            expected = event.getId() + 1;
+        }
+        return changes;
+    }
+
+    private boolean gapExpired(long nextId, long now) {
+        Long seenAt = gapsSeenAt.putIfAbsent(nextId, now);
+        return seenAt != null && now - seenAt >= gapTimeoutMillis * 1_000_000;
+    }
+
+    private void ensureCapacity() {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RuntimeException("Servicio saturado: demasiados suscriptores al feed de cambios, reintente más tarde");
+        }
+    }
+
+    private static long validateSince(Long since) {
+        long after = since != null ? since : 0L;
+        if (after < 0) {
+            throw new RuntimeException("Posición inválida: since no puede ser negativo");
+        }
+        return after;
+    }
+
+    private static int validateLimit(Integer limit) {
+        int batchSize = limit != null ? limit : DEFAULT_LIMIT;
+        if (batchSize < 1 || batchSize > MAX_LIMIT) {
+            throw new RuntimeException("Límite inválido: debe estar entre 1 y " + MAX_LIMIT);
+        }
+        return batchSize;
+    }
+
+    private static UserChangesDTO toBatch(List<UserChangeDTO> changes, long since) {
+        long nextSince = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+        return new UserChangesDTO(changes, nextSince);
+    }
+
+    private static UserChangeDTO toDTO(UserChangeEvent event) {
+        UserDTO user = event.getType() == UserChangeType.DELETED ? null
+                : new UserDTO(event.getUserId(), event.getEmail(), event.getName(), event.getPhone(), event.getRole());
+        return new UserChangeDTO(event.getId(), event.getUserId(), event.getType().name(), user, event.getCreatedAt());
+    }
+
+    private interface Subscriber {
+        long position();
+
+        long lastSentAt();
+
+        void deliver(List<UserChangeDTO> changes);
+
+        void keepalive();
+    }
+
+    private final class LongPollSubscriber implements Subscriber {
+        private final long since;
+        private final int limit;
+        private final DeferredResult<UserChangesDTO> result;
+
+        LongPollSubscriber(long since, int limit, DeferredResult<UserChangesDTO> result) {
+            this.since = since;
+            this.limit = limit;
+            this.result = result;
+        }
+
+        @Override
+        public long position() {
+            return since;
+        }
+
+        @Override
+        public long lastSentAt() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void deliver(List<UserChangeDTO> changes) {
+            List<UserChangeDTO> batch = changes.size() > limit ? changes.subList(0, limit) : changes;
+            result.setResult(toBatch(List.copyOf(batch), since));
+            subscribers.remove(this);
+        }
+
+        @Override
+        public void keepalive() {
+            // La espera la acota el timeout del DeferredResult
+        }
+    }
+
+    private interface SseSend {
+        void run() throws IOException;
+    }
+
+    private final class SseSubscriber implements Subscriber {
+        private final SseEmitter emitter;
+        private volatile long position;
+        private volatile long lastSentAt;
+        // System.nanoTime() al iniciar el envío en curso; 0 si no hay ninguno
+        private final AtomicLong sendingSince = new AtomicLong();
+
+        SseSubscriber(long position, SseEmitter emitter) {
+            this.position = position;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public long lastSentAt() {
+            return lastSentAt;
+        }
+
+        @Override
+        public void deliver(List<UserChangeDTO> changes) {
+            send(() -> {
+                for (UserChangeDTO change : changes) {
+                    emitter.send(SseEmitter.event().id(String.valueOf(change.getId())).name("user-change").data(change));
+                    position = change.getId();
+                }
+            });
+        }
+
+        @Override
+        public void keepalive() {
+            send(() -> emitter.send(SseEmitter.event().comment("keepalive")));
+        }
+
+        /**
+         * Un envío a la vez por cliente; mientras uno sigue en curso, los ticks siguientes no le entregan nada
+         * (su posición no avanzó, así que lo pendiente se relee después)
+         */
+        private void send(SseSend action) {
+            long now = System.nanoTime();
+            long since = sendingSince.get();
+            if (since != 0) {
+                if (now - since > sendTimeoutSeconds * 1_000_000_000) {
+                    drop(new IOException("Envío SSE bloqueado por más de " + sendTimeoutSeconds + " s"));
+                }
+                return;
+            }
+            if (!sendingSince.compareAndSet(0, now)) {
+                return;
+            }
+            sendExecutor.execute(() -> {
+                try {
+                    action.run();
+                    lastSentAt = System.currentTimeMillis();
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado: se reconectará con Last-Event-ID
+                    drop(e);
+                } finally {
+                    sendingSince.set(0);
+                }
+            });
+        }
+
+        private void drop(Exception cause) {
+            subscribers.remove(this);
+            emitter.completeWithError(cause);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.User;
+import com.fixsy.usuarios.model.UserChangeEvent;
+import com.fixsy.usuarios.model.UserChangeType;
+import com.fixsy.usuarios.repository.UserChangeEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Outbox de cambios de usuarios.
+ *
+ * Los métodos de escritura exigen una transacción activa (MANDATORY): el evento se confirma
+ * o se descarta junto con el cambio del usuario, nunca uno sin el otro.
+ * Los cambios de contraseña no se publican (no alteran datos visibles para otros servicios).
+ */
+@Component
+public class UserChangeLog {
+
+    @Autowired
+    private UserChangeEventRepository changeEventRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Value("${app.user-changes.retention-hours:72}")
+    private long retentionHours = 72;
+
+    @Value("${app.user-changes.purge-batch-size:1000}")
+    private int purgeBatchSize = 1000;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(User user) {
+        changeEventRepository.save(toEvent(UserChangeType.CREATED, user));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<User> users) {
+        changeEventRepository.saveAll(users.stream().map(user -> toEvent(UserChangeType.CREATED, user)).toList());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdated(User user) {
+        changeEventRepository.save(toEvent(UserChangeType.UPDATED, user));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Long userId) {
+        changeEventRepository.save(new UserChangeEvent(null, userId, UserChangeType.DELETED,
+                null, null, null, null, LocalDateTime.now()));
+    }
+
+    /**
+     * Elimina por lotes los eventos más antiguos que la retención configurada.
+     * Un consumidor desconectado por más tiempo debe releer los usuarios completos.
+     */
+    @Scheduled(fixedDelayString = "${app.user-changes.purge-interval-ms:3600000}",
+            initialDelayString = "${app.user-changes.purge-interval-ms:3600000}")
+    public int purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        int deleted = 0;
+        List<Long> ids;
+        do {
+            ids = changeEventRepository.findIdsCreatedBefore(cutoff, Limit.of(purgeBatchSize));
+            if (!ids.isEmpty()) {
+                changeEventRepository.deleteAllByIdInBatch(ids);
+                deleted += ids.size();
+            }
+        } while (ids.size() == purgeBatchSize);
+        return deleted;
+    }
+
+    private UserChangeEvent toEvent(UserChangeType type, User user) {
+        return new UserChangeEvent(null, user.getId(), type, user.getEmail(), user.getName(), user.getPhone(),
+                roleRegistry.nameOf(user.getRole()), LocalDateTime.now());
+    }
+}
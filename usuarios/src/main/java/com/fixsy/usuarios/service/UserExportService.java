@@ -0,0 +1,79 @@
+package com.fixsy.usuarios.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Exportación completa de usuarios como NDJSON (GET /api/users/export), en orden de ID.
+ *
+ * Las filas se leen con un cursor del servidor y cada una se escribe en cuanto llega, así que la memoria
+ * no depende del tamaño de la tabla y el primer byte sale sin esperar al resto. Cada exportación ocupa
+ * una conexión de la BD mientras dura: max-concurrent acota cuántas corren a la vez.
+ */
+@Service
+public class UserExportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    // Con la primera fila y luego cada FLUSH_EVERY filas se vacía el buffer hacia el cliente
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.user-export.max-concurrent:2}")
+    private int maxConcurrent = 2;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * Escribe un usuario por línea en out y retorna cuántos se exportaron. No cierra out
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        if (running.incrementAndGet() > maxConcurrent) {
+            running.decrementAndGet();
+            throw new RuntimeException("Servicio saturado: hay demasiadas exportaciones en curso, reintente más tarde");
+        }
+        try (Stream<UserSummary> users = userRepository.streamAllOrderById();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Sin separador entre valores raíz: cada línea la termina el '\n' explícito
+            generator.setRootValueSeparator(null);
+            long count = 0;
+            Iterator<UserSummary> rows = users.iterator();
+            while (rows.hasNext()) {
+                UserSummary user = rows.next();
+                generator.writeObject(new UserDTO(user.getId(), user.getEmail(), user.getName(), user.getPhone(),
+                        roleRegistry.nameOf(user.getRoleId())));
+                generator.writeRaw('\n');
+                if (++count % FLUSH_EVERY == 1) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+            return count;
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+}
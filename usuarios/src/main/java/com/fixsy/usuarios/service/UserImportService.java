@@ -0,0 +1,265 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.dto.UserImportErrorDTO;
+import com.fixsy.usuarios.dto.UserImportResultDTO;
+import com.fixsy.usuarios.dto.UserRequestDTO;
+import com.fixsy.usuarios.model.User;
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.security.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de usuarios (alta de cadenas de talleres con miles de cuentas).
+ *
+ * Por cada lote: emails deduplicados en memoria, una sola consulta de existencia,
+ * hash BCrypt en paralelo (un hash por núcleo a la vez, a través del pool acotado)
+ * e INSERT agrupados en lotes JDBC gracias a los IDs generados en la aplicación.
+ */
+@Service
+public class UserImportService {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private RegisteredEmailFilter registeredEmails;
+
+    @Autowired
+    private UserChangeLog changeLog;
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private MechanicDirectory mechanicDirectory;
+
+    @Autowired
+    private CacheInvalidationTransport invalidationTransport;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.user-import.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${app.user-import.max-rows:10000}")
+    private int maxRows = 10000;
+
+    @Value("${app.user-import.hash-parallelism:0}")
+    private int hashParallelism = 0;
+
+    public UserImportResultDTO importUsers(List<UserRequestDTO> rows) {
+        if (rows == null || rows.isEmpty() || rows.size() > maxRows) {
+            throw new RuntimeException("Número de filas inválido: debe estar entre 1 y " + maxRows);
+        }
+
+        List<UserImportErrorDTO> skipped = new ArrayList<>();
+        List<ImportRow> accepted = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            UserRequestDTO request = rows.get(i);
+            String error = validate(request);
+            if (error != null) {
+                skipped.add(new UserImportErrorDTO(i, request != null ? request.getEmail() : null, error));
+                continue;
+            }
+            String email = request.getEmail().trim();
+            if (!seenEmails.add(normalizeEmail(email))) {
+                skipped.add(new UserImportErrorDTO(i, email, "Email duplicado en la importación"));
+                continue;
+            }
+            accepted.add(new ImportRow(i, email, request));
+        }
+
+        int created = 0;
+        for (int from = 0; from < accepted.size(); from += batchSize) {
+            created += importBatch(accepted.subList(from, Math.min(from + batchSize, accepted.size())), skipped);
+        }
+
+        skipped.sort(Comparator.comparingInt(UserImportErrorDTO::getRow));
+        return new UserImportResultDTO(rows.size(), created, skipped);
+    }
+
+    private int importBatch(List<ImportRow> batch, List<UserImportErrorDTO> skipped) {
+        Set<String> existing = userRepository.findExistingEmails(batch.stream().map(ImportRow::email).toList()).stream()
+                .map(this::normalizeEmail)
+                .collect(Collectors.toSet());
+
+        List<ImportRow> fresh = new ArrayList<>();
+        for (ImportRow row : batch) {
+            if (existing.contains(normalizeEmail(row.email()))) {
+                skipped.add(new UserImportErrorDTO(row.index(), row.email(), "El email ya está registrado"));
+            } else {
+                fresh.add(row);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        List<HashResult> hashes = hashAll(fresh);
+        List<User> users = new ArrayList<>();
+        List<ImportRow> usersRows = new ArrayList<>();
+        for (int i = 0; i < fresh.size(); i++) {
+            ImportRow row = fresh.get(i);
+            HashResult hash = hashes.get(i);
+            if (hash.error() != null) {
+                skipped.add(new UserImportErrorDTO(row.index(), row.email(), hash.error()));
+                continue;
+            }
+            users.add(toUser(row, hash.hash()));
+            usersRows.add(row);
+        }
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // Una transacción por lote (usuarios y sus eventos del outbox); el flush al commit envía los INSERT en lotes JDBC
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.saveAll(users);
+                changeLog.recordCreated(users);
+                users.forEach(user -> invalidationTransport.publish(user.getId()));
+            });
+            users.forEach(user -> {
+                registeredEmails.add(user.getEmail());
+                searchIndex.onSaved(user);
+                mechanicDirectory.onSaved(user);
+            });
+            return users.size();
+        } catch (DataIntegrityViolationException e) {
+            // Un alta concurrente registró alguno de estos emails: se reintenta fila por fila
+            return insertOneByOne(users, usersRows, skipped);
+        }
+    }
+
+    private int insertOneByOne(List<User> users, List<ImportRow> rows, List<UserImportErrorDTO> skipped) {
+        int created = 0;
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            user.setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    userRepository.save(user);
+                    changeLog.recordCreated(user);
+                    invalidationTransport.publish(user.getId());
+                });
+                registeredEmails.add(user.getEmail());
+                searchIndex.onSaved(user);
+                mechanicDirectory.onSaved(user);
+                created++;
+            } catch (DataIntegrityViolationException e) {
+                // Los lotes anteriores ya se confirmaron: la fila se reporta en lugar de abortar la importación
+                String reason = UserService.isEmailConflict(e) ? "El email ya está registrado"
+                        : "Restricción de la BD violada: " + e.getMostSpecificCause().getMessage();
+                skipped.add(new UserImportErrorDTO(rows.get(i).index(), rows.get(i).email(), reason));
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Calcula los hashes en paralelo con hilos virtuales, limitando cuántos se envían a la vez al pool
+     * de BCrypt. Por defecto la importación ocupa como mucho la mitad del pool, que comparte con los logins:
+     * la otra mitad sigue atendiéndolos sin esperar. Un hash fallido (p. ej. pool saturado) solo omite su fila.
+     */
+    private List<HashResult> hashAll(List<ImportRow> rows) {
+        int poolThreads = passwordEncoder instanceof BoundedPasswordEncoder bounded ? bounded.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        int parallelism = hashParallelism > 0 ? hashParallelism : Math.max(1, poolThreads / 2);
+        Semaphore permits = new Semaphore(parallelism);
+        List<HashResult> hashes = new ArrayList<>(rows.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = rows.stream()
+                    .map(row -> executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return passwordEncoder.encode(row.request().getPassword());
+                        } finally {
+                            permits.release();
+                        }
+                    }))
+                    .toList();
+            for (Future<String> future : futures) {
+                try {
+                    hashes.add(new HashResult(future.get(), null));
+                } catch (ExecutionException e) {
+                    hashes.add(new HashResult(null, e.getCause().getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Importación interrumpida");
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private User toUser(ImportRow row, String hash) {
+        User user = new User();
+        user.setEmail(row.email());
+        user.setPassword(hash);
+        user.setName(row.request().getName());
+        user.setPhone(row.request().getPhone());
+        user.setRole(roleRegistry.resolve(row.request().getRole()));
+        return user;
+    }
+
+    /**
+     * Mismas reglas que POST /api/users; retorna el motivo o null si la fila es válida
+     */
+    private String validate(UserRequestDTO request) {
+        if (request == null) {
+            return "Fila vacía";
+        }
+        if (request.getEmail() == null || !EMAIL_PATTERN.matcher(request.getEmail().trim()).matches()) {
+            return "Formato de email inválido";
+        }
+        if (request.getName() == null || request.getName().isBlank()) {
+            return "El nombre es obligatorio";
+        }
+        if (request.getPhone() == null || request.getPhone().isBlank()) {
+            return "El teléfono es obligatorio";
+        }
+        if (request.getPassword() == null || request.getPassword().length() < 8) {
+            return "La contraseña debe tener al menos 8 caracteres";
+        }
+        return null;
+    }
+
+    private String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record ImportRow(int index, String email, UserRequestDTO request) {
+    }
+
+    private record HashResult(String hash, String error) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.User;
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda de usuarios en memoria (nombre, email y teléfono) para GET /api/users/search.
+ *
+ * Se construye al arrancar recorriendo la tabla por keyset y se actualiza tras el commit de cada
+ * alta, cambio o baja; las de otras réplicas llegan por el transporte de invalidaciones y se releen
+ * por ID. Como referencia, con 1M de usuarios ocupa del orden de 400 MB de heap.
+ * Las bajas y cambios dejan lápidas; cuando superan max-tombstone-ratio el índice se reconstruye,
+ * y también al cumplir max-age-minutes, por si se perdió alguna notificación de otra réplica.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheInvalidationTransport invalidationTransport;
+
+    @Value("${app.user-search.max-candidates:20000}")
+    private int maxCandidates = 20000;
+
+    @Value("${app.user-search.batch-size:5000}")
+    private int batchSize = 5000;
+
+    @Value("${app.user-search.max-tombstone-ratio:0.25}")
+    private double maxTombstoneRatio = 0.25;
+
+    @Value("${app.user-search.max-age-minutes:60}")
+    private long maxAgeMinutes = 60;
+
+    private volatile TrigramIndex current;
+    private volatile TrigramIndex rebuilding;
+    private volatile long builtAt;
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+
+    /**
+     * IDs de los usuarios más relevantes para la consulta, de mayor a menor relevancia
+     */
+    public List<Long> search(String query, int limit) {
+        TrigramIndex index = current;
+        if (index == null) {
+            throw new RuntimeException("Búsqueda no disponible: el índice se está construyendo, reintente más tarde");
+        }
+        String terms = queryText(query);
+        return index.search(terms, maxMissing(TrigramIndex.trigrams(terms).size()), limit, maxCandidates);
+    }
+
+    public void onSaved(User user) {
+        long id = user.getId();
+        String text = documentText(user.getName(), user.getEmail(), user.getPhone());
+        afterCommit(index -> index.put(id, text));
+    }
+
+    public void onDeleted(Long id) {
+        afterCommit(index -> index.remove(id));
+    }
+
+    /**
+     * Los cambios de otras réplicas se releen de la BD: si el usuario existe se reindexa, si no se quita
+     */
+    @PostConstruct
+    void subscribeToRemoteChanges() {
+        invalidationTransport.subscribe(this::learnRemoteChange);
+    }
+
+    void learnRemoteChange(Long id) {
+        List<UserSummary> found = userRepository.findSummariesByIdIn(List.of(id));
+        if (found.isEmpty()) {
+            apply(index -> index.remove(id));
+        } else {
+            UserSummary user = found.get(0);
+            String text = documentText(user.getName(), user.getEmail(), user.getPhone());
+            apply(index -> index.put(id, text));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-search.check-interval-ms:600000}",
+            initialDelayString = "${app.user-search.check-interval-ms:600000}")
+    public void rebuildIfNeeded() {
+        TrigramIndex index = current;
+        if (index == null
+                || index.tombstones() > Math.max(1000, index.size() * maxTombstoneRatio)
+                || System.currentTimeMillis() - builtAt > maxAgeMinutes * 60_000) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Carga un índice nuevo y lo publica al terminar; los cambios concurrentes se aplican a ambos.
+     * Si ya hay una carga en curso no se inicia otra
+     */
+    public void rebuild() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildNow();
+        } finally {
+            rebuildRunning.set(false);
+        }
+    }
+
+    private void rebuildNow() {
+        TrigramIndex next = new TrigramIndex();
+        rebuilding = next;
+        try {
+            long afterId = 0L;
+            List<UserSummary> page;
+            do {
+                page = userRepository.findPage(afterId, Limit.of(batchSize));
+                for (UserSummary user : page) {
+                    next.load(user.getId(), documentText(user.getName(), user.getEmail(), user.getPhone()));
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == batchSize);
+            next.loaded();
+            current = next;
+            builtAt = System.currentTimeMillis();
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private void afterCommit(Consumer<TrigramIndex> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<TrigramIndex> change) {
+        // Primero el índice en construcción: si aún no existía, su carga empieza después y ya ve el cambio
+        TrigramIndex next = rebuilding;
+        TrigramIndex index = current;
+        if (next != null) {
+            change.accept(next);
+        }
+        if (index != null && index != next) {
+            change.accept(index);
+        }
+    }
+
+    /**
+     * Trigramas de la consulta que pueden faltar en un resultado. Un error de tipeo altera hasta 3:
+     * se toleran 3 (o un tercio en consultas largas), pero siempre debe estar al menos la mitad
+     */
+    static int maxMissing(int grams) {
+        return Math.max(grams / 3, Math.min(3, grams / 2));
+    }
+
+    /**
+     * " tokens del nombre y del email + dígitos del teléfono", sin acentos y en minúsculas
+     */
+    static String documentText(String name, String email, String phone) {
+        StringBuilder text = new StringBuilder();
+        appendTokens(text, name);
+        appendTokens(text, email);
+        String digits = phone == null ? "" : phone.replaceAll("\\D", "");
+        if (!digits.isEmpty()) {
+            text.append(' ').append(digits);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Consulta normalizada como el texto indexado; una consulta solo de dígitos y separadores
+     * se trata como teléfono ("+56 9 1234" -> "5691234")
+     */
+    static String queryText(String query) {
+        StringBuilder text = new StringBuilder();
+        if (query.chars().noneMatch(Character::isLetter)) {
+            String digits = query.replaceAll("\\D", "");
+            if (!digits.isEmpty()) {
+                return text.append(' ').append(digits).toString();
+            }
+        }
+        appendTokens(text, query);
+        return text.toString();
+    }
+
+    private static void appendTokens(StringBuilder text, String value) {
+        if (value == null) {
+            return;
+        }
+        String plain = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(plain)) {
+            if (!token.isEmpty()) {
+                text.append(' ').append(token);
+            }
+        }
+    }
+}
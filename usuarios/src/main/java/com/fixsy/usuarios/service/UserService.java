@@ -1,53 +1,273 @@
 package com.fixsy.usuarios.service;
 
 import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.dto.UserPageDTO;
 import com.fixsy.usuarios.dto.UserRequestDTO;
+import com.fixsy.usuarios.model.PasswordResetToken;
 import com.fixsy.usuarios.model.Role;
 import com.fixsy.usuarios.model.RoleType;
 import com.fixsy.usuarios.model.User;
-import com.fixsy.usuarios.repository.RoleRepository;
+import com.fixsy.usuarios.repository.PasswordResetTokenRepository;
+import com.fixsy.usuarios.repository.UserCredentials;
 import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import com.fixsy.usuarios.repository.UserVersion;
+import com.fixsy.usuarios.security.LoginMetrics;
+import jakarta.annotation.PostConstruct;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    // Límites usados cuando el rango de fechas viene abierto por un lado (dentro del rango de DATETIME)
+    private static final LocalDateTime CREATED_AT_MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime CREATED_AT_MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+    public static final int MAX_BATCH_SIZE = 500;
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    public static final int MAX_SEARCH_QUERY_LENGTH = 100;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final String EMAIL_PATTERN = "^[A-Za-z0-9+_.-]+@(.+)$";
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("email", "name", "phone", "role", "password", "currentPassword");
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    public List<UserDTO> getAllUsers() {
-        return userRepository.findAll().stream()
+    @Autowired
+    private RegisteredEmailFilter registeredEmails;
+
+    @Autowired
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Autowired
+    private UserChangeLog changeLog;
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private MechanicDirectory mechanicDirectory;
+
+    @Autowired
+    private CacheInvalidationTransport invalidationTransport;
+
+    @Autowired
+    private LoginMetrics loginMetrics;
+
+    @Value("${app.reset-tokens.ttl-hours:24}")
+    private long resetTokenTtlHours = 24;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private int cacheMaxSize = 10000;
+
+    @Value("${app.user-cache.ttl-seconds:60}")
+    private long cacheTtlSeconds = 60;
+
+    // Cachés de lectura para GET /{id} (con su versión), /batch y /email/{email}; se invalidan por id en cada escritura
+    // (la de email, por su índice inverso id -> email)
+    private final ReadThroughCache<Long, VersionedUser> versionedById =
+            new ReadThroughCache<>(() -> cacheMaxSize, () -> cacheTtlSeconds * 1000);
+    private final ReadThroughCache<Long, UserDTO> usersById =
+            new ReadThroughCache<>(() -> cacheMaxSize, () -> cacheTtlSeconds * 1000);
+    private final ReadThroughCache<String, UserDTO> usersByEmail =
+            new ReadThroughCache<>(() -> cacheMaxSize, () -> cacheTtlSeconds * 1000, UserDTO::getId);
+
+    /**
+     * Los cambios hechos en otras réplicas llegan por el transporte de invalidaciones y descartan
+     * las copias locales, como si el cambio se hubiera hecho aquí
+     */
+    @PostConstruct
+    void subscribeToInvalidations() {
+        invalidationTransport.subscribe(this::invalidateCaches);
+    }
+
+    /**
+     * Lista usuarios por páginas usando keyset sobre el ID (cursor = último ID recibido)
+     */
+    public UserPageDTO getUsersPage(Long cursor, Integer limit, String role,
+                                    LocalDateTime createdFrom, LocalDateTime createdTo) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Límite inválido: debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new RuntimeException("Rango de fechas inválido: createdFrom debe ser anterior a createdTo");
+        }
+        Long roleId = null;
+        if (role != null && !role.isBlank()) {
+            try {
+                roleId = roleRegistry.get(RoleType.valueOf(role.trim().toUpperCase())).getId();
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Rol inválido: " + role);
+            }
+        }
+
+        // Se pide un registro extra para saber si hay una página siguiente
+        long afterId = cursor != null ? cursor : 0L;
+        Limit pageLimit = Limit.of(pageSize + 1);
+        List<UserSummary> rows;
+        if (createdFrom == null && createdTo == null) {
+            rows = roleId == null
+                    ? userRepository.findPage(afterId, pageLimit)
+                    : userRepository.findPageByRole(afterId, roleId, pageLimit);
+        } else {
+            LocalDateTime from = createdFrom != null ? createdFrom : CREATED_AT_MIN;
+            LocalDateTime to = createdTo != null ? createdTo : CREATED_AT_MAX;
+            rows = roleId == null
+                    ? userRepository.findPageByCreatedAt(afterId, from, to, pageLimit)
+                    : userRepository.findPageByRoleAndCreatedAt(afterId, roleId, from, to, pageLimit);
+        }
+        List<UserDTO> users = rows.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        Long nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getId();
+        }
+        return new UserPageDTO(users, nextCursor);
+    }
+
+    /**
+     * Obtiene varios usuarios por ID: primero desde la caché y el resto con una sola consulta IN.
+     * Los IDs inexistentes no aparecen en el resultado.
+     */
+    public Map<Long, UserDTO> getUsersByIds(List<Long> ids) {
+        LinkedHashSet<Long> requested = ids == null ? new LinkedHashSet<>() : new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.isEmpty() || requested.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("Número de IDs inválido: debe estar entre 1 y " + MAX_BATCH_SIZE);
+        }
+
+        // Primero los que ya estén en la caché de GET /{id}; el resto, desde la caché por lotes o la BD
+        Map<Long, UserDTO> found = new HashMap<>();
+        List<Long> pending = new ArrayList<>();
+        for (Long id : requested) {
+            VersionedUser cached = versionedById.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, cached.user());
+            } else {
+                pending.add(id);
+            }
+        }
+        if (!pending.isEmpty()) {
+            found.putAll(usersById.getAll(pending, missing -> userRepository.findSummariesByIdIn(missing).stream()
+                    .collect(Collectors.toMap(UserSummary::getId, this::convertToDTO))));
+        }
+
+        Map<Long, UserDTO> result = new LinkedHashMap<>();
+        for (Long id : requested) {
+            UserDTO user = found.get(id);
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Búsqueda por nombre, email o teléfono (parcial o con errores de tipeo) sobre el índice en memoria;
+     * solo los resultados finales se leen de la caché o de la BD
+     */
+    public List<UserDTO> searchUsers(String query, Integer limit) {
+        if (query == null || query.strip().length() < 2 || query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new RuntimeException("Término de búsqueda inválido: debe tener entre 2 y " + MAX_SEARCH_QUERY_LENGTH + " caracteres");
+        }
+        int maxResults = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+            throw new RuntimeException("Límite inválido: debe estar entre 1 y " + MAX_SEARCH_LIMIT);
+        }
+
+        List<Long> ids = searchIndex.search(query, maxResults);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return List.copyOf(getUsersByIds(ids).values());
     }
 
     public UserDTO getUserById(Long id) {
-        User user = userRepository.findById(id)
+        return getVersionedUser(id).user();
+    }
+
+    /**
+     * Usuario y su versión (para ETag y Last-Modified), leídos juntos
+     */
+    public VersionedUser getVersionedUser(Long id) {
+        return versionedById.get(id, key -> userRepository.findById(key)
+                .map(user -> new VersionedUser(convertToDTO(user), user.getUpdatedAt()))
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado")));
+    }
+
+    /**
+     * Solo la versión (updatedAt) del usuario, para GET condicionales: desde la caché si está,
+     * o con una consulta por clave primaria que no lee el resto de columnas
+     */
+    public LocalDateTime getUserVersion(Long id) {
+        VersionedUser cached = versionedById.getIfPresent(id);
+        if (cached != null) {
+            return cached.updatedAt();
+        }
+        return userRepository.findVersionById(id)
+                .map(UserVersion::getUpdatedAt)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-        return convertToDTO(user);
+    }
+
+    /**
+     * Disponibilidad de un email para el registro. Solo consulta la BD si el filtro de emails
+     * registrados indica un posible duplicado. Las altas de otras réplicas llegan al filtro con el retraso
+     * del transporte de invalidaciones; en esa ventana createUser igual rechaza el duplicado con 409.
+     */
+    public boolean isEmailAvailable(String email) {
+        if (email == null || email.isBlank()) {
+            throw new RuntimeException("El email es obligatorio");
+        }
+        return !registeredEmails.mightContain(email) || !userRepository.existsByEmail(email.trim());
     }
 
     @Transactional
     public UserDTO createUser(UserRequestDTO userRequest) {
-        if (userRepository.existsByEmail(userRequest.getEmail())) {
+        // El filtro evita la consulta en la mayoría de las altas; el índice único cubre lo que no ve
+        if (registeredEmails.mightContain(userRequest.getEmail()) && userRepository.existsByEmail(userRequest.getEmail())) {
             throw new RuntimeException("El email ya está registrado");
         }
 
-        // Obtener el rol de la BD o crearlo si no existe
-        Role role = getOrCreateRole(userRequest.getRole());
+        // Rol desde el registro precargado (sin consulta)
+        Role role = roleRegistry.resolve(userRequest.getRole());
 
         User user = new User();
         user.setEmail(userRequest.getEmail());
@@ -57,22 +277,47 @@ public class UserService {
         user.setPhone(userRequest.getPhone());
         user.setRole(role);
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            // flush inmediato: un email duplicado (alta concurrente u otra réplica) falla aquí y no en el commit
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (isEmailConflict(e)) {
+                throw new RuntimeException("El email ya está registrado");
+            }
+            // Otra violación (p. ej. un ID repetido por dos réplicas con el mismo worker-id): no es un 409
+            throw e;
+        }
+        registeredEmails.add(savedUser.getEmail());
+        changeLog.recordCreated(savedUser);
+        // Las demás réplicas agregan el email a su filtro y al usuario a su índice de búsqueda
+        invalidationTransport.publish(savedUser.getId());
+        searchIndex.onSaved(savedUser);
+        mechanicDirectory.onSaved(savedUser);
         return convertToDTO(savedUser);
     }
 
     @Transactional
     public UserDTO updateUser(Long id, UserRequestDTO userRequest) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        return updateUser(id, userRequest, List.of()).user();
+    }
+
+    /**
+     * Actualización con If-Match opcional (control de concurrencia optimista): si se envían ETags,
+     * el usuario se bloquea y solo se actualiza si su versión actual coincide con alguno
+     */
+    @Transactional
+    public VersionedUser updateUser(Long id, UserRequestDTO userRequest, List<String> ifMatch) {
+        User user = findForUpdate(id, ifMatch);
 
         // Actualizar campos básicos
         user.setName(userRequest.getName());
         user.setPhone(userRequest.getPhone());
 
         // Validar email: verificar que no esté en uso por otro usuario
-        if (!user.getEmail().equals(userRequest.getEmail())) {
-            if (userRepository.existsByEmail(userRequest.getEmail())) {
+        boolean emailChanged = !user.getEmail().equals(userRequest.getEmail());
+        if (emailChanged) {
+            if (registeredEmails.mightContain(userRequest.getEmail()) && userRepository.existsByEmail(userRequest.getEmail())) {
                 throw new RuntimeException("El email ya está registrado por otro usuario");
             }
             user.setEmail(userRequest.getEmail());
@@ -97,7 +342,7 @@ public class UserService {
 
         // Actualizar rol si se especifica
         if (userRequest.getRole() != null && !userRequest.getRole().isEmpty()) {
-            Role role = getOrCreateRole(userRequest.getRole());
+            Role role = roleRegistry.resolve(userRequest.getRole());
             user.setRole(role);
         }
 
@@ -106,22 +351,148 @@ public class UserService {
         
         // ⚠️ CORRECCIÓN CRÍTICA: Forzar flush para asegurar persistencia inmediata
         // Esto garantiza que el UPDATE se ejecute en la BD antes de que termine la transacción
-        userRepository.flush();
-        
-        return convertToDTO(updatedUser);
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("El email ya está registrado por otro usuario");
+        }
+        return publishUpdate(updatedUser, emailChanged);
     }
 
+    /**
+     * Actualización parcial con semántica JSON Merge Patch (RFC 7386): solo cambian los campos presentes
+     * y null (eliminar) no se admite porque todos son obligatorios. BCrypt solo corre si llega una contraseña
+     * nueva; el UPDATE (dinámico) incluye solo las columnas modificadas, y si nada cambió no se escribe nada.
+     */
+    @Transactional
+    public VersionedUser patchUser(Long id, Map<String, Object> patch, List<String> ifMatch) {
+        if (patch == null || patch.isEmpty()) {
+            throw new RuntimeException("Patch inválido: debe incluir al menos un campo");
+        }
+        for (String field : patch.keySet()) {
+            if (!PATCHABLE_FIELDS.contains(field)) {
+                throw new RuntimeException("Campo inválido: " + field);
+            }
+        }
+        // Validaciones que no requieren la BD, antes de leer el usuario
+        String email = patchValue(patch, "email");
+        String name = patchValue(patch, "name");
+        String phone = patchValue(patch, "phone");
+        String password = patchValue(patch, "password");
+        String roleName = patchValue(patch, "role");
+        if (email != null && !email.matches(EMAIL_PATTERN)) {
+            throw new RuntimeException("Formato de email inválido");
+        }
+        if (password != null && password.length() < 8) {
+            throw new RuntimeException("Contraseña inválida: debe tener al menos 8 caracteres");
+        }
+        Role role = null;
+        if (roleName != null) {
+            try {
+                role = roleRegistry.get(RoleType.valueOf(roleName.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Rol inválido: " + roleName);
+            }
+        }
+
+        User user = findForUpdate(id, ifMatch);
+        boolean visibleChanged = false;
+        boolean passwordChanged = false;
+        boolean emailChanged = email != null && !email.equals(user.getEmail());
+        if (emailChanged) {
+            if (registeredEmails.mightContain(email) && userRepository.existsByEmail(email)) {
+                throw new RuntimeException("El email ya está registrado por otro usuario");
+            }
+            user.setEmail(email);
+            visibleChanged = true;
+        }
+        if (name != null && !name.equals(user.getName())) {
+            user.setName(name);
+            visibleChanged = true;
+        }
+        if (phone != null && !phone.equals(user.getPhone())) {
+            user.setPhone(phone);
+            visibleChanged = true;
+        }
+        if (role != null && !role.getId().equals(user.getRole().getId())) {
+            user.setRole(role);
+            visibleChanged = true;
+        }
+        if (password != null) {
+            Object currentPassword = patch.get("currentPassword");
+            if (!(currentPassword instanceof String current) || current.isEmpty()) {
+                throw new RuntimeException("La contraseña actual es obligatoria para cambiar la contraseña");
+            }
+            if (!passwordEncoder.matches(current, user.getPassword())) {
+                throw new RuntimeException("La contraseña actual es incorrecta");
+            }
+            user.setPassword(passwordEncoder.encode(password));
+            passwordChanged = true;
+        }
+
+        if (!visibleChanged && !passwordChanged) {
+            return new VersionedUser(convertToDTO(user), user.getUpdatedAt());
+        }
+        try {
+            // El flush ejecuta ahora el UPDATE: fija updatedAt (nuevo ETag) y detecta un email duplicado
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("El email ya está registrado por otro usuario");
+        }
+        if (!visibleChanged) {
+            // Solo la contraseña: cambia la versión (ETag) pero nada visible para el outbox ni los índices
+            evictUser(id);
+            return new VersionedUser(convertToDTO(user), user.getUpdatedAt());
+        }
+        return publishUpdate(user, emailChanged);
+    }
+
+    /**
+     * Usuario a modificar; con If-Match se bloquea y se exige que su versión coincida
+     */
+    private User findForUpdate(Long id, List<String> ifMatch) {
+        boolean conditional = ifMatch != null && !ifMatch.isEmpty();
+        User user = (conditional ? userRepository.findByIdForUpdate(id) : userRepository.findById(id))
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        if (conditional && !VersionedUser.matches(ifMatch, VersionedUser.etagOf(user.getUpdatedAt()))) {
+            throw new RuntimeException("Versión desactualizada: el usuario fue modificado por otra solicitud");
+        }
+        return user;
+    }
+
+    /**
+     * Cachés, outbox, índices y filtro de emails tras modificar un usuario
+     */
+    private VersionedUser publishUpdate(User updatedUser, boolean emailChanged) {
+        evictUser(updatedUser.getId());
+        changeLog.recordUpdated(updatedUser);
+        searchIndex.onSaved(updatedUser);
+        mechanicDirectory.onSaved(updatedUser);
+        if (emailChanged) {
+            registeredEmails.add(updatedUser.getEmail());
+            registeredEmails.markStale();
+        }
+        return new VersionedUser(convertToDTO(updatedUser), updatedUser.getUpdatedAt());
+    }
+
+    @Transactional
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
             throw new RuntimeException("Usuario no encontrado");
         }
+        resetTokenRepository.deleteByUserId(id);
         userRepository.deleteById(id);
+        changeLog.recordDeleted(id);
+        searchIndex.onDeleted(id);
+        mechanicDirectory.onDeleted(id);
+        evictUser(id);
+        registeredEmails.markStale();
     }
 
     public UserDTO getUserByEmail(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-        return convertToDTO(user);
+        return usersByEmail.get(normalizeEmail(email), key -> userRepository.findByEmail(key)
+                .map(this::convertToDTO)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado")));
     }
 
     /**
@@ -130,31 +501,68 @@ public class UserService {
      * Solo la contraseña actual (la última guardada) será válida
      */
     public UserDTO verifyCredentials(String email, String password) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Credenciales inválidas"));
-        
-        // ⚠️ CORRECCIÓN CRÍTICA: Validar contraseña con BCrypt
-        // passwordEncoder.matches() compara la contraseña en texto plano con el hash BCrypt almacenado
-        // Solo funcionará si la contraseña coincide exactamente con la última guardada
-        if (!passwordEncoder.matches(password, user.getPassword())) {
-            throw new RuntimeException("Credenciales inválidas");
+        // Tiempo por fase y resultado en users.login.* (ver LoginMetrics)
+        try (LoginMetrics.Attempt attempt = loginMetrics.start()) {
+            // Solo las columnas necesarias (proyección), sin cargar la entidad User
+            Optional<UserCredentials> found = userRepository.findCredentialsByEmail(email);
+            attempt.lookedUp();
+            if (found.isEmpty()) {
+                attempt.outcome(LoginMetrics.Outcome.UNKNOWN_EMAIL);
+                throw new RuntimeException("Credenciales inválidas");
+            }
+            UserCredentials credentials = found.get();
+
+            // ⚠️ CORRECCIÓN CRÍTICA: Validar contraseña con BCrypt
+            // passwordEncoder.matches() compara la contraseña en texto plano con el hash BCrypt almacenado
+            // Solo funcionará si la contraseña coincide exactamente con la última guardada
+            boolean matches = passwordEncoder.matches(password, credentials.password());
+            attempt.hashed();
+            if (!matches) {
+                attempt.outcome(LoginMetrics.Outcome.BAD_PASSWORD);
+                throw new RuntimeException("Credenciales inválidas");
+            }
+
+            UserDTO userDTO = convertToDTO(credentials);
+            attempt.mapped();
+            attempt.outcome(LoginMetrics.Outcome.SUCCESS);
+
+            rehashIfOutdated(credentials, password);
+            return userDTO;
         }
-        
-        return convertToDTO(user);
     }
 
     /**
-     * Genera un token de recuperación de contraseña
+     * Si el hash guardado usa un costo o formato anterior, lo recalcula con la configuración actual.
+     * Solo se puede hacer aquí, cuando se conoce la contraseña en texto plano.
+     */
+    private void rehashIfOutdated(UserCredentials credentials, String password) {
+        if (!passwordEncoder.upgradeEncoding(credentials.password())) {
+            return;
+        }
+        try {
+            userRepository.updatePasswordHash(credentials.id(), credentials.password(), passwordEncoder.encode(password));
+        } catch (RuntimeException e) {
+            // El login ya es válido: si el pool está saturado, se reintenta en el próximo login
+        }
+    }
+
+    /**
+     * Genera un token de recuperación de contraseña.
+     * Se guarda solo su hash y reemplaza cualquier token anterior del usuario.
      */
     @Transactional
     public String generatePasswordResetToken(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        String token = UUID.randomUUID().toString();
-        user.setResetToken(token);
-        user.setResetTokenExpiry(LocalDateTime.now().plusHours(24)); // Token válido por 24 horas
-        userRepository.save(user);
+        byte[] random = new byte[32];
+        SECURE_RANDOM.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        LocalDateTime now = LocalDateTime.now();
+        resetTokenRepository.deleteByUserId(user.getId());
+        resetTokenRepository.save(new PasswordResetToken(hashResetToken(token), user.getId(),
+                now.plusHours(resetTokenTtlHours), now));
 
         return token;
     }
@@ -169,45 +577,104 @@ public class UserService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        // Validar que el token coincide con el del usuario
-        if (user.getResetToken() == null || !user.getResetToken().equals(token)) {
-            throw new RuntimeException("Token inválido o expirado");
-        }
-
-        // Validar que el token no ha expirado
-        if (user.getResetTokenExpiry() == null || user.getResetTokenExpiry().isBefore(LocalDateTime.now())) {
-            throw new RuntimeException("Token inválido o expirado");
-        }
+        // Búsqueda puntual por la clave primaria (hash del token); debe ser del usuario y estar vigente
+        PasswordResetToken resetToken = (token == null ? Optional.<PasswordResetToken>empty()
+                : resetTokenRepository.findById(hashResetToken(token)))
+                .filter(candidate -> candidate.getUserId().equals(user.getId()))
+                .filter(candidate -> candidate.getExpiresAt().isAfter(LocalDateTime.now()))
+                .orElseThrow(() -> new RuntimeException("Token inválido o expirado"));
 
         // Encriptar la nueva contraseña
         user.setPassword(passwordEncoder.encode(newPassword));
-        user.setResetToken(null);
-        user.setResetTokenExpiry(null);
         userRepository.save(user);
+        // Un solo uso: se eliminan este token y cualquier otro del usuario
+        resetTokenRepository.deleteByUserId(resetToken.getUserId());
+        evictUser(user.getId());
     }
 
     /**
-     * Obtiene o crea un rol a partir de su nombre
+     * Quita al usuario de las cachés de lectura y lo anuncia a las demás réplicas. Dentro de una
+     * transacción se repite tras el commit, para que una lectura concurrente no vuelva a cachear la versión anterior.
      */
-    private Role getOrCreateRole(String roleName) {
-        final RoleType roleType = getRoleType(roleName);
+    private void evictUser(Long id) {
+        invalidationTransport.publish(id);
+        invalidateCaches(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateCaches(id);
+                }
+            });
+        }
+    }
+
+    private void invalidateCaches(Long id) {
+        versionedById.invalidate(id);
+        usersById.invalidate(id);
+        usersByEmail.invalidateByIndex(id);
+    }
 
-        return roleRepository.findByName(roleType)
-                .orElseGet(() -> {
-                    Role newRole = new Role(roleType, roleType.getDescription());
-                    return roleRepository.save(newRole);
-                });
+    private static String hashResetToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 
     /**
-     * Obtiene el tipo de rol a partir del nombre, con CLIENT como valor por defecto
+     * Valor de texto de un campo del patch (null si no viene); null explícito o vacío no se admiten
      */
-    private RoleType getRoleType(String roleName) {
-        try {
-            return RoleType.valueOf(roleName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            return RoleType.CLIENT; // Rol por defecto
+    private static String patchValue(Map<String, Object> patch, String field) {
+        if (!patch.containsKey(field)) {
+            return null;
+        }
+        Object value = patch.get(field);
+        if (value == null || (value instanceof String text && text.isBlank())) {
+            throw new RuntimeException("El campo " + field + " es obligatorio y no puede eliminarse");
         }
+        if (!(value instanceof String text)) {
+            throw new RuntimeException("Valor inválido para " + field + ": debe ser texto");
+        }
+        return text;
+    }
+
+    /**
+     * Si la violación es la del índice único de email (y no, p. ej., la de la clave primaria)
+     */
+    static boolean isEmailConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT).contains(User.EMAIL_UNIQUE_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
+    private String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private UserDTO convertToDTO(UserSummary user) {
+        return new UserDTO(
+                user.getId(),
+                user.getEmail(),
+                user.getName(),
+                user.getPhone(),
+                roleRegistry.nameOf(user.getRoleId())
+        );
+    }
+
+    private UserDTO convertToDTO(UserCredentials user) {
+        return new UserDTO(
+                user.id(),
+                user.email(),
+                user.name(),
+                user.phone(),
+                roleRegistry.nameOf(user.roleId())
+        );
     }
 
     private UserDTO convertToDTO(User user) {
@@ -216,7 +683,7 @@ public class UserService {
                 user.getEmail(),
                 user.getName(),
                 user.getPhone(),
-                user.getRoleName()
+                roleRegistry.nameOf(user.getRole())
         );
     }
 }
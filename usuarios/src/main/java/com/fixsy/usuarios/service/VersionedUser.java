@@ -0,0 +1,51 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.dto.UserDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+/**
+ * Un usuario junto con su versión (updatedAt), leídos a la vez para que el ETag
+ * siempre corresponda al cuerpo que se envía
+ */
+public record VersionedUser(UserDTO user, LocalDateTime updatedAt) {
+
+    /**
+     * ETag débil derivado de updatedAt (microsegundos desde la época): cambia con cada UPDATE del usuario
+     */
+    public static String etagOf(LocalDateTime updatedAt) {
+        long micros = updatedAt == null ? 0L
+                : ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), updatedAt);
+        return "W/\"" + Long.toString(micros, 36) + "\"";
+    }
+
+    /**
+     * Fecha para el header Last-Modified (null si el usuario no registra modificaciones)
+     */
+    public static ZonedDateTime lastModifiedOf(LocalDateTime updatedAt) {
+        return updatedAt == null ? null : updatedAt.atZone(ZoneId.systemDefault());
+    }
+
+    /**
+     * Compara una lista de ETags de If-Match / If-None-Match ("*" incluido) con el ETag actual.
+     * La comparación es débil, también para If-Match: los ETags de usuario solo son débiles
+     */
+    public static boolean matches(Collection<String> tags, String etag) {
+        String opaque = opaque(etag);
+        for (String tag : tags) {
+            String candidate = tag.strip();
+            if (candidate.equals("*") || opaque(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
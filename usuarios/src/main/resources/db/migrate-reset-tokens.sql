@@ -0,0 +1,6 @@
+-- Migración manual: los tokens de recuperación pasan a password_reset_tokens (solo el hash).
+-- ddl-auto=update crea la tabla nueva pero no elimina columnas; ejecutar una vez por base de datos.
+-- Los tokens pendientes en users se descartan: el usuario solicita uno nuevo.
+ALTER TABLE users
+    DROP COLUMN reset_token,
+    DROP COLUMN reset_token_expiry;
@@ -0,0 +1,4 @@
+-- Migración manual: el índice único de email pasa a llamarse uk_users_email (nombre explícito en User).
+-- MySQL lo había nombrado como la columna; sin renombrarlo, ddl-auto=update crearía un segundo índice único.
+-- Ejecutar una vez por base de datos, antes de desplegar.
+ALTER TABLE users RENAME INDEX email TO uk_users_email;
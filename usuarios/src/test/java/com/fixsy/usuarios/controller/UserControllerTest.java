@@ -1,8 +1,17 @@
 package com.fixsy.usuarios.controller;
 
+import com.fixsy.usuarios.dto.LoginResponseDTO;
 import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.dto.UserImportResultDTO;
+import com.fixsy.usuarios.dto.UserPageDTO;
 import com.fixsy.usuarios.dto.UserRequestDTO;
+import com.fixsy.usuarios.security.AccessTokenService;
+import com.fixsy.usuarios.security.LoginThrottle;
+import com.fixsy.usuarios.service.MechanicDirectory;
+import com.fixsy.usuarios.service.UserExportService;
+import com.fixsy.usuarios.service.UserImportService;
 import com.fixsy.usuarios.service.UserService;
+import com.fixsy.usuarios.service.VersionedUser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,7 +21,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +38,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +47,21 @@ class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private AccessTokenService accessTokenService;
+
+    @Mock
+    private UserImportService userImportService;
+
+    @Mock
+    private LoginThrottle loginThrottle;
+
+    @Mock
+    private MechanicDirectory mechanicDirectory;
+
+    @Mock
+    private UserExportService userExportService;
+
     @InjectMocks
     private UserController userController;
 
@@ -53,31 +85,114 @@ class UserControllerTest {
     void getAllUsers_ShouldReturnListOfUsers() {
         // Arrange
         UserDTO user2 = new UserDTO(2L, "user2@example.com", "User 2", "0987654321", "MECHANIC");
-        when(userService.getAllUsers()).thenReturn(Arrays.asList(testUserDTO, user2));
+        when(userService.getUsersPage(null, null, null, null, null))
+                .thenReturn(new UserPageDTO(Arrays.asList(testUserDTO, user2), null));
 
         // Act
-        ResponseEntity<List<UserDTO>> response = userController.getAllUsers();
+        ResponseEntity<List<UserDTO>> response = userController.getAllUsers(null, null, null, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
-        verify(userService, times(1)).getAllUsers();
+        assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+        verify(userService, times(1)).getUsersPage(null, null, null, null, null);
+    }
+
+    @Test
+    @DisplayName("GET /api/users - Debe informar el cursor de la siguiente página")
+    void getAllUsers_ShouldExposeNextCursorHeader() {
+        // Arrange
+        when(userService.getUsersPage(0L, 1, "CLIENT", null, null))
+                .thenReturn(new UserPageDTO(List.of(testUserDTO), 1L));
+
+        // Act
+        ResponseEntity<List<UserDTO>> response = userController.getAllUsers(0L, 1, "CLIENT", null, null);
+
+        // Assert
+        assertEquals(1, response.getBody().size());
+        assertEquals("1", response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch - Debe retornar un mapa ID -> usuario")
+    void getUsersBatch_ShouldReturnMap() {
+        // Arrange
+        when(userService.getUsersByIds(List.of(1L, 2L))).thenReturn(Map.of(1L, testUserDTO));
+
+        // Act
+        ResponseEntity<Map<Long, UserDTO>> response = userController.getUsersBatch(Map.of("ids", List.of(1L, 2L)));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        assertEquals("test@example.com", response.getBody().get(1L).getEmail());
+    }
+
+    @Test
+    @DisplayName("POST /api/users/import - Debe retornar el resultado de la importación")
+    void importUsers_ShouldReturnResult() {
+        // Arrange
+        List<UserRequestDTO> rows = List.of(testUserRequest);
+        when(userImportService.importUsers(rows)).thenReturn(new UserImportResultDTO(1, 1, List.of()));
+
+        // Act
+        ResponseEntity<UserImportResultDTO> response = userController.importUsers(rows);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getCreated());
     }
 
     @Test
     @DisplayName("GET /api/users/{id} - Debe retornar usuario por ID")
     void getUserById_ShouldReturnUser() {
         // Arrange
-        when(userService.getUserById(1L)).thenReturn(testUserDTO);
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 3, 1, 10, 30);
+        when(userService.getVersionedUser(1L)).thenReturn(new VersionedUser(testUserDTO, updatedAt));
 
         // Act
-        ResponseEntity<UserDTO> response = userController.getUserById(1L);
+        ResponseEntity<UserDTO> response = userController.getUserById(1L, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals("test@example.com", response.getBody().getEmail());
+        assertEquals(VersionedUser.etagOf(updatedAt), response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getLastModified() > 0);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - Debe responder 304 con la versión, sin leer el usuario")
+    void getUserById_ShouldReturnNotModified_WhenEtagMatches() {
+        // Arrange
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 3, 1, 10, 30);
+        when(userService.getUserVersion(1L)).thenReturn(updatedAt);
+
+        // Act
+        ResponseEntity<UserDTO> response = userController.getUserById(1L, VersionedUser.etagOf(updatedAt), null);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(userService, never()).getVersionedUser(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - Debe retornar el usuario si cambió desde If-Modified-Since")
+    void getUserById_ShouldReturnUser_WhenModifiedSince() {
+        // Arrange
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 3, 1, 10, 30);
+        when(userService.getUserVersion(1L)).thenReturn(updatedAt);
+        when(userService.getVersionedUser(1L)).thenReturn(new VersionedUser(testUserDTO, updatedAt));
+        String before = DateTimeFormatter.RFC_1123_DATE_TIME.format(VersionedUser.lastModifiedOf(updatedAt).minusMinutes(1));
+
+        // Act
+        ResponseEntity<UserDTO> response = userController.getUserById(1L, null, before);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(testUserDTO, response.getBody());
     }
 
     @Test
@@ -137,14 +252,15 @@ class UserControllerTest {
     void updateUser_ShouldReturnUpdatedUser() {
         // Arrange
         UserDTO updatedDTO = new UserDTO(1L, "updated@example.com", "Updated User", "9999999999", "CLIENT");
-        when(userService.updateUser(anyLong(), any(UserRequestDTO.class))).thenReturn(updatedDTO);
+        when(userService.updateUser(anyLong(), any(UserRequestDTO.class), eq(List.of())))
+                .thenReturn(new VersionedUser(updatedDTO, LocalDateTime.now()));
 
         testUserRequest.setEmail("updated@example.com");
         testUserRequest.setName("Updated User");
         testUserRequest.setPassword(null); // No actualizar contraseña
 
         // Act
-        ResponseEntity<?> response = userController.updateUser(1L, testUserRequest);
+        ResponseEntity<?> response = userController.updateUser(1L, testUserRequest, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -154,6 +270,38 @@ class UserControllerTest {
         assertEquals("updated@example.com", responseBody.getEmail());
     }
 
+    @Test
+    @DisplayName("PUT /api/users/{id} - Debe responder 412 si If-Match no es la versión actual")
+    void updateUser_ShouldReturnPreconditionFailed_WhenVersionIsStale() {
+        // Arrange
+        testUserRequest.setPassword(null);
+        when(userService.updateUser(1L, testUserRequest, List.of("W/\"abc\"")))
+                .thenThrow(new RuntimeException("Versión desactualizada: el usuario fue modificado por otra solicitud"));
+
+        // Act
+        ResponseEntity<?> response = userController.updateUser(1L, testUserRequest, "W/\"abc\"");
+
+        // Assert
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("PATCH /api/users/{id} - Debe aplicar el patch y retornar el usuario con su ETag")
+    void patchUser_ShouldReturnPatchedUser() {
+        // Arrange
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 3, 1, 10, 30);
+        Map<String, Object> patch = Map.of("phone", "5555555555");
+        when(userService.patchUser(1L, patch, List.of())).thenReturn(new VersionedUser(testUserDTO, updatedAt));
+
+        // Act
+        ResponseEntity<UserDTO> response = userController.patchUser(1L, patch, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(testUserDTO, response.getBody());
+        assertEquals(VersionedUser.etagOf(updatedAt), response.getHeaders().getETag());
+    }
+
     @Test
     @DisplayName("DELETE /api/users/{id} - Debe eliminar usuario")
     void deleteUser_ShouldReturnNoContent() {
@@ -168,18 +316,108 @@ class UserControllerTest {
         verify(userService, times(1)).deleteUser(1L);
     }
 
+    @Test
+    @DisplayName("GET /api/users/email-available - Debe retornar la disponibilidad del email")
+    void isEmailAvailable_ShouldReturnAvailability() {
+        // Arrange
+        when(userService.isEmailAvailable("nuevo@example.com")).thenReturn(true);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = userController.isEmailAvailable("nuevo@example.com");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(true, response.getBody().get("available"));
+        assertEquals("nuevo@example.com", response.getBody().get("email"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/export - Debe escribir el stream NDJSON en la respuesta")
+    void exportUsers_ShouldStreamNdjson() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(userExportService.export(any())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        // Act
+        userController.exportUsers(response);
+
+        // Assert
+        assertEquals(UserExportService.NDJSON + ";charset=UTF-8", response.getContentType());
+        assertEquals("{\"id\":1}\n", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/export - Si falla antes de enviar datos, debe limpiar la respuesta para el error")
+    void exportUsers_ShouldResetResponse_WhenSaturated() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(userExportService.export(any())).thenThrow(new RuntimeException("Servicio saturado"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> userController.exportUsers(response));
+        assertNull(response.getContentType());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/mechanics - Debe retornar la lista con su ETag")
+    void getMechanics_ShouldReturnListWithEtag() {
+        // Arrange
+        when(mechanicDirectory.snapshot()).thenReturn(new MechanicDirectory.Snapshot(List.of(testUserDTO), "\"abc\""));
+
+        // Act
+        ResponseEntity<List<UserDTO>> response = userController.getMechanics(null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertEquals(List.of(testUserDTO), response.getBody());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/mechanics - Debe retornar 304 si el ETag no cambió")
+    void getMechanics_ShouldReturnNotModified_WhenEtagMatches() {
+        // Arrange
+        when(mechanicDirectory.snapshot()).thenReturn(new MechanicDirectory.Snapshot(List.of(testUserDTO), "\"abc\""));
+
+        // Act
+        ResponseEntity<List<UserDTO>> response = userController.getMechanics("\"abc\"");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - Debe retornar los usuarios encontrados")
+    void searchUsers_ShouldReturnMatches() {
+        // Arrange
+        when(userService.searchUsers("test", null)).thenReturn(List.of(testUserDTO));
+
+        // Act
+        ResponseEntity<List<UserDTO>> response = userController.searchUsers("test", null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(testUserDTO), response.getBody());
+    }
+
     @Test
     @DisplayName("POST /api/users/login - Debe iniciar sesión correctamente")
     void login_ShouldReturnUser_WhenCredentialsValid() {
         // Arrange
+        Instant expiresAt = Instant.now().plusSeconds(3600);
         when(userService.verifyCredentials("test@example.com", "password123")).thenReturn(testUserDTO);
+        when(accessTokenService.issue(testUserDTO)).thenReturn(new AccessTokenService.IssuedToken("signed-token", expiresAt));
         
         Map<String, String> credentials = new HashMap<>();
         credentials.put("email", "test@example.com");
         credentials.put("password", "password123");
 
         // Act
-        ResponseEntity<?> response = userController.login(credentials);
+        ResponseEntity<?> response = userController.login(credentials, new MockHttpServletRequest());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -187,6 +425,32 @@ class UserControllerTest {
         assertTrue(response.getBody() instanceof UserDTO);
         UserDTO responseBody = (UserDTO) response.getBody();
         assertEquals("test@example.com", responseBody.getEmail());
+        LoginResponseDTO loginBody = (LoginResponseDTO) response.getBody();
+        assertEquals("signed-token", loginBody.getToken());
+        assertEquals("Bearer", loginBody.getTokenType());
+        assertEquals(expiresAt, loginBody.getExpiresAt());
+        verify(loginThrottle).onSuccess("test@example.com");
+    }
+
+    @Test
+    @DisplayName("POST /api/users/login - Debe retornar 429 sin verificar credenciales cuando se supera el límite")
+    void login_ShouldReturnTooManyRequests_WhenThrottled() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+        when(loginThrottle.tryAcquire("test@example.com", "203.0.113.7")).thenReturn(120L);
+
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("email", "test@example.com");
+        credentials.put("password", "password123");
+
+        // Act
+        ResponseEntity<?> response = userController.login(credentials, request);
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("120", response.getHeaders().getFirst("Retry-After"));
+        verify(userService, never()).verifyCredentials(anyString(), anyString());
     }
 
     @Test
@@ -196,7 +460,7 @@ class UserControllerTest {
         Map<String, String> credentials = new HashMap<>();
 
         // Act
-        ResponseEntity<?> response = userController.login(credentials);
+        ResponseEntity<?> response = userController.login(credentials, new MockHttpServletRequest());
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -207,6 +471,25 @@ class UserControllerTest {
         assertTrue(errorBody.containsKey("error"));
     }
 
+    @Test
+    @DisplayName("POST /api/users/login - Debe retornar 503 cuando el pool de hash está saturado")
+    void login_ShouldReturnServiceUnavailable_WhenHashingSaturated() {
+        // Arrange
+        when(userService.verifyCredentials("test@example.com", "password123"))
+                .thenThrow(new RuntimeException("Servicio saturado: demasiadas operaciones de contraseña en curso, reintente más tarde"));
+
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("email", "test@example.com");
+        credentials.put("password", "password123");
+
+        // Act
+        ResponseEntity<?> response = userController.login(credentials, new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+    }
+
     @Test
     @DisplayName("POST /api/users/forgot-password - Debe generar token de recuperación")
     void forgotPassword_ShouldReturnToken() {
@@ -0,0 +1,42 @@
+package com.fixsy.usuarios.model;
+
+import com.fixsy.usuarios.config.UserIdConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserIdsTest {
+
+    @Test
+    @DisplayName("Los IDs deben ser únicos, crecientes y seguros para JavaScript")
+    void nextId_ShouldBeUniqueIncreasingAndJsSafe() {
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        // Más que la secuencia de un segundo, para cubrir el desborde
+        for (int i = 0; i < 70_000; i++) {
+            long id = UserIds.nextId();
+            assertTrue(id > previous);
+            assertTrue(id < (1L << 53));
+            ids.add(id);
+            previous = id;
+        }
+        assertEquals(70_000, ids.size());
+    }
+
+    @Test
+    @DisplayName("Debe validar el rango del worker-id")
+    void setWorkerId_ShouldValidateRange() {
+        assertThrows(IllegalArgumentException.class, () -> UserIds.setWorkerId(UserIds.MAX_WORKERS));
+        assertThrows(IllegalArgumentException.class, () -> UserIds.setWorkerId(-1));
+    }
+
+    @Test
+    @DisplayName("Debe impedir el arranque sin un worker-id explícito")
+    void userIdConfig_ShouldFail_WhenWorkerIdMissing() {
+        assertThrows(IllegalStateException.class, () -> new UserIdConfig(null));
+    }
+}
@@ -0,0 +1,80 @@
+package com.fixsy.usuarios.security;
+
+import com.fixsy.usuarios.dto.UserDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokenServiceTest {
+
+    private static final String SECRET = "secreto-de-prueba-con-al-menos-32-bytes";
+
+    private final AccessTokenVerifier verifier = new AccessTokenVerifier(SECRET);
+    private final AccessTokenService tokenService = new AccessTokenService(verifier, 60);
+    private final UserDTO user = new UserDTO(7L, "mecanico@example.com", "Mecánico", "123", "MECHANIC");
+
+    @Test
+    @DisplayName("Debe emitir un token que se valida localmente con id, rol y expiración")
+    void issue_ShouldProduceVerifiableToken() {
+        AccessTokenService.IssuedToken issued = tokenService.issue(user);
+
+        AccessTokenClaims claims = verifier.verify("Bearer " + issued.token());
+
+        assertEquals(7L, claims.userId());
+        assertEquals("MECHANIC", claims.role());
+        assertEquals(issued.expiresAt().getEpochSecond(), claims.expiresAt().getEpochSecond());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un token con el payload modificado")
+    void verify_ShouldReject_WhenPayloadTampered() {
+        String[] parts = tokenService.issue(user).token().split("\\.");
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"sub\":\"7\",\"role\":\"ADMIN\",\"exp\":9999999999}".getBytes(StandardCharsets.UTF_8));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> verifier.verify(parts[0] + "." + forged + "." + parts[2]));
+        assertEquals("Token inválido o expirado", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar tokens firmados con otro secreto")
+    void verify_ShouldReject_WhenSecretDiffers() {
+        String token = new AccessTokenService(new AccessTokenVerifier("otro-secreto-distinto-de-32-bytes-o-mas"), 60)
+                .issue(user).token();
+
+        assertThrows(RuntimeException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar tokens expirados")
+    void verify_ShouldReject_WhenExpired() {
+        String token = new AccessTokenService(verifier, -5).issue(user).token();
+
+        assertThrows(RuntimeException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar tokens mal formados o con otro algoritmo")
+    void verify_ShouldReject_WhenMalformed() {
+        String noneHeader = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = tokenService.issue(user).token().split("\\.")[1];
+
+        assertThrows(RuntimeException.class, () -> verifier.verify(null));
+        assertThrows(RuntimeException.class, () -> verifier.verify("abc"));
+        assertThrows(RuntimeException.class, () -> verifier.verify(noneHeader + "." + payload + "."));
+    }
+
+    @Test
+    @DisplayName("Debe exigir un secreto configurado de al menos 32 bytes (sin valor por defecto)")
+    void constructor_ShouldRejectMissingOrShortSecret() {
+        assertThrows(IllegalStateException.class, () -> new AccessTokenVerifier("corto"));
+        assertThrows(IllegalStateException.class, () -> new AccessTokenVerifier(""));
+        assertThrows(IllegalStateException.class, () -> new AccessTokenVerifier(null));
+    }
+}
@@ -0,0 +1,43 @@
+package com.fixsy.usuarios.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BCryptStrengthTest {
+
+    @Test
+    @DisplayName("Debe usar el costo mínimo si ninguno cumple el objetivo")
+    void calibrate_ShouldReturnMin_WhenTargetTooLow() {
+        assertEquals(4, BCryptStrength.calibrate(Duration.ZERO, 4, 6));
+    }
+
+    @Test
+    @DisplayName("No debe superar el costo máximo")
+    void calibrate_ShouldNotExceedMax() {
+        int strength = BCryptStrength.calibrate(Duration.ofSeconds(10), 4, 5);
+        assertTrue(strength >= 4 && strength <= 5);
+    }
+
+    @Test
+    @DisplayName("Debe generar hashes versionados y aceptar los anteriores sin prefijo")
+    void versionedEncoder_ShouldMatchLegacyHashesAndFlagThemForUpgrade() {
+        PasswordEncoder encoder = BCryptStrength.versionedEncoder(5);
+        String legacy = new BCryptPasswordEncoder(4).encode("password123");
+
+        String current = encoder.encode("password123");
+
+        assertTrue(current.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.matches("password123", current));
+        assertFalse(encoder.upgradeEncoding(current));
+
+        assertTrue(encoder.matches("password123", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + legacy));
+    }
+}
@@ -0,0 +1,108 @@
+package com.fixsy.usuarios.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (encoder != null) {
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe delegar encode y matches y registrar la latencia")
+    void encodeAndMatches_ShouldDelegate() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(null), 2, 4, Duration.ofSeconds(2), registry);
+
+        String encoded = encoder.encode("password123");
+
+        assertEquals("{plain}password123", encoded);
+        assertTrue(encoder.matches("password123", encoded));
+        assertFalse(encoder.matches("otra", encoded));
+        assertEquals(3, registry.get("users.password.hash").timer().count());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar de inmediato cuando la cola está llena")
+    void encode_ShouldReject_WhenQueueFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(started), 1, 1, Duration.ofSeconds(5), registry);
+
+        // Ocupa el único hilo y la única posición de la cola
+        Thread busy = Thread.ofVirtual().start(() -> encoder.encode("a"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        Thread queued = Thread.ofVirtual().start(() -> encoder.encode("b"));
+        while (encoder.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> encoder.encode("c"));
+        assertTrue(exception.getMessage().contains("saturado"));
+        assertEquals(1, encoder.getRejected());
+
+        release.countDown();
+        busy.join();
+        queued.join();
+    }
+
+    @Test
+    @DisplayName("Debe rechazar cuando la espera supera el timeout")
+    void matches_ShouldReject_WhenTimeoutExpires() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(new CountDownLatch(1)), 1, 1, Duration.ofMillis(50), registry);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> encoder.matches("a", "{plain}a"));
+        assertTrue(exception.getMessage().contains("saturado"));
+    }
+
+    /**
+     * Codificador trivial; si recibe un latch, se bloquea hasta que el test lo libere
+     */
+    private class PlainEncoder implements PasswordEncoder {
+        private final CountDownLatch started;
+
+        PlainEncoder(CountDownLatch started) {
+            this.started = started;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            block();
+            return "{plain}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            block();
+            return ("{plain}" + rawPassword).equals(encodedPassword);
+        }
+
+        private void block() {
+            if (started == null) {
+                return;
+            }
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
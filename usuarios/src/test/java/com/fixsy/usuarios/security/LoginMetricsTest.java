@@ -0,0 +1,59 @@
+package com.fixsy.usuarios.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LoginMetrics metrics = new LoginMetrics(registry);
+
+    @Test
+    @DisplayName("Un intento cerrado sin resultado (excepción inesperada) se cuenta como error")
+    void close_ShouldCountErrorWhenNoOutcome() {
+        try (LoginMetrics.Attempt attempt = metrics.start()) {
+            attempt.lookedUp();
+        }
+
+        assertEquals(1.0, registry.get("users.login.attempts").tag("outcome", "error").counter().count());
+        assertEquals(0.0, registry.get("users.login.attempts").tag("outcome", "success").counter().count());
+        assertEquals(1, registry.get("users.login.phase").tag("phase", "lookup").timer().count());
+        assertEquals(0, registry.get("users.login.phase").tag("phase", "hash").timer().count());
+    }
+
+    @Test
+    @DisplayName("Debe emitir un evento JFR con el resultado y la duración de cada fase")
+    void close_ShouldCommitJfrEvent(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("login.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.fixsy.usuarios.Login");
+            recording.start();
+            try (LoginMetrics.Attempt attempt = metrics.start()) {
+                attempt.lookedUp();
+                attempt.hashed();
+                attempt.mapped();
+                attempt.outcome(LoginMetrics.Outcome.SUCCESS);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.fixsy.usuarios.Login"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("SUCCESS", events.get(0).getString("outcome"));
+        assertTrue(events.get(0).getDuration("lookup").toNanos() >= 0);
+        assertTrue(events.get(0).getDuration().toNanos() >= events.get(0).getDuration("hash").toNanos());
+    }
+}
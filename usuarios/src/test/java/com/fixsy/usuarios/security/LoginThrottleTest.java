@@ -0,0 +1,156 @@
+package com.fixsy.usuarios.security;
+
+import com.fixsy.usuarios.model.LoginBackoff;
+import com.fixsy.usuarios.repository.LoginBackoffRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginThrottleTest {
+
+    @Mock
+    private LoginBackoffRepository backoffRepository;
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        when(backoffRepository.findByBlockedUntilAfter(any())).thenReturn(List.of());
+        throttle = newThrottle();
+    }
+
+    private LoginThrottle newThrottle() {
+        return new LoginThrottle(backoffRepository,
+                new LoginThrottle.Limit(3, Duration.ofMinutes(5)),
+                new LoginThrottle.Limit(10, Duration.ofMinutes(1)),
+                Duration.ofSeconds(60), Duration.ofHours(1), Duration.ofHours(24), 1000, now::get);
+    }
+
+    @Test
+    @DisplayName("Debe bloquear el email al superar el límite y aplicar backoff")
+    void tryAcquire_ShouldBlockEmail_WhenLimitExceeded() {
+        when(backoffRepository.findById(anyString())).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("Victim@Example.com", "10.0.0." + i));
+        }
+
+        assertEquals(60, throttle.tryAcquire("victim@example.com", "10.0.0.99"));
+        // Bloqueado: no vuelve a consultar la BD mientras dura el bloqueo
+        now.addAndGet(30_000);
+        assertEquals(30, throttle.tryAcquire("victim@example.com", "10.0.0.100"));
+        verify(backoffRepository, times(1)).findById("email:victim@example.com");
+
+        ArgumentCaptor<LoginBackoff> saved = ArgumentCaptor.forClass(LoginBackoff.class);
+        verify(backoffRepository).save(saved.capture());
+        assertEquals(1, saved.getValue().getStrikes());
+    }
+
+    @Test
+    @DisplayName("Una ráfaga concurrente sobre la misma clave debe contar una sola reincidencia")
+    void tryAcquire_ShouldStrikeOnce_UnderConcurrentBurst() throws Exception {
+        when(backoffRepository.findById(anyString())).thenReturn(Optional.empty());
+        for (int i = 0; i < 3; i++) {
+            throttle.tryAcquire("victim@example.com", "10.0.0." + i);
+        }
+
+        List<Long> waits = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String ip = "10.0.1." + i;
+            threads.add(Thread.ofVirtual().start(() -> waits.add(throttle.tryAcquire("victim@example.com", ip))));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20, waits.size());
+        assertTrue(waits.stream().allMatch(wait -> wait == 60));
+        verify(backoffRepository, times(1)).save(any(LoginBackoff.class));
+    }
+
+    @Test
+    @DisplayName("Debe limitar por IP aunque cada intento use un email distinto")
+    void tryAcquire_ShouldBlockIp_WhenLimitExceeded() {
+        when(backoffRepository.findById("ip:10.0.0.1")).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, throttle.tryAcquire("user" + i + "@example.com", "10.0.0.1"));
+        }
+
+        assertTrue(throttle.tryAcquire("other@example.com", "10.0.0.1") > 0);
+        assertEquals(0, throttle.tryAcquire("other@example.com", "10.0.0.2"));
+    }
+
+    @Test
+    @DisplayName("Debe duplicar el bloqueo de un reincidente")
+    void tryAcquire_ShouldDoubleBackoff_ForRepeatOffender() {
+        LoginBackoff previous = new LoginBackoff("email:victim@example.com", 2,
+                Instant.ofEpochMilli(now.get() - 1000), Instant.ofEpochMilli(now.get() - 60_000));
+        when(backoffRepository.findById("email:victim@example.com")).thenReturn(Optional.of(previous));
+
+        for (int i = 0; i < 3; i++) {
+            throttle.tryAcquire("victim@example.com", null);
+        }
+
+        assertEquals(240, throttle.tryAcquire("victim@example.com", null));
+        assertEquals(3, previous.getStrikes());
+    }
+
+    @Test
+    @DisplayName("Debe liberar intentos cuando la ventana se desliza")
+    void tryAcquire_ShouldAllowAgain_AfterWindowSlides() {
+        for (int i = 0; i < 3; i++) {
+            throttle.tryAcquire("user@example.com", null);
+        }
+
+        // Dos ventanas después los intentos anteriores ya no cuentan
+        now.addAndGet(Duration.ofMinutes(10).toMillis());
+        assertEquals(0, throttle.tryAcquire("user@example.com", null));
+        verify(backoffRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Un login correcto debe reiniciar los intentos del email")
+    void onSuccess_ShouldResetEmailWindow() {
+        throttle.tryAcquire("user@example.com", null);
+        throttle.tryAcquire("user@example.com", null);
+        throttle.onSuccess("user@example.com");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("user@example.com", null));
+        }
+    }
+
+    @Test
+    @DisplayName("Debe restaurar los bloqueos persistidos al arrancar")
+    void constructor_ShouldRestorePersistedBlocks() {
+        LoginBackoff blocked = new LoginBackoff("ip:10.0.0.5", 1,
+                Instant.ofEpochMilli(now.get() + 90_000), Instant.ofEpochMilli(now.get()));
+        when(backoffRepository.findByBlockedUntilAfter(any())).thenReturn(List.of(blocked));
+
+        LoginThrottle restarted = newThrottle();
+
+        assertEquals(90, restarted.tryAcquire("user@example.com", "10.0.0.5"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.fixsy.usuarios.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("No debe dar falsos negativos para los valores agregados")
+    void mightContain_ShouldReturnTrue_ForAddedValues() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("user" + i + "@example.com"));
+
+        IntStream.range(0, 10_000).forEach(i -> assertTrue(filter.mightContain("user" + i + "@example.com")));
+        assertEquals(10_000, filter.insertions());
+    }
+
+    @Test
+    @DisplayName("La tasa de falsos positivos debe quedar cerca de la configurada")
+    void mightContain_ShouldKeepFalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("user" + i + "@example.com"));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("otro" + i + "@example.com"))
+                .count();
+
+        assertTrue(falsePositives < 2_000, "Falsos positivos: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Debe dimensionar bits y funciones hash según capacidad y tasa")
+    void constructor_ShouldSizeFilter() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // ~9,6 bits por elemento y 7 funciones hash para 1 %
+        assertTrue(filter.bitCount() >= 9_585_059L && filter.bitCount() < 9_585_059L + 64);
+        assertEquals(7, filter.hashCount());
+        assertFalse(new BloomFilter(10, 0.01).mightContain("vacio@example.com"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.UserCacheInvalidation;
+import com.fixsy.usuarios.repository.UserCacheInvalidationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DbInvalidationLogTest {
+
+    @Mock
+    private UserCacheInvalidationRepository invalidationRepository;
+
+    @InjectMocks
+    private DbInvalidationLog invalidationLog;
+
+    private final List<Long> invalidated = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        invalidationLog.subscribe(invalidated::add);
+        // Primer sondeo: se posiciona al final del log
+        when(invalidationRepository.findMaxId()).thenReturn(Optional.of(10L));
+        invalidationLog.poll();
+    }
+
+    @Test
+    @DisplayName("Debe publicar la invalidación con el ID de esta réplica")
+    void publish_ShouldSaveEntryWithNodeId() {
+        invalidationLog.publish(7L);
+
+        verify(invalidationRepository).save(argThat(entry ->
+                entry.getUserId().equals(7L) && entry.getNodeId().equals(invalidationLog.nodeId())));
+    }
+
+    @Test
+    @DisplayName("Debe avisar solo las invalidaciones de otras réplicas")
+    void poll_ShouldNotifyPeerInvalidationsOnly() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(1);
+        when(invalidationRepository.findAfter(eq(10L), any(Limit.class))).thenReturn(List.of(
+                entry(11L, 100L, "otra-replica", old),
+                entry(12L, 200L, invalidationLog.nodeId(), old)));
+
+        invalidationLog.poll();
+
+        assertEquals(List.of(100L), invalidated);
+    }
+
+    @Test
+    @DisplayName("El cursor se detiene en un hueco de IDs; al llenarse se aplica lo que faltaba una sola vez")
+    void poll_ShouldHoldCursorAtGapAndApplyOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        when(invalidationRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(entry(11L, 100L, "otra", now), entry(13L, 300L, "otra", now)));
+        // El 12 se confirmó tarde: aparece al releer desde el cursor (11), sin importar su created_at
+        when(invalidationRepository.findAfter(eq(11L), any(Limit.class)))
+                .thenReturn(List.of(entry(12L, 200L, "otra", now.minusMinutes(5)), entry(13L, 300L, "otra", now)));
+        when(invalidationRepository.findAfter(eq(13L), any(Limit.class))).thenReturn(List.of());
+
+        invalidationLog.poll();
+        invalidationLog.poll();
+        invalidationLog.poll();
+
+        assertEquals(List.of(100L, 300L, 200L), invalidated);
+        verify(invalidationRepository).findAfter(eq(13L), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Debe saltear un hueco que persiste más que gap-timeout (transacción revertida)")
+    void poll_ShouldSkipGap_AfterTimeout() {
+        ReflectionTestUtils.setField(invalidationLog, "gapTimeoutMillis", 0L);
+        when(invalidationRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(entry(12L, 200L, "otra", LocalDateTime.now())));
+        when(invalidationRepository.findAfter(eq(12L), any(Limit.class))).thenReturn(List.of());
+
+        // El primer sondeo registra el hueco; el siguiente ya lo da por vencido
+        invalidationLog.poll();
+        invalidationLog.poll();
+        invalidationLog.poll();
+
+        assertEquals(List.of(200L), invalidated);
+        verify(invalidationRepository).findAfter(eq(12L), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Si un listener falla, los demás siguen y la entrada se reintenta sin avanzar el cursor")
+    void poll_ShouldRetryEntry_WhenListenerFails() {
+        AtomicInteger failures = new AtomicInteger(1);
+        invalidationLog.subscribe(userId -> {
+            if (userId == 100L && failures.getAndDecrement() > 0) {
+                throw new RuntimeException("BD no disponible");
+            }
+        });
+        LocalDateTime now = LocalDateTime.now();
+        when(invalidationRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(entry(11L, 100L, "otra", now), entry(12L, 200L, "otra", now)));
+        when(invalidationRepository.findAfter(eq(12L), any(Limit.class))).thenReturn(List.of());
+
+        invalidationLog.poll();
+        assertEquals(List.of(100L, 200L), invalidated);
+
+        invalidationLog.poll();
+        invalidationLog.poll();
+
+        // El 11 se reintentó una vez (el 12 no) y luego el cursor pasó a 12
+        assertEquals(List.of(100L, 200L, 100L), invalidated);
+        verify(invalidationRepository).findAfter(eq(12L), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Debe purgar por lotes las entradas más antiguas que la retención")
+    void purgeExpired_ShouldDeleteInBatches() {
+        when(invalidationRepository.findIdsCreatedBefore(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(1L, 2L));
+
+        assertEquals(2, invalidationLog.purgeExpired());
+        verify(invalidationRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    private static UserCacheInvalidation entry(Long id, Long userId, String nodeId, LocalDateTime createdAt) {
+        return new UserCacheInvalidation(id, userId, nodeId, createdAt);
+    }
+}
@@ -0,0 +1,150 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.Role;
+import com.fixsy.usuarios.model.RoleType;
+import com.fixsy.usuarios.model.User;
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MechanicDirectoryTest {
+
+    private static final Role CLIENT = role(1L, RoleType.CLIENT);
+    private static final Role MECHANIC = role(2L, RoleType.MECHANIC);
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private MechanicDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        directory = new MechanicDirectory(now::get);
+        ReflectionTestUtils.setField(directory, "userRepository", userRepository);
+        ReflectionTestUtils.setField(directory, "roleRegistry", new RoleRegistry(List.of(CLIENT, MECHANIC)));
+    }
+
+    private void mechanicsInDb(UserSummary... mechanics) {
+        when(userRepository.findPageByRole(eq(0L), eq(2L), any(Limit.class))).thenReturn(List.of(mechanics));
+    }
+
+    @Test
+    @DisplayName("Lecturas repetidas deben servirse desde la instantánea sin consultar la BD")
+    void snapshot_ShouldLoadOnce() {
+        mechanicsInDb(summary(4L, "Ana"), summary(9L, "Bruno"));
+
+        MechanicDirectory.Snapshot first = directory.snapshot();
+        MechanicDirectory.Snapshot second = directory.snapshot();
+
+        assertSame(first, second);
+        assertEquals(List.of(4L, 9L), first.mechanics().stream().map(user -> user.getId()).toList());
+        assertEquals("MECHANIC", first.mechanics().get(0).getRole());
+        verify(userRepository, times(1)).findPageByRole(any(), any(), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Guardar un mecánico debe recargar la instantánea y cambiar el ETag")
+    void onSaved_ShouldInvalidate_WhenUserIsMechanic() {
+        mechanicsInDb(summary(4L, "Ana"));
+        String etag = directory.snapshot().etag();
+
+        mechanicsInDb(summary(4L, "Ana"), summary(12L, "Carla"));
+        directory.onSaved(user(12L, MECHANIC));
+
+        MechanicDirectory.Snapshot reloaded = directory.snapshot();
+        assertEquals(2, reloaded.mechanics().size());
+        assertNotEquals(etag, reloaded.etag());
+    }
+
+    @Test
+    @DisplayName("Cambios de usuarios que no son ni eran mecánicos no deben invalidar la instantánea")
+    void onSavedAndDeleted_ShouldIgnoreOtherUsers() {
+        mechanicsInDb(summary(4L, "Ana"));
+        MechanicDirectory.Snapshot snapshot = directory.snapshot();
+
+        directory.onSaved(user(20L, CLIENT));
+        directory.onDeleted(21L);
+
+        assertSame(snapshot, directory.snapshot());
+    }
+
+    @Test
+    @DisplayName("Un mecánico que deja de serlo o se elimina debe invalidar la instantánea")
+    void onSavedAndDeleted_ShouldInvalidate_WhenUserWasListed() {
+        mechanicsInDb(summary(4L, "Ana"), summary(9L, "Bruno"));
+        MechanicDirectory.Snapshot snapshot = directory.snapshot();
+
+        directory.onSaved(user(4L, CLIENT));
+        assertNotSame(snapshot, snapshot = directory.snapshot());
+
+        directory.onDeleted(9L);
+        assertNotSame(snapshot, directory.snapshot());
+    }
+
+    @Test
+    @DisplayName("Debe recargar al superar max-age aunque no haya cambios locales (otras réplicas)")
+    void snapshot_ShouldReload_AfterMaxAge() {
+        mechanicsInDb(summary(4L, "Ana"));
+        MechanicDirectory.Snapshot snapshot = directory.snapshot();
+
+        now.addAndGet(30_000);
+        MechanicDirectory.Snapshot reloaded = directory.snapshot();
+
+        assertNotSame(snapshot, reloaded);
+        // Mismo contenido, mismo ETag: los clientes siguen recibiendo 304
+        assertEquals(snapshot.etag(), reloaded.etag());
+    }
+
+    @Test
+    @DisplayName("Debe reconocer el ETag en If-None-Match, también como débil, en listas o con *")
+    void matches_ShouldEvaluateIfNoneMatch() {
+        mechanicsInDb(summary(4L, "Ana"));
+        MechanicDirectory.Snapshot snapshot = directory.snapshot();
+
+        assertTrue(snapshot.matches(snapshot.etag()));
+        assertTrue(snapshot.matches("\"otro\", W/" + snapshot.etag()));
+        assertTrue(snapshot.matches("*"));
+        assertFalse(snapshot.matches("\"otro\""));
+        assertFalse(snapshot.matches(null));
+    }
+
+    private static UserSummary summary(Long id, String name) {
+        return new UserSummary() {
+            public Long getId() { return id; }
+            public String getEmail() { return name.toLowerCase() + "@example.com"; }
+            public String getName() { return name; }
+            public String getPhone() { return "123"; }
+            public Long getRoleId() { return 2L; }
+        };
+    }
+
+    private static User user(Long id, Role role) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
+
+    private static Role role(Long id, RoleType type) {
+        Role role = new Role(type, type.getDescription());
+        role.setId(id);
+        return role;
+    }
+}
@@ -0,0 +1,168 @@
+package com.fixsy.usuarios.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadThroughCacheTest {
+
+    @Test
+    @DisplayName("Las lecturas concurrentes de una misma clave deben producir una sola carga")
+    void get_ShouldCoalesceConcurrentLoads() throws Exception {
+        ReadThroughCache<Long, String> cache = new ReadThroughCache<>(() -> 100, () -> 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Thread> readers = new ArrayList<>();
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        readers.add(Thread.ofVirtual().start(() -> results.add(cache.get(1L, key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "usuario-" + key;
+        }))));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            readers.add(Thread.ofVirtual().start(() -> results.add(cache.get(1L, key -> {
+                loads.incrementAndGet();
+                return "otra-carga";
+            }))));
+        }
+        release.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(11, results.size());
+        assertTrue(results.stream().allMatch("usuario-1"::equals));
+    }
+
+    @Test
+    @DisplayName("No debe guardar errores ni valores expirados")
+    void get_ShouldNotCacheFailuresOrExpiredEntries() {
+        ReadThroughCache<Long, String> cache = new ReadThroughCache<>(() -> 100, () -> 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThrows(RuntimeException.class, () -> cache.get(1L, key -> {
+            loads.incrementAndGet();
+            throw new RuntimeException("Usuario no encontrado");
+        }));
+        cache.get(1L, key -> "a" + loads.incrementAndGet());
+        cache.get(1L, key -> "a" + loads.incrementAndGet());
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Debe respetar el tamaño máximo e invalidar por clave o por índice inverso")
+    void invalidate_ShouldRemoveEntries() {
+        ReadThroughCache<Long, String> cache = new ReadThroughCache<>(() -> 2, () -> 60_000, String::length);
+        cache.get(1L, key -> "uno");
+        cache.get(2L, key -> "dos");
+        cache.get(3L, key -> "tres");
+        assertEquals(2, cache.size());
+
+        cache.invalidate(2L);
+        cache.invalidateByIndex(4);
+        // "uno" salió por LRU y "dos" se invalidó: ningún valor de longitud 3 queda indexado
+        cache.invalidateByIndex(3);
+
+        assertEquals(0, cache.size());
+        assertEquals("nuevo", cache.get(3L, key -> "nuevo"));
+    }
+
+    @Test
+    @DisplayName("Invalidar una clave solo debe descartar la carga en curso de esa clave")
+    void invalidate_ShouldOnlyDiscardInFlightLoadOfSameKey() throws Exception {
+        ReadThroughCache<Long, String> cache = new ReadThroughCache<>(() -> 100, () -> 60_000);
+        CountDownLatch loading = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread first = Thread.ofVirtual().start(() -> cache.get(1L, key -> {
+            loading.countDown();
+            await(release);
+            return "viejo-1";
+        }));
+        Thread second = Thread.ofVirtual().start(() -> cache.get(2L, key -> {
+            loading.countDown();
+            await(release);
+            return "valor-2";
+        }));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+        cache.invalidate(1L);
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertNull(cache.getIfPresent(1L));
+        assertEquals("valor-2", cache.getIfPresent(2L));
+    }
+
+    @Test
+    @DisplayName("Invalidar por índice durante una carga no debe guardar un valor con ese índice")
+    void invalidateByIndex_ShouldDiscardMatchingInFlightLoad() throws Exception {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(() -> 100, () -> 60_000, String::length);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread reader = Thread.ofVirtual().start(() -> cache.get("a@x.com", key -> {
+            loading.countDown();
+            await(release);
+            return "viejo";
+        }));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+        cache.invalidateByIndex(5);
+        release.countDown();
+        reader.join();
+
+        assertNull(cache.getIfPresent("a@x.com"));
+        assertEquals("nuevo", cache.get("a@x.com", key -> "nuevo"));
+    }
+
+    @Test
+    @DisplayName("El lote debe esperar las cargas individuales en curso y devolver las claves en orden")
+    void getAll_ShouldJoinInFlightLoads() throws Exception {
+        ReadThroughCache<Long, String> cache = new ReadThroughCache<>(() -> 100, () -> 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger batchSize = new AtomicInteger();
+
+        Thread reader = Thread.ofVirtual().start(() -> cache.get(2L, key -> {
+            loading.countDown();
+            await(release);
+            return "individual-2";
+        }));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+        Map<Long, String> result = cache.getAll(List.of(1L, 2L, 3L), missing -> {
+            batchSize.set(missing.size());
+            release.countDown();
+            return Map.of(1L, "lote-1");
+        });
+        reader.join();
+
+        assertEquals(2, batchSize.get());
+        assertEquals(List.of(1L, 2L), List.copyOf(result.keySet()));
+        assertEquals("individual-2", result.get(2L));
+        // 3 no se encontró: una lectura individual posterior usa su propio loader
+        assertEquals("individual-3", cache.get(3L, key -> "individual-3"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
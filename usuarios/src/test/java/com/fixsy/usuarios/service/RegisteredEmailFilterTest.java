@@ -0,0 +1,147 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.repository.UserEmail;
+import com.fixsy.usuarios.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegisteredEmailFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CacheInvalidationTransport invalidationTransport;
+
+    @InjectMocks
+    private RegisteredEmailFilter filter;
+
+    @Test
+    @DisplayName("Antes de construirse debe indicar posible duplicado para que se consulte la BD")
+    void mightContain_ShouldReturnTrue_BeforeBuild() {
+        assertTrue(filter.mightContain("cualquiera@example.com"));
+    }
+
+    @Test
+    @DisplayName("Debe cargar todos los emails por keyset y normalizarlos")
+    void rebuild_ShouldLoadAllEmailsByKeyset() {
+        ReflectionTestUtils.setField(filter, "batchSize", 2);
+        when(userRepository.count()).thenReturn(3L);
+        when(userRepository.findEmailsAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(email(1L, "Ana@Example.com"), email(5L, "bruno@example.com")));
+        when(userRepository.findEmailsAfter(eq(5L), any(Limit.class)))
+                .thenReturn(List.of(email(9L, "carla@example.com")));
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain(" ana@example.com "));
+        assertTrue(filter.mightContain("BRUNO@example.com"));
+        assertTrue(filter.mightContain("carla@example.com"));
+        assertFalse(filter.mightContain("nadie@example.com"));
+        verify(userRepository, times(2)).findEmailsAfter(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Las altas posteriores a la construcción deben quedar en el filtro")
+    void add_ShouldRegisterNewEmail() {
+        when(userRepository.findEmailsAfter(eq(0L), any(Limit.class))).thenReturn(List.of());
+        filter.rebuild();
+
+        filter.add("Nuevo@Example.com");
+
+        assertTrue(filter.mightContain("nuevo@example.com"));
+    }
+
+    @Test
+    @DisplayName("Las altas de otras réplicas deben llegar al filtro por el transporte de invalidaciones")
+    @SuppressWarnings("unchecked")
+    void subscribeToRemoteChanges_ShouldAddRemoteRegistrations() {
+        when(userRepository.findEmailsAfter(eq(0L), any(Limit.class))).thenReturn(List.of());
+        filter.rebuild();
+        filter.subscribeToRemoteChanges();
+        ArgumentCaptor<Consumer<Long>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationTransport).subscribe(listener.capture());
+        when(userRepository.findEmailById(7L)).thenReturn(Optional.of(email(7L, "Remota@Example.com")));
+
+        listener.getValue().accept(7L);
+
+        assertTrue(filter.mightContain("remota@example.com"));
+    }
+
+    @Test
+    @DisplayName("Una notificación de un usuario que ya no existe debe contarse como baja")
+    void learnRemoteChange_ShouldMarkStale_WhenUserWasDeleted() {
+        when(userRepository.findEmailsAfter(eq(0L), any(Limit.class))).thenReturn(List.of());
+        filter.rebuild();
+        when(userRepository.findEmailById(7L)).thenReturn(Optional.empty());
+
+        filter.learnRemoteChange(7L);
+        filter.rebuildIfNeeded();
+
+        verify(userRepository, times(2)).findEmailsAfter(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("No debe iniciar una reconstrucción mientras otra está en curso")
+    void rebuild_ShouldSkip_WhenAnotherRebuildIsRunning() {
+        when(userRepository.findEmailsAfter(eq(0L), any(Limit.class))).thenAnswer(invocation -> {
+            filter.rebuild();
+            return List.of(email(1L, "ana@example.com"));
+        });
+
+        filter.rebuild();
+
+        verify(userRepository, times(1)).count();
+        assertTrue(filter.mightContain("ana@example.com"));
+    }
+
+    @Test
+    @DisplayName("Debe reconstruirse cuando las bajas superan la proporción permitida")
+    void rebuildIfNeeded_ShouldRebuild_WhenTooManyStaleEntries() {
+        when(userRepository.findEmailsAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(email(1L, "ana@example.com")))
+                .thenReturn(List.of());
+        filter.rebuild();
+
+        filter.rebuildIfNeeded();
+        verify(userRepository, times(1)).findEmailsAfter(anyLong(), any(Limit.class));
+
+        filter.markStale();
+        filter.rebuildIfNeeded();
+
+        verify(userRepository, times(2)).findEmailsAfter(anyLong(), any(Limit.class));
+        assertFalse(filter.mightContain("ana@example.com"));
+    }
+
+    private static UserEmail email(Long id, String email) {
+        return new UserEmail() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
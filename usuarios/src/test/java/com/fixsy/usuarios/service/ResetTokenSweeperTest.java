@@ -0,0 +1,66 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.repository.PasswordResetTokenRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResetTokenSweeperTest {
+
+    @Mock
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @InjectMocks
+    private ResetTokenSweeper sweeper;
+
+    @Test
+    @DisplayName("Debe eliminar los tokens vencidos por lotes hasta que no queden")
+    void sweepExpired_ShouldDeleteInBatches() {
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        when(resetTokenRepository.findExpiredHashes(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of("a", "b"))
+                .thenReturn(List.of("c"));
+
+        int deleted = sweeper.sweepExpired();
+
+        assertEquals(3, deleted);
+        verify(resetTokenRepository).deleteAllByIdInBatch(List.of("a", "b"));
+        verify(resetTokenRepository).deleteAllByIdInBatch(List.of("c"));
+        verify(resetTokenRepository, times(2)).findExpiredHashes(any(LocalDateTime.class), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Debe respetar el máximo de lotes por ejecución")
+    void sweepExpired_ShouldStopAtMaxBatches() {
+        ReflectionTestUtils.setField(sweeper, "batchSize", 1);
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 2);
+        when(resetTokenRepository.findExpiredHashes(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of("a"), List.of("b"), List.of("c"));
+
+        assertEquals(2, sweeper.sweepExpired());
+        verify(resetTokenRepository, times(2)).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    @DisplayName("No debe borrar nada cuando no hay tokens vencidos")
+    void sweepExpired_ShouldDoNothing_WhenNoneExpired() {
+        when(resetTokenRepository.findExpiredHashes(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of());
+
+        assertEquals(0, sweeper.sweepExpired());
+        verify(resetTokenRepository, never()).deleteAllByIdInBatch(anyList());
+    }
+}
@@ -0,0 +1,64 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.model.Role;
+import com.fixsy.usuarios.model.RoleType;
+import com.fixsy.usuarios.repository.RoleRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoleRegistryTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Test
+    @DisplayName("Debe cargar los roles existentes y crear solo los que faltan")
+    void constructor_ShouldSeedMissingRoles() {
+        // Arrange
+        Role client = new Role(RoleType.CLIENT, RoleType.CLIENT.getDescription());
+        client.setId(1L);
+        AtomicLong ids = new AtomicLong(1);
+        when(roleRepository.findAll()).thenReturn(List.of(client));
+        when(roleRepository.save(any(Role.class))).thenAnswer(invocation -> {
+            Role role = invocation.getArgument(0);
+            role.setId(ids.incrementAndGet());
+            return role;
+        });
+
+        // Act
+        RoleRegistry registry = new RoleRegistry(roleRepository);
+
+        // Assert
+        assertSame(client, registry.get(RoleType.CLIENT));
+        assertEquals(RoleType.MECHANIC, registry.get(RoleType.MECHANIC).getName());
+        assertEquals(RoleType.ADMIN, registry.get(RoleType.ADMIN).getName());
+        verify(roleRepository, times(2)).save(any(Role.class));
+        verify(roleRepository, never()).findByName(any());
+    }
+
+    @Test
+    @DisplayName("Debe resolver el nombre del rol por su id")
+    void nameOf_ShouldResolveById() {
+        Role admin = new Role(RoleType.ADMIN, RoleType.ADMIN.getDescription());
+        admin.setId(3L);
+        RoleRegistry registry = new RoleRegistry(List.of(admin));
+
+        Role reference = new Role();
+        reference.setId(3L);
+
+        assertEquals("ADMIN", registry.nameOf(reference));
+        assertNull(registry.nameOf((Role) null));
+        assertThrows(IllegalStateException.class, () -> registry.get(RoleType.CLIENT));
+    }
+}
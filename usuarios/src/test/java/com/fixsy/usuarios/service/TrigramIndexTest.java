@@ -0,0 +1,81 @@
+package com.fixsy.usuarios.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.load(1L, UserSearchIndex.documentText("María González", "maria.gonzalez@example.com", "+56 9 1234 5678"));
+        index.load(2L, UserSearchIndex.documentText("Mario Gómez", "mgomez@example.com", "+56 9 8765 4321"));
+        index.load(3L, UserSearchIndex.documentText("Ana Pérez", "ana.perez@example.com", "22 333 4444"));
+        index.loaded();
+    }
+
+    private List<Long> search(String query) {
+        String terms = UserSearchIndex.queryText(query);
+        return index.search(terms, UserSearchIndex.maxMissing(TrigramIndex.trigrams(terms).size()), 10, 10_000);
+    }
+
+    @Test
+    @DisplayName("Debe encontrar por prefijo de nombre sin acentos ni mayúsculas")
+    void search_ShouldMatchPrefix() {
+        assertEquals(List.of(1L, 2L), search("Mari"));
+        assertEquals(List.of(3L), search("pe"));
+    }
+
+    @Test
+    @DisplayName("Debe tolerar errores de tipeo y ordenar la coincidencia exacta primero")
+    void search_ShouldMatchWithTypos() {
+        assertEquals(1L, search("gonzales").get(0));
+        assertEquals(List.of(1L), search("gonzalez"));
+    }
+
+    @Test
+    @DisplayName("Debe encontrar por parte del email o del teléfono")
+    void search_ShouldMatchEmailAndPhone() {
+        assertEquals(List.of(2L), search("mgomez@"));
+        assertEquals(List.of(1L), search("1234 5678"));
+        assertEquals(List.of(3L), search("333-4444"));
+    }
+
+    @Test
+    @DisplayName("Las actualizaciones y bajas deben reflejarse en las búsquedas")
+    void putAndRemove_ShouldUpdateResults() {
+        index.put(3L, UserSearchIndex.documentText("Ana Torres", "ana.torres@example.com", "22 333 4444"));
+        index.remove(2L);
+
+        assertEquals(List.of(), search("perez"));
+        assertEquals(List.of(3L), search("torres"));
+        assertEquals(List.of(1L), search("Mari"));
+        assertEquals(2, index.tombstones());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    @DisplayName("La carga no debe pisar cambios aplicados mientras se construía el índice")
+    void load_ShouldNotOverrideConcurrentChanges() {
+        TrigramIndex rebuilding = new TrigramIndex();
+        rebuilding.put(5L, UserSearchIndex.documentText("Nuevo Nombre", "n@example.com", null));
+        rebuilding.remove(6L);
+
+        rebuilding.load(5L, UserSearchIndex.documentText("Viejo Nombre", "n@example.com", null));
+        rebuilding.load(6L, UserSearchIndex.documentText("Eliminado", "e@example.com", null));
+        rebuilding.loaded();
+
+        String viejo = UserSearchIndex.queryText("viejo");
+        String eliminado = UserSearchIndex.queryText("eliminado");
+        assertEquals(List.of(), rebuilding.search(viejo, 0, 10, 100));
+        assertEquals(List.of(), rebuilding.search(eliminado, 0, 10, 100));
+        assertEquals(1, rebuilding.size());
+    }
+}
@@ -0,0 +1,169 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.dto.UserChangesDTO;
+import com.fixsy.usuarios.model.UserChangeEvent;
+import com.fixsy.usuarios.model.UserChangeType;
+import com.fixsy.usuarios.repository.UserChangeEventRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangeFeedTest {
+
+    @Mock
+    private UserChangeEventRepository changeEventRepository;
+
+    @InjectMocks
+    private UserChangeFeed feed;
+
+    @Test
+    @DisplayName("Debe responder de inmediato con los cambios pendientes en orden")
+    void poll_ShouldReturnPendingChangesImmediately() {
+        when(changeEventRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(event(11L, UserChangeType.UPDATED, 5), event(12L, UserChangeType.DELETED, 5)));
+
+        DeferredResult<UserChangesDTO> result = feed.poll(10L, null, 25);
+
+        UserChangesDTO changes = (UserChangesDTO) result.getResult();
+        assertEquals(List.of(11L, 12L), changes.getChanges().stream().map(change -> change.getId()).toList());
+        assertEquals(12L, changes.getNextSince());
+        assertEquals("Ana", changes.getChanges().get(0).getUser().getName());
+        assertNull(changes.getChanges().get(1).getUser());
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("Debe cortar el lote en un hueco de IDs que aún puede confirmarse")
+    void poll_ShouldStopAtGapInSequence() {
+        when(changeEventRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(event(11L, UserChangeType.CREATED, 0), event(13L, UserChangeType.CREATED, 0)));
+
+        UserChangesDTO changes = (UserChangesDTO) feed.poll(10L, null, 0).getResult();
+
+        assertEquals(List.of(11L), changes.getChanges().stream().map(change -> change.getId()).toList());
+        assertEquals(11L, changes.getNextSince());
+    }
+
+    @Test
+    @DisplayName("Debe saltear un hueco que persiste más que gap-timeout (transacción revertida)")
+    void poll_ShouldSkipGap_AfterTimeout() {
+        ReflectionTestUtils.setField(feed, "gapTimeoutMillis", 0L);
+        when(changeEventRepository.findAfter(eq(11L), any(Limit.class)))
+                .thenReturn(List.of(event(13L, UserChangeType.CREATED, 0)));
+
+        // La primera lectura registra el hueco; la siguiente ya lo da por vencido
+        assertEquals(11L, ((UserChangesDTO) feed.poll(11L, null, 0).getResult()).getNextSince());
+        assertEquals(13L, ((UserChangesDTO) feed.poll(11L, null, 0).getResult()).getNextSince());
+    }
+
+    @Test
+    @DisplayName("Desde el inicio no debe esperar por los IDs anteriores al primer evento (purgados)")
+    void poll_ShouldNotWaitForPurgedIds_WhenReadingFromStart() {
+        when(changeEventRepository.findAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(event(500L, UserChangeType.CREATED, 0), event(501L, UserChangeType.UPDATED, 0),
+                        event(503L, UserChangeType.UPDATED, 0)));
+
+        UserChangesDTO changes = (UserChangesDTO) feed.poll(0L, null, 0).getResult();
+
+        assertEquals(List.of(500L, 501L), changes.getChanges().stream().map(change -> change.getId()).toList());
+    }
+
+    @Test
+    @DisplayName("Sin cambios debe esperar y completar la consulta en el siguiente tick con novedades")
+    void poll_ShouldWaitAndCompleteOnDispatch() {
+        when(changeEventRepository.findAfter(eq(7L), any(Limit.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(event(8L, UserChangeType.CREATED, 5)));
+
+        DeferredResult<UserChangesDTO> result = feed.poll(7L, 10, 25);
+        assertFalse(result.hasResult());
+        assertEquals(1, feed.subscriberCount());
+
+        feed.dispatch();
+
+        assertEquals(8L, ((UserChangesDTO) result.getResult()).getNextSince());
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("Los suscriptores en la misma posición deben compartir una sola consulta por tick")
+    void dispatch_ShouldQueryOncePerPosition() {
+        when(changeEventRepository.findAfter(eq(7L), any(Limit.class))).thenReturn(List.of());
+        feed.poll(7L, 10, 25);
+        feed.poll(7L, 10, 25);
+        feed.poll(7L, 10, 25);
+
+        feed.dispatch();
+
+        // 3 consultas iniciales + 1 del tick
+        verify(changeEventRepository, times(4)).findAfter(eq(7L), any(Limit.class));
+        assertEquals(3, feed.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("Un cliente SSE bloqueado no debe frenar el tick y se desconecta al vencer send-timeout")
+    void dispatch_ShouldNotBlockOnSlowSseClient() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SseEmitter blocked = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("cliente desconectado");
+            }
+        };
+        UserChangeFeed slowFeed = spy(feed);
+        doReturn(blocked).when(slowFeed).createEmitter();
+        ReflectionTestUtils.setField(slowFeed, "sendTimeoutSeconds", 0L);
+        when(changeEventRepository.findAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(event(1L, UserChangeType.CREATED, 5)));
+
+        try {
+            // La confirmación de la conexión queda bloqueada en su hilo; el tick no la espera
+            slowFeed.stream(0L);
+            assertTimeoutPreemptively(Duration.ofSeconds(2), slowFeed::dispatch);
+            assertEquals(0, slowFeed.subscriberCount());
+        } finally {
+            release.countDown();
+            slowFeed.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe rechazar parámetros inválidos")
+    void poll_ShouldRejectInvalidParameters() {
+        assertThrows(RuntimeException.class, () -> feed.poll(-1L, null, null));
+        assertThrows(RuntimeException.class, () -> feed.poll(0L, 0, null));
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> feed.poll(0L, null, 61));
+        assertTrue(exception.getMessage().contains("inválido"));
+        verifyNoInteractions(changeEventRepository);
+    }
+
+    private static UserChangeEvent event(Long id, UserChangeType type, int secondsAgo) {
+        boolean deleted = type == UserChangeType.DELETED;
+        return new UserChangeEvent(id, 5L, type, deleted ? null : "ana@example.com", deleted ? null : "Ana",
+                deleted ? null : "123", deleted ? null : "CLIENT", LocalDateTime.now().minusSeconds(secondsAgo));
+    }
+}
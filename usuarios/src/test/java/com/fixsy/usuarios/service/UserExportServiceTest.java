@@ -0,0 +1,90 @@
+package com.fixsy.usuarios.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fixsy.usuarios.model.Role;
+import com.fixsy.usuarios.model.RoleType;
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private RoleRegistry roleRegistry = new RoleRegistry(List.of(role(1L, RoleType.CLIENT), role(2L, RoleType.MECHANIC)));
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private UserExportService userExportService;
+
+    @Test
+    @DisplayName("Debe escribir un usuario por línea en orden y cerrar el stream de la BD")
+    void export_ShouldWriteOneLinePerUser() throws Exception {
+        // Arrange
+        AtomicBoolean closed = new AtomicBoolean();
+        when(userRepository.streamAllOrderById()).thenReturn(Stream.of(summary(1L, 1L), summary(2L, 2L))
+                .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = userExportService.export(out);
+
+        // Assert
+        assertEquals(2, count);
+        assertTrue(closed.get());
+        assertEquals("""
+                {"id":1,"email":"user1@example.com","name":"User 1","phone":"123","role":"CLIENT"}
+                {"id":2,"email":"user2@example.com","name":"User 2","phone":"123","role":"MECHANIC"}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar la exportación si ya hay max-concurrent en curso")
+    void export_ShouldRejectWhenSaturated() {
+        // Arrange
+        ReflectionTestUtils.setField(userExportService, "maxConcurrent", 0);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> userExportService.export(new ByteArrayOutputStream()));
+        assertTrue(exception.getMessage().contains("saturado"));
+        verifyNoInteractions(userRepository);
+    }
+
+    private static Role role(Long id, RoleType type) {
+        Role role = new Role(type, type.getDescription());
+        role.setId(id);
+        return role;
+    }
+
+    private static UserSummary summary(Long id, Long roleId) {
+        return new UserSummary() {
+            public Long getId() { return id; }
+            public String getEmail() { return "user" + id + "@example.com"; }
+            public String getName() { return "User " + id; }
+            public String getPhone() { return "123"; }
+            public Long getRoleId() { return roleId; }
+        };
+    }
+}
@@ -0,0 +1,197 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.dto.UserImportResultDTO;
+import com.fixsy.usuarios.dto.UserRequestDTO;
+import com.fixsy.usuarios.model.Role;
+import com.fixsy.usuarios.model.RoleType;
+import com.fixsy.usuarios.model.User;
+import com.fixsy.usuarios.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private RegisteredEmailFilter registeredEmails;
+
+    @Mock
+    private UserChangeLog changeLog;
+
+    @Mock
+    private UserSearchIndex searchIndex;
+
+    @Mock
+    private MechanicDirectory mechanicDirectory;
+
+    @Mock
+    private CacheInvalidationTransport invalidationTransport;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new ImmediateTransactionTemplate();
+
+    @Spy
+    private RoleRegistry roleRegistry = new RoleRegistry(List.of(role(1L, RoleType.CLIENT), role(2L, RoleType.MECHANIC)));
+
+    @InjectMocks
+    private UserImportService userImportService;
+
+    @Test
+    @DisplayName("Debe deduplicar en memoria, consultar existencia una vez por lote e insertar en bloque")
+    @SuppressWarnings("unchecked")
+    void importUsers_ShouldDedupeCheckOnceAndSaveAll() {
+        // Arrange
+        List<UserRequestDTO> rows = List.of(
+                request("nuevo1@example.com", "MECHANIC"),
+                request("NUEVO1@example.com", "CLIENT"),      // duplicado en la importación
+                request("existe@example.com", "CLIENT"),      // ya registrado
+                request("invalido", "CLIENT"),                // email inválido
+                request("nuevo2@example.com", null));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("Existe@example.com"));
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hash:" + invocation.getArgument(0));
+        when(userRepository.saveAll(anyCollection())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0)));
+
+        // Act
+        UserImportResultDTO result = userImportService.importUsers(rows);
+
+        // Assert
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(1, 2, 3), result.getSkipped().stream().map(error -> error.getRow()).toList());
+        verify(userRepository, times(1)).findExistingEmails(anyCollection());
+
+        ArgumentCaptor<Collection<User>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository, times(1)).saveAll(saved.capture());
+        List<User> users = List.copyOf(saved.getValue());
+        assertEquals("nuevo1@example.com", users.get(0).getEmail());
+        assertEquals(RoleType.MECHANIC, users.get(0).getRole().getName());
+        assertEquals("hash:password123", users.get(0).getPassword());
+        assertEquals(RoleType.CLIENT, users.get(1).getRole().getName());
+        // Eventos del outbox en la misma transacción que el lote
+        verify(changeLog).recordCreated(saved.getValue());
+        // Las demás réplicas se enteran de cada alta
+        verify(invalidationTransport, times(2)).publish(any());
+    }
+
+    @Test
+    @DisplayName("Si el lote choca con un alta concurrente, debe reintentar fila por fila")
+    void importUsers_ShouldFallBackToSingleInserts_OnConflict() {
+        // Arrange
+        List<UserRequestDTO> rows = List.of(request("a@example.com", "CLIENT"), request("b@example.com", "CLIENT"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(passwordEncoder.encode(anyString())).thenReturn("hash");
+        when(userRepository.saveAll(anyCollection())).thenThrow(emailConflict());
+        when(userRepository.save(any(User.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(emailConflict());
+
+        // Act
+        UserImportResultDTO result = userImportService.importUsers(rows);
+
+        // Assert
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getSkipped().size());
+        assertEquals("b@example.com", result.getSkipped().get(0).getEmail());
+    }
+
+    @Test
+    @DisplayName("Una violación que no es la del email debe omitir la fila sin abortar la importación")
+    void importUsers_ShouldSkipRow_WhenOtherConstraintFails() {
+        // Arrange
+        List<UserRequestDTO> rows = List.of(request("a@example.com", "CLIENT"), request("b@example.com", "CLIENT"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(passwordEncoder.encode(anyString())).thenReturn("hash");
+        DataIntegrityViolationException primaryKey = new DataIntegrityViolationException("Duplicate entry",
+                new ConstraintViolationException("Duplicate entry", new SQLException("Duplicate entry for key 'PRIMARY'"), "PRIMARY"));
+        when(userRepository.saveAll(anyCollection())).thenThrow(primaryKey);
+        when(userRepository.save(any(User.class)))
+                .thenThrow(primaryKey)
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        UserImportResultDTO result = userImportService.importUsers(rows);
+
+        // Assert
+        assertEquals(1, result.getCreated());
+        assertEquals("a@example.com", result.getSkipped().get(0).getEmail());
+        assertTrue(result.getSkipped().get(0).getReason().contains("PRIMARY"));
+    }
+
+    @Test
+    @DisplayName("Un hash rechazado por saturación solo omite su fila")
+    void importUsers_ShouldSkipRow_WhenHashingRejected() {
+        // Arrange
+        List<UserRequestDTO> rows = List.of(request("a@example.com", "CLIENT"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(passwordEncoder.encode(anyString())).thenThrow(new RuntimeException("Servicio saturado"));
+
+        // Act
+        UserImportResultDTO result = userImportService.importUsers(rows);
+
+        // Assert
+        assertEquals(0, result.getCreated());
+        assertEquals("Servicio saturado", result.getSkipped().get(0).getReason());
+        verify(userRepository, never()).saveAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una importación vacía")
+    void importUsers_ShouldRejectEmptyList() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> userImportService.importUsers(List.of()));
+        assertTrue(exception.getMessage().contains("inválido"));
+    }
+
+    private static UserRequestDTO request(String email, String role) {
+        return new UserRequestDTO(email, "password123", null, "Usuario", "123456", role);
+    }
+
+    private static Role role(Long id, RoleType type) {
+        Role role = new Role(type, type.getDescription());
+        role.setId(id);
+        return role;
+    }
+
+    /**
+     * Ejecuta el callback directamente, sin gestor de transacciones
+     */
+    private static class ImmediateTransactionTemplate extends TransactionTemplate {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(new SimpleTransactionStatus());
+        }
+    }
+
+    private static DataIntegrityViolationException emailConflict() {
+        return new DataIntegrityViolationException("Duplicate entry",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), "users.uk_users_email"));
+    }
+}
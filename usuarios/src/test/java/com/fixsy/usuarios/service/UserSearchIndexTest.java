@@ -0,0 +1,124 @@
+package com.fixsy.usuarios.service;
+
+import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CacheInvalidationTransport invalidationTransport;
+
+    @InjectMocks
+    private UserSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findPage(eq(0L), any(Limit.class))).thenReturn(List.of(summary(1L, "Ana Pérez")));
+        searchIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Las altas y cambios de otras réplicas deben llegar al índice por el transporte de invalidaciones")
+    @SuppressWarnings("unchecked")
+    void subscribeToRemoteChanges_ShouldReindexRemoteUser() {
+        searchIndex.subscribeToRemoteChanges();
+        ArgumentCaptor<Consumer<Long>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationTransport).subscribe(listener.capture());
+        when(userRepository.findSummariesByIdIn(List.of(1L))).thenReturn(List.of(summary(1L, "Ana Torres")));
+        when(userRepository.findSummariesByIdIn(List.of(2L))).thenReturn(List.of(summary(2L, "Bruno Díaz")));
+
+        listener.getValue().accept(1L);
+        listener.getValue().accept(2L);
+
+        assertEquals(List.of(1L), searchIndex.search("torres", 10));
+        assertEquals(List.of(), searchIndex.search("perez", 10));
+        assertEquals(List.of(2L), searchIndex.search("bruno", 10));
+    }
+
+    @Test
+    @DisplayName("Una notificación de un usuario que ya no existe debe quitarlo del índice")
+    void learnRemoteChange_ShouldRemove_WhenUserWasDeleted() {
+        when(userRepository.findSummariesByIdIn(List.of(1L))).thenReturn(List.of());
+
+        searchIndex.learnRemoteChange(1L);
+
+        assertEquals(List.of(), searchIndex.search("ana", 10));
+    }
+
+    @Test
+    @DisplayName("Debe reconstruirse al cumplir max-age aunque no haya lápidas")
+    void rebuildIfNeeded_ShouldRebuild_WhenMaxAgeExpired() {
+        searchIndex.rebuildIfNeeded();
+        verify(userRepository, times(1)).findPage(eq(0L), any(Limit.class));
+
+        ReflectionTestUtils.setField(searchIndex, "builtAt", System.currentTimeMillis() - 61 * 60_000L);
+        searchIndex.rebuildIfNeeded();
+
+        verify(userRepository, times(2)).findPage(eq(0L), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("No debe iniciar una reconstrucción mientras otra está en curso")
+    void rebuild_ShouldSkip_WhenAnotherRebuildIsRunning() {
+        when(userRepository.findPage(eq(0L), any(Limit.class))).thenAnswer(invocation -> {
+            searchIndex.rebuild();
+            return List.of(summary(1L, "Ana Pérez"));
+        });
+
+        searchIndex.rebuild();
+
+        verify(userRepository, times(2)).findPage(eq(0L), any(Limit.class));
+        assertEquals(List.of(1L), searchIndex.search("ana", 10));
+    }
+
+    private static UserSummary summary(Long id, String name) {
+        return new UserSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return "user" + id + "@example.com";
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getPhone() {
+                return null;
+            }
+
+            @Override
+            public Long getRoleId() {
+                return 1L;
+            }
+        };
+    }
+}
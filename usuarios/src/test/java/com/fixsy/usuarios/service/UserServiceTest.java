@@ -1,29 +1,52 @@
 package com.fixsy.usuarios.service;
 
 import com.fixsy.usuarios.dto.UserDTO;
+import com.fixsy.usuarios.dto.UserPageDTO;
 import com.fixsy.usuarios.dto.UserRequestDTO;
+import com.fixsy.usuarios.model.PasswordResetToken;
 import com.fixsy.usuarios.model.Role;
 import com.fixsy.usuarios.model.RoleType;
 import com.fixsy.usuarios.model.User;
-import com.fixsy.usuarios.repository.RoleRepository;
+import com.fixsy.usuarios.repository.PasswordResetTokenRepository;
+import com.fixsy.usuarios.repository.UserCredentials;
 import com.fixsy.usuarios.repository.UserRepository;
+import com.fixsy.usuarios.repository.UserSummary;
+import com.fixsy.usuarios.repository.UserVersion;
+import com.fixsy.usuarios.security.LoginMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,12 +55,35 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @Mock
-    private RoleRepository roleRepository;
+    @Spy
+    private RoleRegistry roleRegistry = new RoleRegistry(List.of(role(1L, RoleType.CLIENT), role(2L, RoleType.MECHANIC), role(3L, RoleType.ADMIN)));
 
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private RegisteredEmailFilter registeredEmails;
+
+    @Mock
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Mock
+    private UserChangeLog changeLog;
+
+    @Mock
+    private UserSearchIndex searchIndex;
+
+    @Mock
+    private MechanicDirectory mechanicDirectory;
+
+    @Mock
+    private CacheInvalidationTransport invalidationTransport;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private LoginMetrics loginMetrics = new LoginMetrics(meterRegistry);
+
     @InjectMocks
     private UserService userService;
 
@@ -47,8 +93,7 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
-        clientRole = new Role(RoleType.CLIENT, "Cliente del sistema");
-        clientRole.setId(1L);
+        clientRole = roleRegistry.get(RoleType.CLIENT);
 
         testUser = new User();
         testUser.setId(1L);
@@ -69,26 +114,98 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("Debe obtener todos los usuarios correctamente")
-    void getAllUsers_ShouldReturnAllUsers() {
+    @DisplayName("Debe listar usuarios por keyset y retornar el cursor de la siguiente página")
+    void getUsersPage_ShouldReturnPageAndNextCursor() {
+        // Arrange: se piden 2 y el repositorio devuelve 3 (hay más páginas)
+        when(userRepository.findPage(eq(10L), eq(Limit.of(3))))
+                .thenReturn(List.of(summary(11L, 1L), summary(12L, 2L), summary(13L, 1L)));
+
+        // Act
+        UserPageDTO page = userService.getUsersPage(10L, 2, null, null, null);
+
+        // Assert
+        assertEquals(2, page.getUsers().size());
+        assertEquals("CLIENT", page.getUsers().get(0).getRole());
+        assertEquals("MECHANIC", page.getUsers().get(1).getRole());
+        assertEquals(12L, page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Debe filtrar por rol y fecha con su propia consulta y no retornar cursor en la última página")
+    void getUsersPage_ShouldFilterByRole() {
         // Arrange
-        User user2 = new User();
-        user2.setId(2L);
-        user2.setEmail("user2@example.com");
-        user2.setName("User 2");
-        user2.setPhone("0987654321");
-        user2.setRole(clientRole);
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        when(userRepository.findPageByRoleAndCreatedAt(eq(0L), eq(2L), eq(from), any(LocalDateTime.class),
+                eq(Limit.of(UserService.DEFAULT_PAGE_SIZE + 1))))
+                .thenReturn(List.of(summary(5L, 2L)));
 
-        when(userRepository.findAll()).thenReturn(Arrays.asList(testUser, user2));
+        // Act
+        UserPageDTO page = userService.getUsersPage(null, null, "mechanic", from, null);
+
+        // Assert
+        assertEquals(1, page.getUsers().size());
+        assertNull(page.getNextCursor());
+        verify(userRepository, never()).findPage(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Debe usar la consulta por rol cuando no hay filtro de fechas")
+    void getUsersPage_ShouldUseRoleQuery_WhenNoDates() {
+        // Arrange
+        when(userRepository.findPageByRole(eq(7L), eq(2L), eq(Limit.of(11)))).thenReturn(List.of(summary(8L, 2L)));
 
         // Act
-        List<UserDTO> result = userService.getAllUsers();
+        UserPageDTO page = userService.getUsersPage(7L, 10, "MECHANIC", null, null);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("test@example.com", result.get(0).getEmail());
-        verify(userRepository, times(1)).findAll();
+        assertEquals(List.of(8L), page.getUsers().stream().map(UserDTO::getId).toList());
+        verify(userRepository, never()).findPageByCreatedAt(anyLong(), any(), any(), any(Limit.class));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar límite, rol o rango de fechas inválidos")
+    void getUsersPage_ShouldRejectInvalidParameters() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertTrue(assertThrows(RuntimeException.class, () -> userService.getUsersPage(null, 0, null, null, null))
+                .getMessage().contains("inválido"));
+        assertTrue(assertThrows(RuntimeException.class, () -> userService.getUsersPage(null, 501, null, null, null))
+                .getMessage().contains("inválido"));
+        assertTrue(assertThrows(RuntimeException.class, () -> userService.getUsersPage(null, 10, "SUPERUSER", null, null))
+                .getMessage().contains("inválido"));
+        assertTrue(assertThrows(RuntimeException.class, () -> userService.getUsersPage(null, 10, null, now, now.minusDays(1)))
+                .getMessage().contains("inválido"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Debe obtener varios usuarios con una consulta IN, usando la caché primero")
+    void getUsersByIds_ShouldUseCacheThenSingleInQuery() {
+        // Arrange: el usuario 1 ya está en caché
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        userService.getUserById(1L);
+        when(userRepository.findSummariesByIdIn(List.of(2L, 3L))).thenReturn(List.of(summary(3L, 2L)));
+
+        // Act
+        Map<Long, UserDTO> result = userService.getUsersByIds(Arrays.asList(2L, 1L, 3L, 1L, null));
+
+        // Assert: el 2 no existe, el orden sigue al de la petición
+        assertEquals(List.of(1L, 3L), List.copyOf(result.keySet()));
+        assertEquals("test@example.com", result.get(1L).getEmail());
+        assertEquals("MECHANIC", result.get(3L).getRole());
+        verify(userRepository, times(1)).findSummariesByIdIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar lotes vacíos o de más de 500 IDs")
+    void getUsersByIds_ShouldRejectInvalidBatchSize() {
+        List<Long> tooMany = LongStream.rangeClosed(1, 501).boxed().toList();
+
+        assertThrows(RuntimeException.class, () -> userService.getUsersByIds(List.of()));
+        assertThrows(RuntimeException.class, () -> userService.getUsersByIds(null));
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> userService.getUsersByIds(tooMany));
+        assertTrue(exception.getMessage().contains("inválido"));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -107,6 +224,22 @@ class UserServiceTest {
         verify(userRepository, times(1)).findById(1L);
     }
 
+    @Test
+    @DisplayName("Debe resolver el rol desde el registro sin consultar la tabla de roles")
+    void getUserById_ShouldResolveRoleNameFromRegistry() {
+        // Arrange: solo se conoce el id del rol (como un proxy LAZY sin inicializar)
+        Role lazyRole = new Role();
+        lazyRole.setId(2L);
+        testUser.setRole(lazyRole);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        UserDTO result = userService.getUserById(1L);
+
+        // Assert
+        assertEquals("MECHANIC", result.getRole());
+    }
+
     @Test
     @DisplayName("Debe lanzar excepción cuando el usuario no existe")
     void getUserById_ShouldThrowException_WhenUserNotFound() {
@@ -119,14 +252,112 @@ class UserServiceTest {
         assertEquals("Usuario no encontrado", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Debe servir lecturas repetidas por ID desde la caché")
+    void getUserById_ShouldUseCache_OnRepeatedReads() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        userService.getUserById(1L);
+        UserDTO result = userService.getUserById(1L);
+
+        // Assert
+        assertEquals("test@example.com", result.getEmail());
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Debe compartir la caché por email sin distinguir mayúsculas y consultar con el email normalizado")
+    void getUserByEmail_ShouldUseNormalizedCacheKey() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+
+        // Act
+        userService.getUserByEmail("Test@Example.com");
+        UserDTO result = userService.getUserByEmail(" test@example.com");
+
+        // Assert
+        assertEquals(1L, result.getId());
+        verify(userRepository, times(1)).findByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Debe invalidar la caché al eliminar un usuario")
+    void deleteUser_ShouldEvictCachedUser() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser), Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        userService.getUserById(1L);
+
+        // Act
+        userService.deleteUser(1L);
+
+        // Assert
+        assertThrows(RuntimeException.class, () -> userService.getUserById(1L));
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Debe anunciar la baja a las demás réplicas")
+    void deleteUser_ShouldPublishInvalidation() {
+        // Arrange
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // Act
+        userService.deleteUser(1L);
+
+        // Assert
+        verify(invalidationTransport).publish(1L);
+    }
+
+    @Test
+    @DisplayName("Una invalidación de otra réplica debe descartar la copia en caché")
+    void peerInvalidation_ShouldEvictCachedUser() {
+        // Arrange
+        ArgumentCaptor<Consumer<Long>> listener = ArgumentCaptor.captor();
+        userService.subscribeToInvalidations();
+        verify(invalidationTransport).subscribe(listener.capture());
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        userService.getUserById(1L);
+
+        // Act
+        listener.getValue().accept(1L);
+        userService.getUserById(1L);
+
+        // Assert
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Debe retornar los usuarios encontrados en el orden de relevancia del índice")
+    void searchUsers_ShouldReturnUsersInRankOrder() {
+        // Arrange
+        when(searchIndex.search("user", 20)).thenReturn(List.of(7L, 3L));
+        when(userRepository.findSummariesByIdIn(anyCollection())).thenReturn(List.of(summary(3L, 1L), summary(7L, 2L)));
+
+        // Act
+        List<UserDTO> result = userService.searchUsers("user", null);
+
+        // Assert
+        assertEquals(List.of(7L, 3L), result.stream().map(UserDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar búsquedas de menos de 2 caracteres sin consultar el índice")
+    void searchUsers_ShouldThrowException_WhenQueryTooShort() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> userService.searchUsers(" a ", null));
+        assertTrue(exception.getMessage().contains("inválido"));
+        assertThrows(RuntimeException.class, () -> userService.searchUsers("ana", 101));
+        verifyNoInteractions(searchIndex);
+    }
+
     @Test
     @DisplayName("Debe crear un usuario con contraseña encriptada")
     void createUser_ShouldCreateUserWithEncryptedPassword() {
         // Arrange
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
-        when(roleRepository.findByName(RoleType.CLIENT)).thenReturn(Optional.of(clientRole));
         when(passwordEncoder.encode("password123")).thenReturn("hashedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(testUser);
 
         // Act
         UserDTO result = userService.createUser(testUserRequest);
@@ -135,13 +366,19 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals("test@example.com", result.getEmail());
         verify(passwordEncoder, times(1)).encode("password123");
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        // El filtro descarta el duplicado sin consultar la BD, y registra el email nuevo
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(registeredEmails).add("test@example.com");
+        verify(changeLog).recordCreated(testUser);
+        verify(invalidationTransport).publish(testUser.getId());
     }
 
     @Test
     @DisplayName("Debe lanzar excepción cuando el email ya está registrado")
     void createUser_ShouldThrowException_WhenEmailExists() {
         // Arrange
+        when(registeredEmails.mightContain("test@example.com")).thenReturn(true);
         when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
 
         // Act & Assert
@@ -150,6 +387,67 @@ class UserServiceTest {
         assertEquals("El email ya está registrado", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Debe reportar duplicado cuando el índice único rechaza un email que el filtro no conocía")
+    void createUser_ShouldThrowException_WhenUniqueConstraintFails() {
+        // Arrange
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword");
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry", new ConstraintViolationException(
+                        "Duplicate entry", new SQLException(), "users.uk_users_email")));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> userService.createUser(testUserRequest));
+        assertEquals("El email ya está registrado", exception.getMessage());
+        verify(registeredEmails, never()).add(anyString());
+    }
+
+    @Test
+    @DisplayName("Una violación que no es la del email (p. ej. ID repetido) no debe reportarse como email registrado")
+    void createUser_ShouldNotReportConflict_WhenOtherConstraintFails() {
+        // Arrange
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword");
+        DataIntegrityViolationException primaryKey = new DataIntegrityViolationException("Duplicate entry",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), "PRIMARY"));
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(primaryKey);
+
+        // Act & Assert
+        assertSame(primaryKey, assertThrows(DataIntegrityViolationException.class,
+            () -> userService.createUser(testUserRequest)));
+    }
+
+    @Test
+    @DisplayName("Debe responder disponible sin consultar la BD cuando el filtro no contiene el email")
+    void isEmailAvailable_ShouldSkipDatabase_WhenFilterMisses() {
+        // Arrange
+        when(registeredEmails.mightContain("nuevo@example.com")).thenReturn(false);
+
+        // Act & Assert
+        assertTrue(userService.isEmailAvailable("nuevo@example.com"));
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Debe confirmar en la BD cuando el filtro indica un posible duplicado")
+    void isEmailAvailable_ShouldCheckDatabase_WhenFilterHits() {
+        // Arrange
+        when(registeredEmails.mightContain(anyString())).thenReturn(true);
+        when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
+        when(userRepository.existsByEmail("falso-positivo@example.com")).thenReturn(false);
+
+        // Act & Assert
+        assertFalse(userService.isEmailAvailable("test@example.com"));
+        assertTrue(userService.isEmailAvailable("falso-positivo@example.com"));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar la verificación de disponibilidad sin email")
+    void isEmailAvailable_ShouldThrowException_WhenEmailBlank() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> userService.isEmailAvailable(" "));
+        assertEquals("El email es obligatorio", exception.getMessage());
+    }
+
     @Test
     @DisplayName("Debe actualizar un usuario correctamente")
     void updateUser_ShouldUpdateUser_WhenUserExists() {
@@ -168,7 +466,6 @@ class UserServiceTest {
         updatedUser.setRole(clientRole);
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(roleRepository.findByName(RoleType.CLIENT)).thenReturn(Optional.of(clientRole));
         when(userRepository.save(any(User.class))).thenReturn(updatedUser);
 
         // Act
@@ -179,6 +476,138 @@ class UserServiceTest {
         assertEquals("updated@example.com", result.getEmail());
         assertEquals("Updated Name", result.getName());
         verify(userRepository, times(1)).save(any(User.class));
+        verify(changeLog).recordUpdated(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Con If-Match vigente debe bloquear el usuario y actualizarlo")
+    void updateUser_ShouldUpdate_WhenIfMatchIsCurrent() {
+        // Arrange
+        UserRequestDTO updateRequest = new UserRequestDTO();
+        updateRequest.setEmail("test@example.com");
+        updateRequest.setName("Updated Name");
+        updateRequest.setPhone("9999999999");
+        String etag = VersionedUser.etagOf(testUser.getUpdatedAt());
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+
+        // Act
+        VersionedUser result = userService.updateUser(1L, updateRequest, List.of("\"otro\"", etag));
+
+        // Assert
+        assertEquals("Updated Name", result.user().getName());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Con If-Match desactualizado debe rechazar la actualización sin guardar")
+    void updateUser_ShouldThrowException_WhenIfMatchIsStale() {
+        // Arrange
+        UserRequestDTO updateRequest = new UserRequestDTO();
+        updateRequest.setEmail("test@example.com");
+        updateRequest.setName("Updated Name");
+        updateRequest.setPhone("9999999999");
+        String staleEtag = VersionedUser.etagOf(testUser.getUpdatedAt().minusSeconds(5));
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testUser));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> userService.updateUser(1L, updateRequest, List.of(staleEtag)));
+        assertTrue(exception.getMessage().contains("Versión desactualizada"));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    @DisplayName("La versión debe salir de la caché si el usuario está cacheado, si no de la consulta por PK")
+    void getUserVersion_ShouldUseCacheOrVersionQuery() {
+        // Arrange
+        LocalDateTime updatedAt = testUser.getUpdatedAt();
+        UserVersion version = mock(UserVersion.class);
+        when(version.getUpdatedAt()).thenReturn(updatedAt);
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(version));
+
+        // Act & Assert: sin caché, consulta solo la versión
+        assertEquals(updatedAt, userService.getUserVersion(1L));
+        verify(userRepository, never()).findById(anyLong());
+
+        // Con el usuario en caché, no consulta
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        userService.getUserById(1L);
+        assertEquals(updatedAt, userService.getUserVersion(1L));
+        verify(userRepository, times(1)).findVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("PATCH de teléfono: debe modificar solo ese campo sin ejecutar BCrypt")
+    void patchUser_ShouldUpdatePhoneWithoutHashing() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        VersionedUser result = userService.patchUser(1L, Map.of("phone", "+56 9 1111 2222"), List.of());
+
+        // Assert
+        assertEquals("+56 9 1111 2222", result.user().getPhone());
+        assertEquals("test@example.com", result.user().getEmail());
+        verify(userRepository).flush();
+        verify(changeLog).recordUpdated(testUser);
+        verifyNoInteractions(passwordEncoder);
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("PATCH sin cambios reales no debe escribir ni publicar nada")
+    void patchUser_ShouldNotWrite_WhenNothingChanges() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        userService.patchUser(1L, Map.of("name", "Test User", "role", "client"), List.of());
+
+        // Assert
+        verify(userRepository, never()).flush();
+        verifyNoInteractions(changeLog, invalidationTransport);
+    }
+
+    @Test
+    @DisplayName("PATCH con contraseña nueva debe exigir y verificar la contraseña actual")
+    void patchUser_ShouldHashNewPassword_WhenCurrentPasswordMatches() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("oldPassword", "hashedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("newPassword123")).thenReturn("newHash");
+        Map<String, Object> patch = Map.of("password", "newPassword123", "currentPassword", "oldPassword");
+
+        // Act
+        userService.patchUser(1L, patch, List.of());
+
+        // Assert
+        assertEquals("newHash", testUser.getPassword());
+        // Un cambio solo de contraseña no se publica en el outbox ni en los índices
+        verify(invalidationTransport).publish(1L);
+        verify(changeLog, never()).recordUpdated(any(User.class));
+        verify(searchIndex, never()).onSaved(any(User.class));
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> userService.patchUser(1L, Map.of("password", "newPassword123"), List.of()));
+        assertTrue(exception.getMessage().contains("obligatoria"));
+    }
+
+    @Test
+    @DisplayName("PATCH debe rechazar campos desconocidos, nulos o inválidos sin leer el usuario")
+    void patchUser_ShouldRejectInvalidPatches() {
+        Map<String, Object> nullName = new HashMap<>();
+        nullName.put("name", null);
+
+        assertTrue(assertThrows(RuntimeException.class,
+            () -> userService.patchUser(1L, Map.of("id", "2"), List.of())).getMessage().contains("inválido"));
+        assertTrue(assertThrows(RuntimeException.class,
+            () -> userService.patchUser(1L, nullName, List.of())).getMessage().contains("obligatorio"));
+        assertTrue(assertThrows(RuntimeException.class,
+            () -> userService.patchUser(1L, Map.of("phone", 123), List.of())).getMessage().contains("inválido"));
+        assertTrue(assertThrows(RuntimeException.class,
+            () -> userService.patchUser(1L, Map.of("role", "ROOT"), List.of())).getMessage().contains("inválido"));
+        assertThrows(RuntimeException.class, () -> userService.patchUser(1L, Map.of(), List.of()));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -193,6 +622,7 @@ class UserServiceTest {
 
         // Assert
         verify(userRepository, times(1)).deleteById(1L);
+        verify(changeLog).recordDeleted(1L);
     }
 
     @Test
@@ -225,7 +655,7 @@ class UserServiceTest {
     @DisplayName("Debe verificar credenciales correctamente")
     void verifyCredentials_ShouldReturnUser_WhenCredentialsValid() {
         // Arrange
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(testUser)));
         when(passwordEncoder.matches("password123", "hashedPassword")).thenReturn(true);
 
         // Act
@@ -234,13 +664,48 @@ class UserServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("test@example.com", result.getEmail());
+        assertEquals("CLIENT", result.getRole());
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Debe recalcular el hash en el login si usa un costo anterior")
+    void verifyCredentials_ShouldRehash_WhenEncodingOutdated() {
+        // Arrange
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(testUser)));
+        when(passwordEncoder.matches("password123", "hashedPassword")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("hashedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("password123")).thenReturn("{bcrypt}newHash");
+
+        // Act
+        UserDTO result = userService.verifyCredentials("test@example.com", "password123");
+
+        // Assert
+        assertEquals("test@example.com", result.getEmail());
+        verify(userRepository, times(1)).updatePasswordHash(1L, "hashedPassword", "{bcrypt}newHash");
+    }
+
+    @Test
+    @DisplayName("No debe recalcular el hash si ya usa la configuración actual")
+    void verifyCredentials_ShouldNotRehash_WhenEncodingCurrent() {
+        // Arrange
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(testUser)));
+        when(passwordEncoder.matches("password123", "hashedPassword")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("hashedPassword")).thenReturn(false);
+
+        // Act
+        userService.verifyCredentials("test@example.com", "password123");
+
+        // Assert
+        verify(passwordEncoder, never()).encode(anyString());
+        verify(userRepository, never()).updatePasswordHash(anyLong(), anyString(), anyString());
     }
 
     @Test
     @DisplayName("Debe lanzar excepción con credenciales inválidas")
     void verifyCredentials_ShouldThrowException_WhenPasswordInvalid() {
         // Arrange
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(testUser)));
         when(passwordEncoder.matches("wrongpassword", "hashedPassword")).thenReturn(false);
 
         // Act & Assert
@@ -250,11 +715,33 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("Debe generar token de recuperación de contraseña")
+    @DisplayName("Debe contar el resultado de cada login y medir solo las fases ejecutadas")
+    void verifyCredentials_ShouldRecordOutcomeAndPhases() {
+        // Arrange
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(testUser)));
+        when(userRepository.findCredentialsByEmail("nobody@example.com")).thenReturn(Optional.empty());
+        when(passwordEncoder.matches("password123", "hashedPassword")).thenReturn(true);
+        when(passwordEncoder.matches("wrongpassword", "hashedPassword")).thenReturn(false);
+
+        // Act
+        userService.verifyCredentials("test@example.com", "password123");
+        assertThrows(RuntimeException.class, () -> userService.verifyCredentials("test@example.com", "wrongpassword"));
+        assertThrows(RuntimeException.class, () -> userService.verifyCredentials("nobody@example.com", "password123"));
+
+        // Assert
+        assertEquals(1.0, meterRegistry.get("users.login.attempts").tag("outcome", "success").counter().count());
+        assertEquals(1.0, meterRegistry.get("users.login.attempts").tag("outcome", "bad_password").counter().count());
+        assertEquals(1.0, meterRegistry.get("users.login.attempts").tag("outcome", "unknown_email").counter().count());
+        assertEquals(3, meterRegistry.get("users.login.phase").tag("phase", "lookup").timer().count());
+        assertEquals(2, meterRegistry.get("users.login.phase").tag("phase", "hash").timer().count());
+        assertEquals(1, meterRegistry.get("users.login.phase").tag("phase", "mapping").timer().count());
+    }
+
+    @Test
+    @DisplayName("Debe generar token de recuperación guardando solo su hash")
     void generatePasswordResetToken_ShouldGenerateToken() {
         // Arrange
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
 
         // Act
         String token = userService.generatePasswordResetToken("test@example.com");
@@ -262,17 +749,22 @@ class UserServiceTest {
         // Assert
         assertNotNull(token);
         assertFalse(token.isEmpty());
-        verify(userRepository, times(1)).save(any(User.class));
+        ArgumentCaptor<PasswordResetToken> saved = ArgumentCaptor.forClass(PasswordResetToken.class);
+        verify(resetTokenRepository).deleteByUserId(1L);
+        verify(resetTokenRepository).save(saved.capture());
+        assertEquals(sha256(token), saved.getValue().getTokenHash());
+        assertNotEquals(token, saved.getValue().getTokenHash());
+        assertEquals(1L, saved.getValue().getUserId());
+        assertTrue(saved.getValue().getExpiresAt().isAfter(LocalDateTime.now().plusHours(23)));
     }
 
     @Test
     @DisplayName("Debe restablecer contraseña con token válido")
     void resetPassword_ShouldResetPassword_WhenTokenValid() {
         // Arrange
-        testUser.setResetToken("valid-token");
-        testUser.setResetTokenExpiry(LocalDateTime.now().plusHours(1));
-
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(resetTokenRepository.findById(sha256("valid-token")))
+                .thenReturn(Optional.of(resetToken("valid-token", 1L, LocalDateTime.now().plusHours(1))));
         when(passwordEncoder.encode("newPassword123")).thenReturn("newHashedPassword");
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
@@ -282,16 +774,17 @@ class UserServiceTest {
         // Assert
         verify(passwordEncoder, times(1)).encode("newPassword123");
         verify(userRepository, times(1)).save(any(User.class));
+        // Un solo uso
+        verify(resetTokenRepository).deleteByUserId(1L);
     }
 
     @Test
     @DisplayName("Debe lanzar excepción con token expirado")
     void resetPassword_ShouldThrowException_WhenTokenExpired() {
         // Arrange
-        testUser.setResetToken("expired-token");
-        testUser.setResetTokenExpiry(LocalDateTime.now().minusHours(1)); // Token expirado
-
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(resetTokenRepository.findById(sha256("expired-token")))
+                .thenReturn(Optional.of(resetToken("expired-token", 1L, LocalDateTime.now().minusHours(1)))); // Token expirado
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
@@ -303,15 +796,60 @@ class UserServiceTest {
     @DisplayName("Debe lanzar excepción cuando el token no coincide")
     void resetPassword_ShouldThrowException_WhenTokenMismatch() {
         // Arrange
-        testUser.setResetToken("valid-token");
-        testUser.setResetTokenExpiry(LocalDateTime.now().plusHours(1));
-
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(resetTokenRepository.findById(sha256("wrong-token"))).thenReturn(Optional.empty());
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
             () -> userService.resetPassword("test@example.com", "wrong-token", "newPassword123"));
         assertEquals("Token inválido o expirado", exception.getMessage());
+        verify(passwordEncoder, never()).encode(anyString());
     }
-}
 
+    @Test
+    @DisplayName("Debe rechazar un token válido que pertenece a otro usuario")
+    void resetPassword_ShouldThrowException_WhenTokenBelongsToAnotherUser() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(resetTokenRepository.findById(sha256("other-token")))
+                .thenReturn(Optional.of(resetToken("other-token", 99L, LocalDateTime.now().plusHours(1))));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> userService.resetPassword("test@example.com", "other-token", "newPassword123"));
+        assertEquals("Token inválido o expirado", exception.getMessage());
+    }
+
+    private static PasswordResetToken resetToken(String token, Long userId, LocalDateTime expiresAt) {
+        return new PasswordResetToken(sha256(token), userId, expiresAt, LocalDateTime.now().minusHours(2));
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Role role(Long id, RoleType type) {
+        Role role = new Role(type, type.getDescription());
+        role.setId(id);
+        return role;
+    }
+
+    private static UserSummary summary(Long id, Long roleId) {
+        return new UserSummary() {
+            public Long getId() { return id; }
+            public String getEmail() { return "user" + id + "@example.com"; }
+            public String getName() { return "User " + id; }
+            public String getPhone() { return "123"; }
+            public Long getRoleId() { return roleId; }
+        };
+    }
+
+    private static UserCredentials credentials(User user) {
+        return new UserCredentials(user.getId(), user.getEmail(), user.getName(), user.getPhone(),
+                user.getRole().getId(), user.getPassword());
+    }
+}